@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.benchmark;
+
+import org.evcode.queryfy.core.parser.functions.DefaultFunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.FunctionHandles;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+//Dispatch cost of a function call through the DefaultFunctionInvoker, run it with -prof gc to see the
+//allocations per call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionInvokerBenchmark {
+
+    private final DefaultFunctionInvoker invoker = new DefaultFunctionInvoker();
+    private final Object[] lengthArgs = {"value"};
+    private final Object[] plusDaysArgs = {LocalDate.of(2018, 1, 1), 1L};
+    private final MethodHandle plusDays = invoker.resolve("plusDays", plusDaysArgs);
+
+    @Benchmark
+    public boolean canHandle() {
+        return invoker.canHandle("length", lengthArgs);
+    }
+
+    @Benchmark
+    public Object invoke() {
+        return invoker.invoke("plusDays", plusDaysArgs);
+    }
+
+    //A call resolved once, as done when a query is parsed
+    @Benchmark
+    public Object invokeResolved() {
+        return FunctionHandles.invoke(plusDays, plusDaysArgs);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.benchmark;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Literal-heavy queries, where decoding the matched values dominates the parse.
+//Run with -prof gc to see the allocation rate per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralBenchmark {
+
+    @Param({"PARBOILED", "RECURSIVE_DESCENT"})
+    private ParserEngine engine;
+
+    @Param({"numeric", "temporal", "string"})
+    private String literals;
+
+    private ParserConfig config;
+    private String query;
+
+    @Setup
+    public void setup() {
+        config = ParserConfig.builder().withEngine(engine).build();
+        query = query(literals);
+    }
+
+    @Benchmark
+    public List<Node> parse() {
+        return Evaluator.parse(query, config);
+    }
+
+    static String query(String literals) {
+        switch (literals) {
+            case "numeric":
+                return "id in (" + sequence(64) + ") and price >= 1250.75 and price < 99999.99 and " +
+                        "count > 10I and total <= 123456789012L and ratio = 0.5F and weight != -12.5D";
+            case "temporal":
+                //Dashboard-like time ranges
+                return "created >= 2017-01-01T00:00:00.000-03:00 and created < 2017-02-01T00:00:00.000-03:00 and " +
+                        "updated >= 2017-01-01T12:10:10+03:00[America/Sao_Paulo] and updated <= 2017-01-31T23:59:59Z and " +
+                        "day in (2017-01-01, 2017-01-02, 2017-01-03, 2017-01-04, 2017-01-05) and " +
+                        "local > 2017-01-15T08:30 and time >= 08:00:00.000+01:00 and time < 18:00";
+            case "string":
+                return "name like '%a rather long like pattern that matches the description of a product%' and " +
+                        "category in (" + strings(32) + ") and note = 'John Doe\\'s \\\"escaped\\\" note'";
+            default:
+                throw new IllegalArgumentException("Unknown literals " + literals);
+        }
+    }
+
+    private static String strings(int size) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append("'category-").append(i).append("'");
+        }
+        return values.toString();
+    }
+
+    private static String sequence(int size) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append(i * 7919L);
+        }
+        return values.toString();
+    }
+}
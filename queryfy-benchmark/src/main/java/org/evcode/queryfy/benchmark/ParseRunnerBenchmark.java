@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.benchmark;
+
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.QueryParser;
+import org.openjdk.jmh.annotations.*;
+import org.parboiled.Parboiled;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+//Compares a parboiled BasicParseRunner, which builds its matcher contexts and input buffer for every query,
+//with the parser's own value stack runner. Run it with -prof gc to compare the allocations per query.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseRunnerBenchmark {
+
+    @Param({"basic", "valueStack"})
+    private String runner;
+
+    @Param({"filter", "chain", "query", "wide"})
+    private String shape;
+
+    private QueryParser parser;
+    private String query;
+
+    @Setup
+    public void setup() {
+        parser = Parboiled.createParser(QueryParser.class, ParserConfig.DEFAULT);
+        query = ParserBenchmark.query(shape);
+    }
+
+    @Benchmark
+    public ParsingResult<Object> run() {
+        if ("basic".equals(runner)) {
+            return new BasicParseRunner<>(parser.Query()).run(query);
+        }
+        return parser.run(query);
+    }
+}
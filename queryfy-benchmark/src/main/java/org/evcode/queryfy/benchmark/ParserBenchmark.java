@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.benchmark;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"PARBOILED", "RECURSIVE_DESCENT"})
+    private ParserEngine engine;
+
+    @Param({"filter", "chain", "temporal", "query", "wide"})
+    private String shape;
+
+    private ParserConfig config;
+    private String query;
+
+    @Setup
+    public void setup() {
+        config = ParserConfig.builder().withEngine(engine).build();
+        query = query(shape);
+    }
+
+    @Benchmark
+    public List<Node> parse() {
+        return Evaluator.parse(query, config);
+    }
+
+    static String query(String shape) {
+        switch (shape) {
+            case "filter":
+                return "name = 'value'";
+            case "chain":
+                return chain(32);
+            case "temporal":
+                return "created >= 2017-01-01T12:10:10.123+03:00 and day = 2017-01-01 and time < 18:10:10";
+            case "query":
+                return "select one, two, three where one = 1 and (two like 'a%' or three in (1, 2, 3)) " +
+                        "order by one asc, two desc limit 0,10";
+            case "wide":
+                return wide(16);
+            default:
+                throw new IllegalArgumentException("Unknown query shape " + shape);
+        }
+    }
+
+    //Projections, filters and orders over many long qualified selectors
+    static String wide(int size) {
+        StringBuilder projection = new StringBuilder("select ");
+        StringBuilder filter = new StringBuilder(" where ");
+        for (int i = 0; i < size; i++) {
+            String selector = "customer.billing.address" + i + ".city";
+            projection.append(i > 0 ? ", " : "").append(selector);
+            filter.append(i > 0 ? " and " : "").append(selector).append(" = ").append(i);
+        }
+        return projection.append(filter).append(" order by customer.billing.address0.city desc").toString();
+    }
+
+    //Long AND/OR chains of operations matched by the last grammar alternatives (in, like, is null)
+    static String chain(int size) {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                query.append(i % 4 == 0 ? " or " : " and ");
+            }
+            switch (i % 3) {
+                case 0:
+                    query.append("field").append(i).append(" in (1, 2, 3)");
+                    break;
+                case 1:
+                    query.append("field").append(i).append(" like 'value%'");
+                    break;
+                default:
+                    query.append("field").append(i).append(" is not null");
+            }
+        }
+        return query.toString();
+    }
+}
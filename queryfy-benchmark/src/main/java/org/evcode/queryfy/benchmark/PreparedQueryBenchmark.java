@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.benchmark;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.PreparedQuery;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedQueryBenchmark {
+
+    private static final String QUERY = "price > ? and status in (?) and name like ? order by price limit 0,10";
+
+    private final List<String> statuses = Arrays.asList("ACTIVE", "PENDING");
+    private PreparedQuery preparedQuery;
+    private long price;
+
+    @Setup
+    public void setup() {
+        preparedQuery = Evaluator.prepare(QUERY);
+    }
+
+    @Benchmark
+    public List<Node> bind() {
+        return preparedQuery.bind(++price, statuses, "J%");
+    }
+
+    @Benchmark
+    public List<Node> parse() {
+        return Evaluator.parse("price > " + (++price) + " and status in ('ACTIVE', 'PENDING') and name like 'J%' " +
+                "order by price limit 0,10");
+    }
+}
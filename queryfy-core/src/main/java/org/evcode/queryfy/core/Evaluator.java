@@ -15,12 +15,17 @@
  */
 package org.evcode.queryfy.core;
 
+import org.evcode.queryfy.core.parser.DescentQueryParser;
 import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.ParserRegistry;
+import org.evcode.queryfy.core.parser.QueryCache;
+import org.evcode.queryfy.core.parser.QueryLimitExceededException;
 import org.evcode.queryfy.core.parser.QueryParser;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
 import org.evcode.queryfy.core.parser.ast.Node;
-import org.parboiled.Parboiled;
-import org.parboiled.Rule;
-import org.parboiled.parserunners.ReportingParseRunner;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.parboiled.errors.ParserRuntimeException;
 import org.parboiled.support.ParsingResult;
 import org.parboiled.support.ValueStack;
 
@@ -31,31 +36,122 @@ import static org.parboiled.errors.ErrorUtils.printParseErrors;
 
 public final class Evaluator {
 
+    private static final ParserRegistry PARSERS = new ParserRegistry();
+
     public static List<Node> parse(String query) {
         return parse(query, ParserConfig.DEFAULT);
     }
 
     public static List<Node> parse(String query, ParserConfig config) {
-        QueryParser expressionParser = Parboiled.createParser(QueryParser.class, config);
-        ValueStack<Object> nodes = parse(query, expressionParser.Query());
-        List<Node> nodeList = new LinkedList<>();
+        config.getLimits().checkInputLength(query);
 
-        for (Object node : nodes) {
-            if (node instanceof Node) {
-                nodeList.add((Node) node);
+        QueryCache cache = config.getQueryCache();
+        if (cache != null) {
+            List<Node> nodes = cache.get(query, config);
+            if (nodes != null) {
+                return nodes;
             }
         }
-        return nodeList;
+
+        ParsedQuery parsedQuery = parseQuery(query, config);
+        if (parsedQuery.hasParameters()) {
+            throw new IllegalArgumentException("Invalid query: parameters must be bound through Evaluator.prepare");
+        }
+        List<Node> nodes = parsedQuery.getNodes();
+        if (config.isOptimized()) {
+            nodes = QueryOptimizer.optimize(nodes);
+        }
+
+        //Function values are folded while parsing, so the cache decides by their determinism how long they're reused
+        if (cache == null) {
+            return nodes;
+        }
+        return cache.put(query, config, nodes, parsedQuery.getFunctionDeterminism());
     }
 
-    private static ValueStack<Object> parse(String query, Rule ruleTree) {
-        ReportingParseRunner<Object> runner = new ReportingParseRunner<>(ruleTree);
-        ParsingResult<Object> result = runner.run(query);
+    public static PreparedQuery prepare(String query) {
+        return prepare(query, ParserConfig.DEFAULT);
+    }
+
+    public static PreparedQuery prepare(String query, ParserConfig config) {
+        return new PreparedQuery(query, config, parseQuery(query, config));
+    }
+
+    //Evaluates the deferred function values of parsed nodes (see ParserConfig.Builder.withDeferredFunctions).
+    //Nodes without them are shared with the resolved ones
+    public static List<Node> resolve(List<Node> nodes) {
+        return PreparedQuery.bindNodes(nodes, PreparedQuery::unbound);
+    }
 
-        if (!result.matched || result.hasErrors()) {
+    public static FilterNode resolve(FilterNode node) {
+        return PreparedQuery.bind(node, PreparedQuery::unbound);
+    }
+
+    public static void evict(ParserConfig config) {
+        PARSERS.evict(config);
+    }
+
+    public static void evictAll() {
+        PARSERS.evictAll();
+    }
+
+    static ParsedQuery parseQuery(String query, ParserConfig config) {
+        if (config.getEngine() == ParserEngine.RECURSIVE_DESCENT) {
+            DescentQueryParser parser = new DescentQueryParser(config);
+            List<Node> nodes = parser.parse(query);
+            return new ParsedQuery(nodes, parser.getFunctionDeterminism(), parser.hasParameters());
+        }
+
+        //Deeply nested queries are rejected before any recursive matching, so they can't overflow the stack
+        config.getLimits().checkInput(query, config.getGrammar().getCustomFunctionPrefix());
+
+        QueryParser expressionParser = PARSERS.acquire(config);
+        ParsingResult<Object> result;
+        try {
+            result = expressionParser.run(query);
+        } catch (ParserRuntimeException e) {
+            throw invalidValue(e);
+        }
+        FunctionDeterminism functionDeterminism = expressionParser.getFunctionDeterminism();
+        boolean parameters = expressionParser.hasParameters();
+        QueryLimitExceededException limitExceeded = expressionParser.getLimitExceeded();
+
+        boolean valid = result.matched && !result.hasErrors();
+        List<Node> nodeList = valid ? nodesOf(result.valueStack) : null;
+
+        //A parser interrupted by an action exception may hold a dirty state, so it's only reused after a clean run.
+        //Its runner reuses the value stack, so the nodes are taken out before releasing it
+        PARSERS.release(expressionParser);
+
+        if (limitExceeded != null) {
+            throw limitExceeded;
+        }
+        if (!valid) {
             throw new IllegalArgumentException("Invalid query: " + printParseErrors(result));
         }
+        return new ParsedQuery(nodeList, functionDeterminism, parameters);
+    }
 
-        return result.valueStack;
+    //A value that can't be built (eg. 2017-13-45) fails its action, which is reported as the descent parser does:
+    //the value's error at the position where it ends
+    private static RuntimeException invalidValue(ParserRuntimeException e) {
+        String message = e.getMessage();
+        int start = message != null ? message.indexOf(" (line ") : -1;
+        int end = start >= 0 ? message.indexOf("^\n\n", start) : -1;
+        if (e.getCause() == null || end < 0) {
+            return e;
+        }
+        return new IllegalArgumentException("Invalid query: " + e.getCause().getMessage() +
+                message.substring(start, end + 2), e.getCause());
+    }
+
+    private static List<Node> nodesOf(ValueStack<Object> valueStack) {
+        List<Node> nodeList = new LinkedList<>();
+        for (Object node : valueStack) {
+            if (node instanceof Node) {
+                nodeList.add((Node) node);
+            }
+        }
+        return nodeList;
     }
 }
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.OrNode;
+
+import java.util.List;
+
+/**
+ * Translates a filter tree bottom-up through {@link NodeTraversal#fold}: each logical node receives the
+ * results of its operations, in the query order.
+ */
+public interface NodeFolder<R, P> {
+
+    R fold(FilterNode node, P param);
+
+    R fold(AndNode node, List<R> operations, P param);
+
+    R fold(OrNode node, List<R> operations, P param);
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.LogicalNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.ast.OrNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Walks filter trees with an explicit stack instead of recursion, so a tree of any depth can be translated
+ * without overflowing the thread stack.
+ */
+public final class NodeTraversal {
+
+    private NodeTraversal() {
+    }
+
+    //Post-order fold: the operations of a logical node are folded before the node itself
+    public static <R, P> R fold(Node root, NodeFolder<R, P> folder, P param) {
+        Deque<Frame<R>> stack = new ArrayDeque<>();
+        Node node = root;
+
+        while (true) {
+            while (node instanceof LogicalNode) {
+                Frame<R> frame = new Frame<>((LogicalNode) node);
+                stack.push(frame);
+                node = frame.next();
+            }
+
+            R result = folder.fold(asFilter(node), param);
+
+            while (true) {
+                Frame<R> frame = stack.peek();
+                if (frame == null) {
+                    return result;
+                }
+
+                frame.results.add(result);
+                if (frame.hasNext()) {
+                    node = frame.next();
+                    break;
+                }
+
+                stack.pop();
+                result = frame.node instanceof AndNode ?
+                        folder.fold((AndNode) frame.node, frame.results, param) :
+                        folder.fold((OrNode) frame.node, frame.results, param);
+            }
+        }
+    }
+
+    //Visits the filters of a tree in the query order
+    public static void forEachFilter(Node root, Consumer<FilterNode> action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node instanceof LogicalNode) {
+                List<Node> operations = ((LogicalNode) node).getOperations();
+                for (int i = operations.size() - 1; i >= 0; i--) {
+                    stack.push(operations.get(i));
+                }
+            } else {
+                action.accept(asFilter(node));
+            }
+        }
+    }
+
+    public static int depth(Node root) {
+        return fold(root, new NodeFolder<Integer, Void>() {
+            @Override
+            public Integer fold(FilterNode node, Void param) {
+                return 1;
+            }
+
+            @Override
+            public Integer fold(AndNode node, List<Integer> operations, Void param) {
+                return depth(operations);
+            }
+
+            @Override
+            public Integer fold(OrNode node, List<Integer> operations, Void param) {
+                return depth(operations);
+            }
+
+            private Integer depth(List<Integer> operations) {
+                int depth = 0;
+                for (Integer operation : operations) {
+                    depth = Math.max(depth, operation);
+                }
+                return depth + 1;
+            }
+        }, null);
+    }
+
+    private static FilterNode asFilter(Node node) {
+        if (!(node instanceof FilterNode)) {
+            throw new IllegalArgumentException("Invalid filter operation: " + node);
+        }
+        return (FilterNode) node;
+    }
+
+    private static final class Frame<R> {
+
+        private final LogicalNode node;
+        private final List<R> results;
+        private int index;
+
+        private Frame(LogicalNode node) {
+            this.node = node;
+            this.results = new ArrayList<>(node.getOperations().size());
+        }
+
+        private boolean hasNext() {
+            return index < node.getOperations().size();
+        }
+
+        private Node next() {
+            return node.getOperations().get(index++);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+
+import java.util.List;
+
+final class ParsedQuery {
+
+    private final List<Node> nodes;
+    private final FunctionDeterminism functionDeterminism;
+    private final boolean parameters;
+
+    ParsedQuery(List<Node> nodes, FunctionDeterminism functionDeterminism, boolean parameters) {
+        this.nodes = nodes;
+        this.functionDeterminism = functionDeterminism;
+        this.parameters = parameters;
+    }
+
+    List<Node> getNodes() {
+        return nodes;
+    }
+
+    FunctionDeterminism getFunctionDeterminism() {
+        return functionDeterminism;
+    }
+
+    boolean hasParameters() {
+        return parameters;
+    }
+}
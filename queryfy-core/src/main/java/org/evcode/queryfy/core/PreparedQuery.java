@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.parser.DeferredFunction;
+import org.evcode.queryfy.core.parser.Parameter;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ast.*;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A query parsed once, with positional (?) or named (:name) parameters bound to values on each use.
+ * Binding only rebuilds the filter nodes holding parameters or deferred function values, the rest of the tree
+ * is shared.
+ */
+public final class PreparedQuery {
+
+    private final String query;
+    private final ParserConfig config;
+    private final List<Node> nodes;
+    private final List<Parameter> parameters = new ArrayList<>();
+    private final Set<String> parameterNames = new LinkedHashSet<>();
+    private final boolean reparse;
+
+    PreparedQuery(String query, ParserConfig config, ParsedQuery parsedQuery) {
+        this.query = query;
+        this.config = config;
+        this.nodes = Collections.unmodifiableList(parsedQuery.getNodes());
+        //Pure function values are folded once, the others would be frozen in the prepared tree otherwise
+        this.reparse = parsedQuery.getFunctionDeterminism() != FunctionDeterminism.DETERMINISTIC;
+
+        for (Node node : nodes) {
+            collectParameters(node);
+        }
+
+        boolean positional = parameters.stream().anyMatch(p -> !p.isNamed());
+        if (positional && !parameterNames.isEmpty()) {
+            throw new IllegalArgumentException("Invalid query: positional and named parameters can't be mixed");
+        }
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public ParserConfig getConfig() {
+        return config;
+    }
+
+    public int getParameterCount() {
+        return parameters.size();
+    }
+
+    public Set<String> getParameterNames() {
+        return Collections.unmodifiableSet(parameterNames);
+    }
+
+    public List<Node> bind(Object... values) {
+        if (!parameterNames.isEmpty()) {
+            throw new IllegalArgumentException("Query parameters are named, they must be bound by name");
+        }
+        if (values.length != parameters.size()) {
+            throw new IllegalArgumentException(String.format("Query has %d parameters but %d values were bound",
+                    parameters.size(), values.length));
+        }
+
+        int[] position = {0};
+        return bind(parameter -> values[position[0]++]);
+    }
+
+    public List<Node> bind(Map<String, ?> values) {
+        if (parameterNames.isEmpty() && !parameters.isEmpty()) {
+            throw new IllegalArgumentException("Query parameters are positional, they must be bound by position");
+        }
+        for (String name : parameterNames) {
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("Parameter '" + name + "' was not bound");
+            }
+        }
+
+        return bind(parameter -> values.get(parameter.getName()));
+    }
+
+    private List<Node> bind(Function<Parameter, Object> values) {
+        List<Node> source = reparse ? Evaluator.parseQuery(query, config).getNodes() : nodes;
+        List<Node> boundNodes = bindNodes(source, values);
+        //Parameter values are only known now, so the query is optimized once they are bound
+        return config.isOptimized() ? QueryOptimizer.optimize(boundNodes) : boundNodes;
+    }
+
+    static List<Node> bindNodes(List<Node> nodes, Function<Parameter, Object> values) {
+        List<Node> boundNodes = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            boundNodes.add(bind(node, values));
+        }
+        return boundNodes;
+    }
+
+    static Object unbound(Parameter parameter) {
+        throw new IllegalArgumentException("Parameter " + parameter + " was not bound");
+    }
+
+    //Operations are folded in the query order, so positional parameters are bound in that order
+    private static Node bind(Node node, Function<Parameter, Object> values) {
+        if (!(node instanceof LogicalNode)) {
+            return node instanceof FilterNode ? bind((FilterNode) node, values) : node;
+        }
+
+        return NodeTraversal.fold(node, new NodeFolder<Node, Void>() {
+            @Override
+            public Node fold(FilterNode node, Void param) {
+                return bind(node, values);
+            }
+
+            @Override
+            public Node fold(AndNode node, List<Node> operations, Void param) {
+                return sameOperations(node, operations) ? node : new AndNode(operations);
+            }
+
+            @Override
+            public Node fold(OrNode node, List<Node> operations, Void param) {
+                return sameOperations(node, operations) ? node : new OrNode(operations);
+            }
+        }, null);
+    }
+
+    //Nodes without parameters are shared with the bound tree
+    private static boolean sameOperations(LogicalNode node, List<Node> operations) {
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.get(i) != node.getOperations().get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Deferred function values are evaluated on each bind
+    static FilterNode bind(FilterNode node, Function<Parameter, Object> values) {
+        List<Object> args = node.getArgs();
+        List<Object> boundArgs = null;
+
+        for (int i = 0; i < args.size(); i++) {
+            Object arg = args.get(i);
+            if (!(arg instanceof Parameter) && !(arg instanceof DeferredFunction)) {
+                if (boundArgs != null) {
+                    boundArgs.add(arg);
+                }
+                continue;
+            }
+
+            if (boundArgs == null) {
+                boundArgs = new ArrayList<>(args.subList(0, i));
+            }
+            if (arg instanceof DeferredFunction) {
+                boundArgs.add(((DeferredFunction) arg).evaluate());
+                continue;
+            }
+
+            Object value = values.apply((Parameter) arg);
+            if (node.getOperator() instanceof ListOperatorType) {
+                addListValues(boundArgs, (Parameter) arg, value);
+            } else {
+                boundArgs.add(requireValue((Parameter) arg, value));
+            }
+        }
+
+        return boundArgs == null ? node : node.withOperation(node.getOperator(), boundArgs);
+    }
+
+    //A collection or array bound to a list operation parameter is expanded into its values
+    private static void addListValues(List<Object> boundArgs, Parameter parameter, Object value) {
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                boundArgs.add(requireValue(parameter, item));
+            }
+        } else if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                boundArgs.add(requireValue(parameter, Array.get(value, i)));
+            }
+        } else {
+            boundArgs.add(requireValue(parameter, value));
+        }
+    }
+
+    private static Object requireValue(Parameter parameter, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter " + parameter + " can't be bound to null");
+        }
+        return value;
+    }
+
+    private void collectParameters(Node node) {
+        if (node instanceof LogicalNode || node instanceof FilterNode) {
+            NodeTraversal.forEachFilter(node, this::collectParameters);
+        }
+    }
+
+    private void collectParameters(FilterNode node) {
+        for (Object arg : node.getArgs()) {
+            if (arg instanceof Parameter) {
+                Parameter parameter = (Parameter) arg;
+                parameters.add(parameter);
+                if (parameter.isNamed()) {
+                    parameterNames.add(parameter.getName());
+                }
+            }
+        }
+    }
+}
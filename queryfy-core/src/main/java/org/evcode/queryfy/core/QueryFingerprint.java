@@ -0,0 +1,387 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.operator.LogicalOperatorType;
+import org.evcode.queryfy.core.parser.DeferredFunction;
+import org.evcode.queryfy.core.parser.Parameter;
+import org.evcode.queryfy.core.parser.ast.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A stable 128 bit fingerprint of a parsed query, to key result caches and group query statistics.
+ * <p>
+ * Queries are fingerprinted in a canonical form: the operands of AND/OR chains are sorted, IN lists are
+ * sorted and deduplicated, literals are written by their type and value (so {@code 1.50} and {@code 1.5} are the
+ * same) and the query sections are taken in a fixed order. A query shape also replaces every literal by
+ * {@code ?}, so {@code a = 1} and {@code a = 2} share it.
+ * <p>
+ * The fingerprint of a filter is built bottom-up from the fingerprints of its operations, which is also the
+ * order its operands are sorted in. It doesn't depend on the JVM, so it can be stored or shared between services.
+ */
+public final class QueryFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    public QueryFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static QueryFingerprint of(List<Node> nodes) {
+        return fingerprint(nodes, true);
+    }
+
+    public static QueryFingerprint shapeOf(List<Node> nodes) {
+        return fingerprint(nodes, false);
+    }
+
+    public static String canonicalForm(List<Node> nodes) {
+        return canonical(nodes, true);
+    }
+
+    public static String canonicalShape(List<Node> nodes) {
+        return canonical(nodes, false);
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    private static QueryFingerprint fingerprint(List<Node> nodes, boolean literals) {
+        Term filter = null;
+        StringBuilder sections = new StringBuilder();
+        for (Node node : sorted(nodes)) {
+            if (node instanceof LogicalNode || node instanceof FilterNode) {
+                filter = term(node, literals);
+            } else {
+                appendSection(sections, node, literals);
+            }
+        }
+
+        //The filter is taken by its fingerprint, so it's never written out
+        byte[] text = sections.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(text, text.length + 16);
+        if (filter != null) {
+            putLong(bytes, text.length, filter.high);
+            putLong(bytes, text.length + 8, filter.low);
+        }
+        return hash(bytes);
+    }
+
+    private static String canonical(List<Node> nodes, boolean literals) {
+        StringBuilder builder = new StringBuilder();
+        for (Node node : sorted(nodes)) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            if (node instanceof LogicalNode || node instanceof FilterNode) {
+                builder.append("where ");
+                term(node, literals).appendTo(builder);
+            } else {
+                appendSection(builder, node, literals);
+            }
+        }
+        return builder.toString();
+    }
+
+    //Sections in a fixed order: projection, filter, order and limit
+    private static List<Node> sorted(List<Node> nodes) {
+        List<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparingInt(QueryFingerprint::sectionOrder));
+        return sorted;
+    }
+
+    private static int sectionOrder(Node node) {
+        if (node instanceof ProjectionNode) {
+            return 0;
+        }
+        if (node instanceof OrderNode) {
+            return 2;
+        }
+        if (node instanceof LimitNode) {
+            return 3;
+        }
+        return 1;
+    }
+
+    private static void appendSection(StringBuilder builder, Node node, boolean literals) {
+        if (node instanceof ProjectionNode) {
+            builder.append("select ").append(String.join(", ", new TreeSet<>(((ProjectionNode) node).getSelectors())));
+        } else if (node instanceof OrderNode) {
+            builder.append("order by ");
+            String separator = "";
+            for (OrderNode.OrderSpecifier specifier : ((OrderNode) node).getOrderSpecifiers()) {
+                builder.append(separator).append(specifier.getSelector()).append(' ').append(specifier.getOperator());
+                separator = ", ";
+            }
+        } else if (node instanceof LimitNode) {
+            LimitNode limit = (LimitNode) node;
+            builder.append("limit ").append(literals ? limit.getOffset() : "?").append(',')
+                    .append(literals ? limit.getLimit() : "?");
+        }
+    }
+
+    private static Term term(Node node, boolean literals) {
+        return NodeTraversal.fold(node, new NodeFolder<Term, Void>() {
+            @Override
+            public Term fold(FilterNode node, Void param) {
+                return new Term(filter(node, literals));
+            }
+
+            @Override
+            public Term fold(AndNode node, List<Term> operations, Void param) {
+                return new Term(LogicalOperatorType.AND, operations);
+            }
+
+            @Override
+            public Term fold(OrNode node, List<Term> operations, Void param) {
+                return new Term(LogicalOperatorType.OR, operations);
+            }
+        }, null);
+    }
+
+    private static String filter(FilterNode node, boolean literals) {
+        StringBuilder builder = new StringBuilder(node.getSelector()).append(' ').append(node.getOperator().name());
+        List<Object> args = node.getArgs();
+        if (node.getOperator() instanceof ListOperatorType) {
+            //A list is a set of values, so its order and repeated values don't matter
+            Set<String> values = new TreeSet<>();
+            for (Object arg : args) {
+                values.add(literals ? literal(arg) : "?");
+            }
+            builder.append(" (").append(String.join(", ", values)).append(')');
+        } else if (!args.isEmpty()) {
+            builder.append(' ').append(literals ? literal(args.get(0)) : "?");
+        }
+        return builder.toString();
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof String) {
+            return "'" + ((String) value).replace("\\", "\\\\").replace("'", "\\'") + "'";
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            return decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Long || value instanceof Boolean || value instanceof Parameter) {
+            return String.valueOf(value);
+        }
+        if (value instanceof Integer) {
+            return value + "i";
+        }
+        if (value instanceof Float) {
+            return value + "f";
+        }
+        if (value instanceof Double) {
+            return value + "d";
+        }
+        //Temporals are written in their ISO format, deferred calls as in the query, any other value by its type
+        if (value instanceof java.time.temporal.Temporal || value instanceof DeferredFunction) {
+            return value.toString();
+        }
+        return value.getClass().getSimpleName() + "(" + value + ")";
+    }
+
+    //A filter, or a logical operation with its operands sorted by their fingerprint
+    private static final class Term {
+
+        private final LogicalOperatorType operator;
+        private final List<Term> operands;
+        private final String text;
+        private final long high;
+        private final long low;
+
+        private Term(String text) {
+            QueryFingerprint fingerprint = hash(text.getBytes(StandardCharsets.UTF_8));
+            this.operator = null;
+            this.operands = Collections.emptyList();
+            this.text = text;
+            this.high = fingerprint.high;
+            this.low = fingerprint.low;
+        }
+
+        private Term(LogicalOperatorType operator, List<Term> operations) {
+            List<Term> operands = new ArrayList<>(operations.size());
+            for (Term operation : operations) {
+                //Operations of the same operator are the same as operands of this one
+                if (operation.operator == operator) {
+                    operands.addAll(operation.operands);
+                } else {
+                    operands.add(operation);
+                }
+            }
+            operands.sort(Term::compareTo);
+
+            byte[] bytes = new byte[1 + operands.size() * 16];
+            bytes[0] = (byte) operator.ordinal();
+            for (int i = 0; i < operands.size(); i++) {
+                putLong(bytes, 1 + i * 16, operands.get(i).high);
+                putLong(bytes, 9 + i * 16, operands.get(i).low);
+            }
+            QueryFingerprint fingerprint = hash(bytes);
+
+            this.operator = operator;
+            this.operands = operands;
+            this.text = null;
+            this.high = fingerprint.high;
+            this.low = fingerprint.low;
+        }
+
+        private int compareTo(Term other) {
+            int comparison = Long.compareUnsigned(high, other.high);
+            return comparison != 0 ? comparison : Long.compareUnsigned(low, other.low);
+        }
+
+        //Written with an explicit stack, as terms may be nested as deep as the filter tree
+        private void appendTo(StringBuilder builder) {
+            Deque<Object> stack = new ArrayDeque<>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Object item = stack.pop();
+                if (item instanceof String) {
+                    builder.append((String) item);
+                    continue;
+                }
+
+                Term term = (Term) item;
+                if (term.text != null) {
+                    builder.append(term.text);
+                    continue;
+                }
+
+                String separator = " " + term.operator + " ";
+                builder.append('(');
+                stack.push(")");
+                for (int i = term.operands.size() - 1; i >= 0; i--) {
+                    stack.push(term.operands.get(i));
+                    if (i > 0) {
+                        stack.push(separator);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = value << 8 | (bytes[offset + i] & 0xffL);
+        }
+        return value;
+    }
+
+    //MurmurHash3 x64 128, with a zero seed
+    static QueryFingerprint hash(byte[] bytes) {
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = bytes.length / 16;
+
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(bytes, i * 16);
+            long k2 = getLong(bytes, i * 16 + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        for (int i = bytes.length - tail - 1; i >= 8; i--) {
+            k2 ^= (bytes[tail + i] & 0xffL) << ((i - 8) * 8);
+        }
+        for (int i = Math.min(bytes.length - tail, 8) - 1; i >= 0; i--) {
+            k1 ^= (bytes[tail + i] & 0xffL) << (i * 8);
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= bytes.length;
+        h2 ^= bytes.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new QueryFingerprint(h1, h2);
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        QueryFingerprint that = (QueryFingerprint) o;
+
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
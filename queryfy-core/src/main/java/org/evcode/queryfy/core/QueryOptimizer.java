@@ -0,0 +1,445 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ComparisionOperatorType;
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.operator.Operator;
+import org.evcode.queryfy.core.parser.DeferredFunction;
+import org.evcode.queryfy.core.parser.Parameter;
+import org.evcode.queryfy.core.parser.ast.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Rewrites the filter of a parsed query into a simpler equivalent one: duplicated predicates are removed,
+ * equalities of a selector joined by OR become a single IN, the bounds of a selector joined by AND are narrowed
+ * to the tightest ones, and contradictions (eg. {@code a = 1 and a = 2}) become a filter that matches nothing.
+ * <p>
+ * A contradiction is represented as an IN over an empty list, which every backend already evaluates to false
+ * and can be checked with {@link #isContradiction(Node)} to skip the query entirely.
+ * <p>
+ * Merging predicates of a selector assumes it holds a single value, as a column does. Strings are never ordered
+ * or intersected, since backends compare them with their own collation.
+ */
+public final class QueryOptimizer {
+
+    //Operations are optimized before the node holding them
+    private static final NodeFolder<Node, Void> FOLDER = new NodeFolder<Node, Void>() {
+        @Override
+        public Node fold(FilterNode node, Void param) {
+            return node;
+        }
+
+        @Override
+        public Node fold(AndNode node, List<Node> operations, Void param) {
+            return optimizeAnd(node, operations);
+        }
+
+        @Override
+        public Node fold(OrNode node, List<Node> operations, Void param) {
+            return optimizeOr(node, operations);
+        }
+    };
+
+    private QueryOptimizer() {
+    }
+
+    public static List<Node> optimize(List<Node> nodes) {
+        List<Node> optimizedNodes = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            optimizedNodes.add(optimize(node));
+        }
+        return optimizedNodes;
+    }
+
+    public static Node optimize(Node node) {
+        if (node instanceof LogicalNode) {
+            return NodeTraversal.fold(node, FOLDER, null);
+        }
+        return node;
+    }
+
+    public static boolean isContradiction(Node node) {
+        return node instanceof FilterNode && ((FilterNode) node).getOperator() == ListOperatorType.IN &&
+                ((FilterNode) node).getArgs().isEmpty();
+    }
+
+    public static boolean isContradiction(List<Node> nodes) {
+        for (Node node : nodes) {
+            if (isContradiction(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Node optimizeAnd(AndNode node, List<Node> optimizedOperations) {
+        List<Object> operations = new ArrayList<>();
+        Map<String, List<FilterNode>> groups = new LinkedHashMap<>();
+
+        for (Node operation : flatten(node, optimizedOperations)) {
+            if (isContradiction(operation)) {
+                return operation;
+            }
+            add(operations, groups, operation, true);
+        }
+
+        Map<String, List<Node>> merged = new HashMap<>();
+        for (Map.Entry<String, List<FilterNode>> group : groups.entrySet()) {
+            List<Node> filters = intersect(group.getValue());
+            if (filters.size() == 1 && isContradiction(filters.get(0))) {
+                return filters.get(0);
+            }
+            merged.put(group.getKey(), filters);
+        }
+
+        return build(node, operations, merged);
+    }
+
+    private static Node optimizeOr(OrNode node, List<Node> optimizedOperations) {
+        List<Object> operations = new ArrayList<>();
+        Map<String, List<FilterNode>> groups = new LinkedHashMap<>();
+        Node contradiction = null;
+
+        for (Node operation : flatten(node, optimizedOperations)) {
+            if (isContradiction(operation)) {
+                contradiction = operation;
+            } else {
+                add(operations, groups, operation, false);
+            }
+        }
+
+        //Every operation of the chain was a contradiction
+        if (operations.isEmpty()) {
+            return contradiction;
+        }
+
+        Map<String, List<Node>> merged = new HashMap<>();
+        for (Map.Entry<String, List<FilterNode>> group : groups.entrySet()) {
+            merged.put(group.getKey(), unite(group.getValue()));
+        }
+
+        return build(node, operations, merged);
+    }
+
+    //Takes the operations of optimized operations of the same kind into the node
+    private static List<Node> flatten(LogicalNode node, List<Node> optimizedOperations) {
+        List<Node> operations = new ArrayList<>(optimizedOperations.size());
+        for (Node optimized : optimizedOperations) {
+            if (optimized.getClass() == node.getClass()) {
+                operations.addAll(((LogicalNode) optimized).getOperations());
+            } else {
+                operations.add(optimized);
+            }
+        }
+        return operations;
+    }
+
+    //Filters of a selector that can be merged are grouped, the group taking the place of its first filter
+    private static void add(List<Object> operations, Map<String, List<FilterNode>> groups, Node operation,
+                            boolean and) {
+        if (operations.contains(operation)) {
+            return;
+        }
+        if (!isMergeable(operation, and)) {
+            operations.add(operation);
+            return;
+        }
+
+        FilterNode filter = (FilterNode) operation;
+        List<FilterNode> group = groups.get(filter.getSelector());
+        if (group == null) {
+            group = new ArrayList<>();
+            groups.put(filter.getSelector(), group);
+            operations.add(filter.getSelector());
+        }
+        if (!group.contains(filter)) {
+            group.add(filter);
+        }
+    }
+
+    private static boolean isMergeable(Node operation, boolean and) {
+        if (!(operation instanceof FilterNode)) {
+            return false;
+        }
+
+        FilterNode filter = (FilterNode) operation;
+        Operator operator = filter.getOperator();
+        if (filter.getArgs().isEmpty() || valueType(filter) == null) {
+            return false;
+        }
+        return operator == ComparisionOperatorType.EQUAL || operator == ListOperatorType.IN ||
+                (and && (operator == ComparisionOperatorType.NOT_EQUAL || operator == ListOperatorType.NOT_IN)) ||
+                (isBound(operator) && isOrdered(filter.getArgs().get(0)));
+    }
+
+    private static List<Node> intersect(List<FilterNode> filters) {
+        if (filters.size() == 1 || !sameValueType(filters) || !isOrdered(filters.get(0).getArgs().get(0))) {
+            return new ArrayList<>(filters);
+        }
+
+        FilterNode lower = null;
+        FilterNode upper = null;
+        List<Object> values = null;
+        List<Object> excluded = new ArrayList<>();
+        List<Node> exclusions = new ArrayList<>();
+
+        for (FilterNode filter : filters) {
+            Operator operator = filter.getOperator();
+            if (operator == ComparisionOperatorType.EQUAL || operator == ListOperatorType.IN) {
+                values = values == null ? distinct(filter.getArgs()) : retain(values, filter.getArgs());
+            } else if (operator == ComparisionOperatorType.NOT_EQUAL || operator == ListOperatorType.NOT_IN) {
+                excluded.addAll(filter.getArgs());
+                exclusions.add(filter);
+            } else if (isLowerBound(operator)) {
+                lower = lower == null ? filter : pick(lower, filter, 1, true);
+            } else {
+                upper = upper == null ? filter : pick(upper, filter, -1, true);
+            }
+        }
+
+        if (values != null) {
+            for (Iterator<Object> it = values.iterator(); it.hasNext(); ) {
+                Object value = it.next();
+                if (!within(value, lower, upper) || indexOf(excluded, value) >= 0) {
+                    it.remove();
+                }
+            }
+            return Collections.singletonList(values(filters.get(0), values));
+        }
+
+        List<Node> merged = new ArrayList<>();
+        if (lower != null && upper != null) {
+            Object lowerValue = lower.getArgs().get(0);
+            int comparison = compare(lowerValue, upper.getArgs().get(0));
+            if (comparison > 0 || comparison == 0 && (isExclusive(lower) || isExclusive(upper))) {
+                return Collections.singletonList(contradiction(filters.get(0)));
+            }
+            if (comparison == 0) {
+                return Collections.singletonList(values(filters.get(0), indexOf(excluded, lowerValue) >= 0 ?
+                        Collections.emptyList() : Collections.singletonList(lowerValue)));
+            }
+        }
+
+        if (lower != null) {
+            merged.add(lower);
+        }
+        if (upper != null) {
+            merged.add(upper);
+        }
+        merged.addAll(exclusions);
+        return merged;
+    }
+
+    private static List<Node> unite(List<FilterNode> filters) {
+        if (filters.size() == 1 || !sameValueType(filters)) {
+            return new ArrayList<>(filters);
+        }
+
+        FilterNode lower = null;
+        FilterNode upper = null;
+        List<Object> values = new ArrayList<>();
+
+        for (FilterNode filter : filters) {
+            Operator operator = filter.getOperator();
+            if (operator == ComparisionOperatorType.EQUAL || operator == ListOperatorType.IN) {
+                for (Object value : filter.getArgs()) {
+                    if (!values.contains(value)) {
+                        values.add(value);
+                    }
+                }
+            } else if (isLowerBound(operator)) {
+                lower = lower == null ? filter : pick(lower, filter, -1, false);
+            } else {
+                upper = upper == null ? filter : pick(upper, filter, 1, false);
+            }
+        }
+
+        //Values already covered by a bound are dropped
+        if (lower != null || upper != null) {
+            for (Iterator<Object> it = values.iterator(); it.hasNext(); ) {
+                Object value = it.next();
+                if (lower != null && within(value, lower, null) || upper != null && within(value, null, upper)) {
+                    it.remove();
+                }
+            }
+        }
+
+        List<Node> merged = new ArrayList<>();
+        if (!values.isEmpty()) {
+            merged.add(values(filters.get(0), values));
+        }
+        if (lower != null) {
+            merged.add(lower);
+        }
+        if (upper != null) {
+            merged.add(upper);
+        }
+        return merged;
+    }
+
+    private static Node build(LogicalNode node, List<Object> operations, Map<String, List<Node>> merged) {
+        List<Node> optimized = new ArrayList<>(operations.size());
+        for (Object operation : operations) {
+            if (operation instanceof Node) {
+                optimized.add((Node) operation);
+            } else {
+                optimized.addAll(merged.get(operation));
+            }
+        }
+
+        if (optimized.size() == 1) {
+            return optimized.get(0);
+        }
+        if (optimized.equals(node.getOperations())) {
+            return node;
+        }
+        return node instanceof AndNode ? new AndNode(optimized) : new OrNode(optimized);
+    }
+
+    //The merged nodes are built from a filter of the group, so they keep its selector
+    private static FilterNode values(FilterNode filter, List<Object> values) {
+        if (values.isEmpty()) {
+            return contradiction(filter);
+        }
+        return values.size() == 1 ?
+                filter.withOperation(ComparisionOperatorType.EQUAL, Collections.singletonList(values.get(0))) :
+                filter.withOperation(ListOperatorType.IN, values);
+    }
+
+    private static FilterNode contradiction(FilterNode filter) {
+        return filter.withOperation(ListOperatorType.IN, Collections.emptyList());
+    }
+
+    //Picks the bound with the greatest (direction 1) or lowest (direction -1) value. On a tie, the exclusive bound
+    //is the tighter one and the inclusive bound the looser one
+    private static FilterNode pick(FilterNode bound, FilterNode other, int direction, boolean exclusive) {
+        int comparison = compare(other.getArgs().get(0), bound.getArgs().get(0)) * direction;
+        if (comparison > 0 || comparison == 0 && isExclusive(other) == exclusive && isExclusive(bound) != exclusive) {
+            return other;
+        }
+        return bound;
+    }
+
+    private static boolean within(Object value, FilterNode lower, FilterNode upper) {
+        if (lower != null) {
+            int comparison = compare(value, lower.getArgs().get(0));
+            if (comparison < 0 || comparison == 0 && isExclusive(lower)) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            int comparison = compare(value, upper.getArgs().get(0));
+            if (comparison > 0 || comparison == 0 && isExclusive(upper)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> distinct(List<Object> args) {
+        List<Object> values = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            if (indexOf(values, arg) < 0) {
+                values.add(arg);
+            }
+        }
+        return values;
+    }
+
+    private static List<Object> retain(List<Object> values, List<Object> args) {
+        values.removeIf(value -> indexOf(args, value) < 0);
+        return values;
+    }
+
+    //Ordered values are compared by their order, so 1.0 and 1.00 are the same value as they are for a backend
+    private static int indexOf(List<Object> values, Object value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (compare(values.get(i), value) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameValueType(List<FilterNode> filters) {
+        Class<?> type = valueType(filters.get(0));
+        for (FilterNode filter : filters) {
+            if (valueType(filter) != type) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //The single type of the values of a filter, or null when they have none (eg. unbound parameters or deferred calls)
+    private static Class<?> valueType(FilterNode filter) {
+        if (filter.getArgs() instanceof PrimitiveArgs) {
+            return ((PrimitiveArgs) filter.getArgs()).getType();
+        }
+
+        Class<?> type = null;
+        for (Object arg : filter.getArgs()) {
+            if (arg == null || arg instanceof Parameter || arg instanceof DeferredFunction ||
+                    type != null && arg.getClass() != type) {
+                return null;
+            }
+            type = arg.getClass();
+        }
+        return type;
+    }
+
+    //Values whose natural order is the order every backend uses
+    private static boolean isOrdered(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return !Double.isNaN(((Number) value).doubleValue());
+        }
+        return value instanceof Long || value instanceof Integer || value instanceof BigDecimal ||
+                value instanceof Boolean || value instanceof LocalDate || value instanceof LocalDateTime ||
+                value instanceof LocalTime;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object value, Object other) {
+        if (value instanceof Double || value instanceof Float) {
+            //-0.0 and 0.0 are the same value for a backend
+            double left = ((Number) value).doubleValue();
+            double right = ((Number) other).doubleValue();
+            return left < right ? -1 : left > right ? 1 : 0;
+        }
+        return ((Comparable<Object>) value).compareTo(other);
+    }
+
+    private static boolean isBound(Operator operator) {
+        return isLowerBound(operator) || operator == ComparisionOperatorType.LOWER ||
+                operator == ComparisionOperatorType.LOWER_EQUAL;
+    }
+
+    private static boolean isLowerBound(Operator operator) {
+        return operator == ComparisionOperatorType.GREATER || operator == ComparisionOperatorType.GREATER_EQUAL;
+    }
+
+    private static boolean isExclusive(FilterNode bound) {
+        return bound.getOperator() == ComparisionOperatorType.GREATER ||
+                bound.getOperator() == ComparisionOperatorType.LOWER;
+    }
+}
@@ -23,13 +23,27 @@ import java.util.stream.Collectors;
 public class DefaultGrammar implements Grammar {
 
     private final HashMap<Operator, Set<String>> operators = new HashMap<>();
+    private final HashMap<String, Operator> symbolTable = new HashMap<>();
 
     public DefaultGrammar() {
         initGrammarOperators();
     }
 
+    //Symbols are resolved through the symbol table, so ambiguous symbols are rejected when registered
     protected final void registerOperator(final Operator operator, final Set<String> symbols) {
-        operators.put(operator, symbols);
+        for (String symbol : symbols) {
+            Operator registeredOperator = symbolTable.get(symbol);
+            if (registeredOperator != null && registeredOperator != operator) {
+                throw new IllegalStateException(String.format("Multiple operators was defined for symbol '%s'", symbol));
+            }
+        }
+
+        Set<String> previousSymbols = operators.put(operator,
+                Collections.unmodifiableSet(new LinkedHashSet<>(symbols)));
+        if (previousSymbols != null) {
+            previousSymbols.forEach(symbolTable::remove);
+        }
+        symbols.forEach(symbol -> symbolTable.put(symbol, operator));
     }
 
     private Set<String> asSet(final String... values) {
@@ -77,19 +91,11 @@ public class DefaultGrammar implements Grammar {
 
     @Override
     public Operator getOperator(final String operator) {
-        List<Operator> matchedOperators = operators.entrySet().stream()
-                .filter(p -> p.getValue().contains(operator))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        if (matchedOperators.isEmpty()) {
+        Operator matchedOperator = symbolTable.get(operator);
+        if (matchedOperator == null) {
             throw new NoSuchElementException(String.format("Operator not found for symbol '%s'", operator));
         }
 
-        if (matchedOperators.size() > 1) {
-            throw new IllegalStateException(String.format("Multiple operators was defined for symbol '%s'", operator));
-        }
-
-        return matchedOperators.get(0);
+        return matchedOperator;
     }
 }
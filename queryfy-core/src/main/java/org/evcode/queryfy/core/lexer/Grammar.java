@@ -41,6 +41,14 @@ public interface Grammar {
         return "@";
     }
 
+    default String getPositionalParameter() {
+        return "?";
+    }
+
+    default String getNamedParameterPrefix() {
+        return ":";
+    }
+
     Set<String> getOperatorSymbols(Operator type);
 
     Operator getOperator(String operator);
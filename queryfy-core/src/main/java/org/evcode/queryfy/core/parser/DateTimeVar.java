@@ -18,62 +18,37 @@ package org.evcode.queryfy.core.parser;
 import org.parboiled.support.Var;
 
 import java.time.LocalDateTime;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.Temporal;
-import java.util.Objects;
+import java.time.ZoneId;
 
 class DateTimeVar extends Var<Object> {
 
-    private String year;
-    private String month;
-    private String dayOfMonth;
-    private String hour = "00";
-    private String minute = "00";
-    private String second = "00";
-    private String nanosecond;
-    private String zoneId;
-    private String zoneOffset;
+    private int year;
+    private int month;
+    private int dayOfMonth;
+    private int hour;
+    private int minute;
+    private int second;
+    private int nanosecond;
+    private int zoneOffset = TemporalLiterals.NO_OFFSET;
+    private ZoneId zoneId;
 
     public void build() {
+        LocalDateTime dateTime = LocalDateTime.of(year, month, dayOfMonth, hour, minute, second, nanosecond);
+        set(TemporalLiterals.dateTime(dateTime, zoneOffset, zoneId));
+    }
 
-        Objects.requireNonNull(year);
-        Objects.requireNonNull(month);
-        Objects.requireNonNull(dayOfMonth);
-        Objects.requireNonNull(hour);
-        Objects.requireNonNull(minute);
-
-        StringBuilder dateString = new StringBuilder();
-        dateString.append(year);
-        dateString.append("-");
-        dateString.append(month);
-        dateString.append("-");
-        dateString.append(dayOfMonth);
-        dateString.append("T");
-        dateString.append(hour);
-        dateString.append(":");
-        dateString.append(minute);
-        dateString.append(":");
-        dateString.append(second);
-
-        if (nanosecond != null) {
-            dateString.append(".").append(nanosecond);
-        }
-
-        if (zoneOffset != null) {
-            dateString.append(zoneOffset);
-        }
-
-        if (zoneId != null) {
-            dateString.append(zoneId.trim());
-        }
-
-        boolean isZonedDateTime = zoneOffset != null || zoneId != null;
-        Temporal dateTime = isZonedDateTime ?
-                ZonedDateTime.parse(dateString.toString(), DateTimeFormatter.ISO_ZONED_DATE_TIME)
-                : LocalDateTime.parse(dateString.toString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-        set(dateTime);
+    @Override
+    public boolean enterFrame() {
+        this.year = 0;
+        this.month = 0;
+        this.dayOfMonth = 0;
+        this.hour = 0;
+        this.minute = 0;
+        this.second = 0;
+        this.nanosecond = 0;
+        this.zoneOffset = TemporalLiterals.NO_OFFSET;
+        this.zoneId = null;
+        return super.enterFrame();
     }
 
     @Override
@@ -85,47 +60,47 @@ class DateTimeVar extends Var<Object> {
     }
 
     public boolean appendYear(String year) {
-        this.year = year;
+        this.year = TemporalLiterals.number(year, 0, year.length());
         return true;
     }
 
     public boolean appendMonth(String month) {
-        this.month = month;
+        this.month = TemporalLiterals.number(month, 0, month.length());
         return true;
     }
 
     public boolean appendDay(String day) {
-        this.dayOfMonth = day;
+        this.dayOfMonth = TemporalLiterals.number(day, 0, day.length());
         return true;
     }
 
     public boolean appendHour(String hours) {
-        this.hour = hours;
+        this.hour = TemporalLiterals.number(hours, 0, hours.length());
         return true;
     }
 
     public boolean appendMinute(String minutes) {
-        this.minute = minutes;
+        this.minute = TemporalLiterals.number(minutes, 0, minutes.length());
         return true;
     }
 
     public boolean appendSecond(String seconds) {
-        this.second = seconds;
+        this.second = TemporalLiterals.number(seconds, 0, seconds.length());
         return true;
     }
 
     public boolean appendNanosecond(String nanoseconds) {
-        this.nanosecond = nanoseconds;
+        this.nanosecond = TemporalLiterals.nanos(nanoseconds, 0, nanoseconds.length());
         return true;
     }
 
     public boolean appendZoneOffset(String zoneOffset) {
-        this.zoneOffset = zoneOffset;
+        this.zoneOffset = TemporalLiterals.dateTimeOffsetSeconds(zoneOffset, 0, zoneOffset.length());
         return true;
     }
 
     public boolean appendZoneId(String zoneId) {
-        this.zoneId = zoneId;
+        this.zoneId = TemporalLiterals.zone(zoneId);
         return true;
     }
-}
\ No newline at end of file
+}
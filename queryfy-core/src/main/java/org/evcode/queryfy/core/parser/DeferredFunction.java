@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.evcode.queryfy.core.parser.functions.FunctionHandles;
+import org.evcode.queryfy.core.parser.functions.FunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.ResolvedCall;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A function call left in the filter arguments to be evaluated on each execution, so a parsed query holding
+ * time dependent values like @today() can be cached and reused. Its arguments are values or other deferred calls.
+ * Calls are validated and resolved when parsed, and resolved again only when their argument types change.
+ */
+public final class DeferredFunction {
+
+    private final String function;
+    private final Object[] arguments;
+    private final FunctionInvoker invoker;
+    private final FunctionDeterminism determinism;
+    private volatile Resolution resolution;
+
+    DeferredFunction(String function, Object[] arguments, FunctionInvoker invoker,
+                     FunctionDeterminism determinism, Object[] values, ResolvedCall call) {
+        this.function = function;
+        this.arguments = arguments;
+        this.invoker = invoker;
+        this.determinism = determinism;
+        this.resolution = call != null ? new Resolution(call.getHandle(), values) : resolve(values);
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public Object[] getArguments() {
+        return arguments.clone();
+    }
+
+    public FunctionDeterminism getDeterminism() {
+        return determinism;
+    }
+
+    public Object evaluate() {
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i] instanceof DeferredFunction ?
+                    ((DeferredFunction) arguments[i]).evaluate() : arguments[i];
+        }
+
+        Resolution current = resolution;
+        if (!current.matches(values)) {
+            current = resolve(values);
+            resolution = current;
+        }
+        return FunctionHandles.invoke(current.handle, values);
+    }
+
+    //Calls are validated without invoking them, so functions only run when evaluated. Invokers that don't resolve
+    //the calls they handle are invoked through FunctionInvoker.invoke
+    private Resolution resolve(Object[] values) {
+        MethodHandle handle = invoker.resolve(function, values);
+        if (handle == null) {
+            if (!invoker.canHandle(function, values)) {
+                throw new IllegalArgumentException(String.format(
+                        "Custom function %s with %s argument(s) is not supported", function, values.length));
+            }
+            handle = FunctionHandles.invoker(invoker, function);
+        }
+        return new Resolution(handle, values);
+    }
+
+    @Override
+    public String toString() {
+        return "@" + function + Arrays.stream(arguments).map(String::valueOf)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static final class Resolution {
+
+        private final MethodHandle handle;
+        private final Class<?>[] types;
+
+        private Resolution(MethodHandle handle, Object[] values) {
+            this.handle = handle;
+            this.types = new Class<?>[values.length];
+            for (int i = 0; i < values.length; i++) {
+                types[i] = values[i] != null ? values[i].getClass() : null;
+            }
+        }
+
+        private boolean matches(Object[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if ((values[i] != null ? values[i].getClass() : null) != types[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,1102 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.operator.*;
+import org.evcode.queryfy.core.parser.ast.*;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Hand-written implementation of the {@link QueryParser} grammar. Every rule mirrors its parboiled
+ * counterpart (same alternatives, same order), but the common prefix of alternatives is matched only
+ * once and no parse context is allocated while matching. Instances are not thread-safe.
+ */
+public final class DescentQueryParser {
+
+    //Expectations are kept as codes, a character or one of these named rules, so recording them doesn't allocate
+    private static final String[] RULE_NAMES = {"EOI", "WS", "Digit", "Selector", "String", "NumericTypeQualifier",
+            "Escape", "HexDigit"};
+    private static final int END_OF_INPUT = -1;
+    private static final int WS = -2;
+    private static final int DIGIT = -3;
+    private static final int SELECTOR = -4;
+    private static final int STRING = -5;
+    private static final int NUMERIC_TYPE_QUALIFIER = -6;
+    private static final int ESCAPE = -7;
+    private static final int HEX_DIGIT = -8;
+
+    private final ParserConfig config;
+    private final GrammarSymbols symbols;
+    private final String argsSeparator;
+    private final String functionPrefix;
+    private final String trueValue;
+    private final String falseValue;
+    private final String positionalParameter;
+    private final String namedParameterPrefix;
+    private final QueryLimits limits;
+
+    private String input;
+    private int length;
+    private int index;
+    private int errorIndex;
+    private int[] expected = new int[8];
+    private int expectedCount;
+    private FunctionDeterminism functionDeterminism = FunctionDeterminism.DETERMINISTIC;
+    private boolean parameters;
+    private int predicates;
+    private int depth;
+    private int functionDepth;
+
+    public DescentQueryParser(ParserConfig config) {
+        this.config = config;
+        this.symbols = config.getSymbols();
+        this.argsSeparator = config.getGrammar().getArgsSeparator();
+        this.functionPrefix = config.getGrammar().getCustomFunctionPrefix();
+        this.trueValue = config.getGrammar().getTrueValue();
+        this.falseValue = config.getGrammar().getFalseValue();
+        this.positionalParameter = config.getGrammar().getPositionalParameter();
+        this.namedParameterPrefix = config.getGrammar().getNamedParameterPrefix();
+        this.limits = config.getLimits();
+    }
+
+    public List<Node> parse(String query) {
+        this.input = query;
+        this.length = query.length();
+        this.index = 0;
+        this.errorIndex = 0;
+        this.expectedCount = 0;
+        this.functionDeterminism = FunctionDeterminism.DETERMINISTIC;
+        this.parameters = false;
+        this.predicates = 0;
+        this.depth = 0;
+        this.functionDepth = 0;
+        limits.checkInputLength(query);
+
+        List<Node> nodes = new ArrayList<>(4);
+        try {
+            query(nodes);
+        } catch (QueryLimitExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            //A value that can't be built (eg. 2017-13-45) is reported where it ends, as the parboiled actions are
+            throw new IllegalArgumentException("Invalid query: " + errorMessage(e.getMessage(), index), e);
+        }
+
+        if (index != length) {
+            mismatch(END_OF_INPUT);
+            throw new IllegalArgumentException("Invalid query: " + errorMessage(syntaxError(), errorIndex));
+        }
+
+        //Same order as the parboiled value stack, which is iterated from the top
+        Collections.reverse(nodes);
+        return nodes;
+    }
+
+    //Query structure
+    private void query(List<Node> nodes) {
+        int mark = index;
+        ProjectionNode projection = null;
+        if (symbol(QueryOperatorType.SELECT) && ws()) {
+            projection = projectionSelectors();
+        }
+
+        if (projection != null) {
+            nodes.add(projection);
+            if (!where()) {
+                Node clause = order();
+                if (clause == null) {
+                    clause = limit();
+                }
+                if (clause != null) {
+                    nodes.add(clause);
+                }
+            }
+        } else {
+            index = mark;
+        }
+
+        Node filter = orOperation();
+        if (filter != null) {
+            nodes.add(filter);
+        }
+
+        mark = index;
+        optionalWs();
+        OrderNode order = order();
+        if (order != null) {
+            nodes.add(order);
+            LimitNode limit = limit();
+            if (limit != null) {
+                nodes.add(limit);
+            }
+        } else {
+            index = mark;
+        }
+
+        mark = index;
+        optionalWs();
+        LimitNode limit = limit();
+        if (limit != null) {
+            nodes.add(limit);
+        } else {
+            index = mark;
+        }
+    }
+
+    private ProjectionNode projectionSelectors() {
+        String selector = qualifiedSelector();
+        if (selector == null) {
+            return null;
+        }
+
+        Set<String> selectors = new HashSet<>();
+        selectors.add(selector);
+
+        while (true) {
+            int mark = index;
+            optionalWs();
+            if (literal(argsSeparator)) {
+                optionalWs();
+                selector = qualifiedSelector();
+                if (selector != null) {
+                    selectors.add(selector);
+                    continue;
+                }
+            }
+            index = mark;
+            break;
+        }
+
+        return new ProjectionNode(selectors);
+    }
+
+    private boolean where() {
+        int mark = index;
+        optionalWs();
+        if (symbol(QueryOperatorType.WHERE) && ws()) {
+            return true;
+        }
+        index = mark;
+        return false;
+    }
+
+    private LimitNode limit() {
+        int mark = index;
+        if (symbol(QueryOperatorType.LIMIT) && ws()) {
+            int offsetStart = index;
+            if (integer()) {
+                int offsetEnd = index;
+                optionalWs();
+                if (literal(argsSeparator)) {
+                    optionalWs();
+                    int limitStart = index;
+                    if (integer()) {
+                        Long limit = Long.parseLong(input.substring(limitStart, index));
+                        Long offset = Long.parseLong(input.substring(offsetStart, offsetEnd));
+                        return new LimitNode(offset, limit);
+                    }
+                }
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private OrderNode order() {
+        int mark = index;
+        if (!symbol(QueryOperatorType.ORDER) || !ws()) {
+            index = mark;
+            return null;
+        }
+
+        OrderNode.OrderSpecifier specifier = orderSpecifier();
+        if (specifier == null) {
+            index = mark;
+            return null;
+        }
+
+        LinkedList<OrderNode.OrderSpecifier> specifiers = new LinkedList<>();
+        specifiers.add(specifier);
+
+        while (true) {
+            int itemMark = index;
+            optionalWs();
+            if (literal(argsSeparator)) {
+                optionalWs();
+                specifier = orderSpecifier();
+                if (specifier != null) {
+                    specifiers.add(specifier);
+                    continue;
+                }
+            }
+            index = itemMark;
+            break;
+        }
+
+        return new OrderNode(specifiers);
+    }
+
+    private OrderNode.OrderSpecifier orderSpecifier() {
+        String selector = qualifiedSelector();
+        if (selector == null) {
+            return null;
+        }
+
+        OrderOperatorType operator = OrderOperatorType.ASC;
+        int mark = index;
+        if (ws()) {
+            if (symbol(OrderOperatorType.ASC)) {
+                operator = OrderOperatorType.ASC;
+            } else if (symbol(OrderOperatorType.DESC)) {
+                operator = OrderOperatorType.DESC;
+            } else {
+                index = mark;
+            }
+        }
+
+        return new OrderNode.OrderSpecifier(selector, operator);
+    }
+
+    //Logical operations
+    private Node orOperation() {
+        Node left = andOperation();
+        if (left == null) {
+            return null;
+        }
+
+        LogicalChain chain = null;
+        while (true) {
+            int mark = index;
+            if (ws() && symbol(LogicalOperatorType.OR) && ws()) {
+                Node right = andOperation();
+                if (right != null) {
+                    chain = (chain != null ? chain : new LogicalChain(LogicalOperatorType.OR, left)).add(right);
+                    continue;
+                }
+            }
+            index = mark;
+            return chain != null ? chain.build() : left;
+        }
+    }
+
+    private Node andOperation() {
+        Node left = logicalOperation();
+        if (left == null) {
+            return null;
+        }
+
+        LogicalChain chain = null;
+        while (true) {
+            int mark = index;
+            if (ws() && symbol(LogicalOperatorType.AND) && ws()) {
+                Node right = logicalOperation();
+                if (right != null) {
+                    chain = (chain != null ? chain : new LogicalChain(LogicalOperatorType.AND, left)).add(right);
+                    continue;
+                }
+            }
+            index = mark;
+            return chain != null ? chain.build() : left;
+        }
+    }
+
+    private Node logicalOperation() {
+        int mark = index;
+        if (ch('(')) {
+            limits.checkNestingDepth(++depth);
+            optionalWs();
+            Node node = orOperation();
+            depth--;
+            if (node != null) {
+                optionalWs();
+                if (ch(')')) {
+                    return node;
+                }
+            }
+            index = mark;
+        }
+        return operations();
+    }
+
+    //Operations, all of them starting with the same selector
+    private FilterNode operations() {
+        int mark = index;
+        String selector = qualifiedSelector();
+        if (selector == null) {
+            return null;
+        }
+
+        FilterNode node = equalOperation(selector);
+        if (node == null) {
+            node = comparisionOperation(selector);
+        }
+        if (node == null) {
+            node = selectorOperation(selector);
+        }
+        if (node == null) {
+            node = likeOperation(selector);
+        }
+        if (node == null) {
+            node = inOperation(selector);
+        }
+        if (node == null) {
+            index = mark;
+        } else {
+            limits.checkPredicates(++predicates);
+        }
+        return node;
+    }
+
+    private FilterNode equalOperation(String selector) {
+        int mark = index;
+        optionalWs();
+        Operator operator = firstSymbol(ComparisionOperatorType.EQUAL, ComparisionOperatorType.NOT_EQUAL);
+        if (operator != null) {
+            optionalWs();
+            Object value = booleanValue();
+            if (value == null) {
+                value = operand();
+            }
+            if (value != null) {
+                return filter(operator, selector, value);
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private FilterNode comparisionOperation(String selector) {
+        int mark = index;
+        optionalWs();
+        Operator operator = firstSymbol(ComparisionOperatorType.LOWER_EQUAL, ComparisionOperatorType.LOWER,
+                ComparisionOperatorType.GREATER_EQUAL, ComparisionOperatorType.GREATER);
+        if (operator != null) {
+            optionalWs();
+            Object value = operand();
+            if (value != null) {
+                return filter(operator, selector, value);
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private FilterNode selectorOperation(String selector) {
+        int mark = index;
+        if (ws()) {
+            Operator operator = firstSymbol(SelectorOperatorType.IS_NOT_NULL, SelectorOperatorType.IS_NULL,
+                    SelectorOperatorType.IS_TRUE, SelectorOperatorType.IS_FALSE,
+                    SelectorOperatorType.IS_NOT_EMPTY, SelectorOperatorType.IS_EMPTY);
+            if (operator != null) {
+                return filterNode(operator, selector, Collections.emptyList());
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private FilterNode likeOperation(String selector) {
+        int mark = index;
+        if (ws()) {
+            Operator operator = firstSymbol(StringOperatorType.NOT_LIKE, StringOperatorType.LIKE);
+            if (operator != null && ws()) {
+                Object value = string();
+                if (value == null) {
+                    value = customFunction();
+                }
+                if (value == null) {
+                    value = placeholder();
+                }
+                if (value != null) {
+                    return filter(operator, selector, value);
+                }
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private FilterNode inOperation(String selector) {
+        int mark = index;
+        if (ws()) {
+            Operator operator = firstSymbol(ListOperatorType.NOT_IN, ListOperatorType.IN);
+            if (operator != null) {
+                optionalWs();
+                if (ch('(')) {
+                    limits.checkNestingDepth(++depth);
+                    optionalWs();
+                    ListVar<Object> list = new ListVar<>();
+                    boolean matched = arguments(list);
+                    depth--;
+                    if (matched) {
+                        optionalWs();
+                        if (ch(')')) {
+                            List<Object> values = new ArrayList<>(list.get().size());
+                            for (Object value : list.get()) {
+                                values.add(parseValue(value));
+                            }
+                            return filterNode(operator, selector, values);
+                        }
+                    }
+                }
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private boolean arguments(ListVar<Object> list) {
+        Object value = operand();
+        if (value == null) {
+            return false;
+        }
+        list.add(value);
+        limits.checkInListSize(1);
+
+        while (true) {
+            int mark = index;
+            optionalWs();
+            if (literal(argsSeparator)) {
+                optionalWs();
+                value = operand();
+                if (value != null) {
+                    list.add(value);
+                    limits.checkInListSize(list.get().size());
+                    continue;
+                }
+            }
+            index = mark;
+            return true;
+        }
+    }
+
+    private FilterNode filter(Operator operator, String selector, Object value) {
+        return filterNode(operator, selector, Collections.singletonList(parseValue(value)));
+    }
+
+    //Nodes keep the symbol index of their selector, so the backends don't look it up again
+    private FilterNode filterNode(Operator operator, String selector, List<Object> args) {
+        SymbolTable symbolTable = config.getSymbolTable();
+        return new FilterNode(operator, selector, args, symbolTable, symbolTable.indexOf(selector));
+    }
+
+    //The determinism of all the function calls resolved by the last parse, DETERMINISTIC when there were none
+    public FunctionDeterminism getFunctionDeterminism() {
+        return functionDeterminism;
+    }
+
+    public boolean hasParameters() {
+        return parameters;
+    }
+
+    private Object parseValue(Object value) {
+        if (value instanceof FunctionNode) {
+            FunctionNode function = (FunctionNode) value;
+            //Deferred calls aren't frozen in the tree, so they don't keep it from being reused
+            if (config.isDeferredFunctions()) {
+                return function.defer(config.getFunctionInvoker());
+            }
+            Object result = function.invoke(config.getFunctionInvoker());
+            functionDeterminism = functionDeterminism.combine(function.getDeterminism());
+            return result;
+        }
+
+        return value;
+    }
+
+    //Values
+    private Object booleanValue() {
+        if (literal(trueValue)) {
+            return Boolean.TRUE;
+        }
+        if (literal(falseValue)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    //Placeholders are only allowed as operation values, never as function arguments
+    private Object operand() {
+        Object value = value();
+        if (value == null) {
+            value = placeholder();
+        }
+        return value;
+    }
+
+    private Parameter placeholder() {
+        int mark = index;
+        if (literal(positionalParameter)) {
+            parameters = true;
+            return Parameter.positional();
+        }
+        if (literal(namedParameterPrefix)) {
+            String name = qualifiedSelector();
+            if (name != null) {
+                parameters = true;
+                return Parameter.named(name);
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private Object value() {
+        Object value = temporal();
+        if (value == null) {
+            value = numeric();
+        }
+        if (value == null) {
+            value = string();
+        }
+        if (value == null) {
+            value = customFunction();
+        }
+        return value;
+    }
+
+    private Object temporal() {
+        if (!isDigit(index)) {
+            mismatch(DIGIT);
+            return null;
+        }
+
+        //DateTime and Date share the same date part, so it's matched only once
+        if (isDigit(index + 1) && isDigit(index + 2) && isDigit(index + 3) && charAt(index + 4) == '-') {
+            int mark = index;
+            index += 5;
+            if (twoDigits() && ch('-') && twoDigits()) {
+                int dateEnd = index;
+                Object dateTime = dateTime(mark);
+                if (dateTime != null) {
+                    return dateTime;
+                }
+                index = dateEnd;
+
+                return LocalDate.of(number(mark, 4), number(mark + 5, 2), number(mark + 8, 2));
+            }
+            index = mark;
+        }
+
+        return time();
+    }
+
+    private Object dateTime(int start) {
+        if (!ch('T')) {
+            return null;
+        }
+
+        int hourStart = index;
+        if (!(twoDigits() && ch(':') && twoDigits())) {
+            return null;
+        }
+
+        int second = seconds();
+        int nanosecond = fraction();
+        int zoneOffset = zoneOffset(false);
+
+        ZoneId zone = null;
+        int mark = index;
+        optionalWs();
+        String zoneId = zoneId();
+        if (zoneId != null) {
+            zone = TemporalLiterals.zone(zoneId);
+        } else {
+            index = mark;
+        }
+
+        LocalDateTime dateTime = LocalDateTime.of(number(start, 4), number(start + 5, 2), number(start + 8, 2),
+                number(hourStart, 2), number(hourStart + 3, 2), second, nanosecond);
+        return TemporalLiterals.dateTime(dateTime, zoneOffset, zone);
+    }
+
+    private Object time() {
+        int mark = index;
+        if (!(twoDigits() && ch(':') && twoDigits())) {
+            index = mark;
+            return null;
+        }
+
+        int second = seconds();
+        int nanosecond = fraction();
+        //The offset is validated, but a LocalTime is built from the local part only
+        zoneOffset(true);
+        return LocalTime.of(number(mark, 2), number(mark + 3, 2), second, nanosecond);
+    }
+
+    private int offsetSeconds(int start, boolean time) {
+        return time ? TemporalLiterals.timeOffsetSeconds(input, start, index) :
+                TemporalLiterals.dateTimeOffsetSeconds(input, start, index);
+    }
+
+    private int number(int start, int digits) {
+        return TemporalLiterals.number(input, start, start + digits);
+    }
+
+    private int seconds() {
+        int mark = index;
+        if (ch(':') && twoDigits()) {
+            return number(mark + 1, 2);
+        }
+        index = mark;
+        return 0;
+    }
+
+    private int fraction() {
+        int mark = index;
+        if ((ch(',') || ch('.')) && digits(3)) {
+            return TemporalLiterals.nanos(input, mark + 1, index);
+        }
+        index = mark;
+        return 0;
+    }
+
+    private int zoneOffset(boolean time) {
+        int start = index;
+        if (ch('Z') || ch('z')) {
+            return offsetSeconds(start, time);
+        }
+
+        if (!(ch('-') || ch('+'))) {
+            return TemporalLiterals.NO_OFFSET;
+        }
+
+        int mark = index;
+        if (twoDigits()) {
+            mark = index;
+            ch(':');
+            if (twoDigits()) {
+                mark = index;
+                if (!(ch(':') && twoDigits())) {
+                    index = mark;
+                }
+            } else {
+                index = mark;
+            }
+            return offsetSeconds(start, time);
+        }
+
+        if (digits(1)) {
+            return offsetSeconds(start, time);
+        }
+
+        index = start;
+        return TemporalLiterals.NO_OFFSET;
+    }
+
+    private String zoneId() {
+        int start = index;
+        if (!ch('[')) {
+            return null;
+        }
+        while (index < length) {
+            char c = input.charAt(index);
+            if (c == ']') {
+                index++;
+                return input.substring(start, index);
+            }
+            if (c == '\r' || c == '\n' || c == '"' || c == '\\' || c == '[') {
+                break;
+            }
+            index++;
+        }
+        mismatch(']');
+        index = start;
+        return null;
+    }
+
+    private Object numeric() {
+        int start = index;
+        if (ch('-')) {
+            optionalWs();
+        }
+
+        if (!integer()) {
+            index = start;
+            return null;
+        }
+
+        int mark = index;
+        if (!(ch('.') && integer())) {
+            index = mark;
+        }
+
+        int end = index;
+        char qualifier = charAt(index);
+        if (isTypeQualifier(qualifier)) {
+            index++;
+        } else {
+            qualifier = 0;
+            mismatch(NUMERIC_TYPE_QUALIFIER);
+        }
+
+        return NumberLiteral.decode(input, start, end, qualifier);
+    }
+
+    private String string() {
+        char quote = charAt(index);
+        if (quote != '\'' && quote != '"') {
+            mismatch(STRING);
+            return null;
+        }
+
+        int start = index++;
+        int runStart = index;
+        StringBuilder value = null;
+
+        while (index < length) {
+            char c = input.charAt(index);
+
+            if (c == quote) {
+                String result = value == null ?
+                        input.substring(runStart, index) :
+                        value.append(input, runStart, index).toString();
+                index++;
+                return result;
+            }
+
+            if (c == '\\') {
+                int escapeEnd = escapeEnd(index + 1);
+                if (escapeEnd < 0) {
+                    break;
+                }
+                if (value == null) {
+                    value = new StringBuilder(index - runStart + 16);
+                }
+                //The escaped text is kept without the leading backslash, as the parboiled grammar does
+                value.append(input, runStart, index).append(input, index + 1, escapeEnd);
+                index = escapeEnd;
+                runStart = index;
+                continue;
+            }
+
+            if (c == '\r' || c == '\n') {
+                break;
+            }
+            index++;
+        }
+
+        mismatch(quote);
+        index = start;
+        return null;
+    }
+
+    private int escapeEnd(int position) {
+        char c = charAt(position);
+        if ("btnfr\"'\\".indexOf(c) >= 0) {
+            return position + 1;
+        }
+
+        if (c >= '0' && c <= '7') {
+            if (c <= '3' && isOctal(position + 1) && isOctal(position + 2)) {
+                return position + 3;
+            }
+            return isOctal(position + 1) ? position + 2 : position + 1;
+        }
+
+        if (c == 'u') {
+            int end = position;
+            while (charAt(end) == 'u') {
+                end++;
+            }
+            for (int i = 0; i < 4; i++) {
+                if (!isHexDigit(end + i)) {
+                    mismatch(end + i, HEX_DIGIT);
+                    return -1;
+                }
+            }
+            return end + 4;
+        }
+
+        mismatch(position, ESCAPE);
+        return -1;
+    }
+
+    private FunctionNode customFunction() {
+        int mark = index;
+        if (literal(functionPrefix)) {
+            String function = qualifiedSelector();
+            if (function != null) {
+                optionalWs();
+                if (ch('(')) {
+                    limits.checkNestingDepth(++depth);
+                    limits.checkFunctionDepth(++functionDepth);
+                    optionalWs();
+                    List<Object> arguments = functionArguments();
+                    depth--;
+                    functionDepth--;
+                    optionalWs();
+                    if (ch(')')) {
+                        return new FunctionNode(function, arguments != null ? arguments.toArray() : new Object[]{});
+                    }
+                }
+            }
+        }
+        index = mark;
+        return null;
+    }
+
+    private List<Object> functionArguments() {
+        Object value = value();
+        if (value == null) {
+            return null;
+        }
+
+        List<Object> arguments = new ArrayList<>(4);
+        arguments.add(value);
+
+        while (true) {
+            int mark = index;
+            optionalWs();
+            if (literal(argsSeparator)) {
+                optionalWs();
+                value = value();
+                if (value != null) {
+                    arguments.add(value);
+                    continue;
+                }
+            }
+            index = mark;
+            return arguments;
+        }
+    }
+
+    private String qualifiedSelector() {
+        int start = index;
+        if (!selectorPattern()) {
+            return null;
+        }
+
+        //A dot is only part of the selector when another selector part follows it, as in SelectorMatcher
+        while (charAt(index) == '.' && SelectorMatcher.isSelectorChar(charAt(index + 1))) {
+            index++;
+            selectorPattern();
+        }
+
+        String symbol = config.getSymbolTable().lookup(input, start, index);
+        return symbol != null ? symbol : input.substring(start, index);
+    }
+
+    private boolean selectorPattern() {
+        int start = index;
+        while (index < length && SelectorMatcher.isSelectorChar(input.charAt(index))) {
+            index++;
+        }
+        if (index == start) {
+            mismatch(SELECTOR);
+            return false;
+        }
+        return true;
+    }
+
+    //Terminals
+    private static final char EOI = '\uFFFF';
+
+    private char charAt(int position) {
+        return position < length ? input.charAt(position) : EOI;
+    }
+
+    private boolean isDigit(int position) {
+        char c = charAt(position);
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isOctal(int position) {
+        char c = charAt(position);
+        return c >= '0' && c <= '7';
+    }
+
+    private boolean isHexDigit(int position) {
+        char c = charAt(position);
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isTypeQualifier(char c) {
+        switch (c) {
+            case 'f':
+            case 'F':
+            case 'l':
+            case 'L':
+            case 'i':
+            case 'I':
+            case 'd':
+            case 'D':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean ch(char c) {
+        if (index < length && input.charAt(index) == c) {
+            index++;
+            return true;
+        }
+        mismatch(c);
+        return false;
+    }
+
+    private boolean ws() {
+        if (charAt(index) != ' ') {
+            mismatch(WS);
+            return false;
+        }
+        index++;
+        optionalWs();
+        return true;
+    }
+
+    private void optionalWs() {
+        while (index < length && input.charAt(index) == ' ') {
+            index++;
+        }
+        mismatch(' ');
+    }
+
+    private boolean integer() {
+        int start = index;
+        while (isDigit(index)) {
+            index++;
+        }
+        mismatch(DIGIT);
+        return index != start;
+    }
+
+    private boolean twoDigits() {
+        return digits(2);
+    }
+
+    private boolean digits(int count) {
+        for (int i = 0; i < count; i++) {
+            if (!isDigit(index + i)) {
+                mismatch(index + i, DIGIT);
+                return false;
+            }
+        }
+        index += count;
+        return true;
+    }
+
+    private boolean literal(String value) {
+        int valueLength = value.length();
+        for (int i = 0; i < valueLength; i++) {
+            if (charAt(index + i) != value.charAt(i)) {
+                mismatch(index + i, value.charAt(i));
+                return false;
+            }
+        }
+        index += valueLength;
+        return true;
+    }
+
+    private boolean symbol(Operator operator) {
+        for (String symbol : symbols.get(operator)) {
+            if (literal(symbol)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Operator firstSymbol(Operator... operators) {
+        for (Operator operator : operators) {
+            if (symbol(operator)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    //Error reporting, the alternatives expected at the furthest failure are reported as the parboiled ones are
+    private void mismatch(int expectation) {
+        mismatch(index, expectation);
+    }
+
+    private void mismatch(int position, int expectation) {
+        if (position < errorIndex) {
+            return;
+        }
+        if (position > errorIndex) {
+            errorIndex = position;
+            expectedCount = 0;
+        }
+        for (int i = 0; i < expectedCount; i++) {
+            if (expected[i] == expectation) {
+                return;
+            }
+        }
+        if (expectedCount == expected.length) {
+            expected = Arrays.copyOf(expected, expectedCount * 2);
+        }
+        expected[expectedCount++] = expectation;
+    }
+
+    private String syntaxError() {
+        StringBuilder message = new StringBuilder(errorIndex < length ?
+                "Invalid input " + quoted(input.charAt(errorIndex)) :
+                "Unexpected end of input");
+        for (int i = 0; i < expectedCount; i++) {
+            message.append(i == 0 ? ", expected " : i == expectedCount - 1 ? " or " : ", ");
+            int expectation = expected[i];
+            message.append(expectation < 0 ? RULE_NAMES[-expectation - 1] : quoted((char) expectation));
+        }
+        return message.toString();
+    }
+
+    //Control characters are escaped, as in the parboiled messages
+    private static String quoted(char c) {
+        switch (c) {
+            case '\n':
+                return "'\\n'";
+            case '\r':
+                return "'\\r'";
+            case '\t':
+                return "'\\t'";
+            default:
+                return "'" + c + "'";
+        }
+    }
+
+    private String errorMessage(String description, int position) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < position && i < length; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+
+        int lineEnd = input.indexOf('\n', lineStart);
+        String lineText = input.substring(lineStart, lineEnd < 0 ? length : lineEnd);
+        int column = position - lineStart + 1;
+
+        StringBuilder message = new StringBuilder(description);
+        message.append(" (line ").append(line).append(", pos ").append(column).append("):\n");
+        message.append(lineText).append('\n');
+        for (int i = 1; i < column; i++) {
+            message.append(' ');
+        }
+        return message.append("^\n").toString();
+    }
+}
@@ -15,6 +15,10 @@
  */
 package org.evcode.queryfy.core.parser;
 
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.evcode.queryfy.core.parser.functions.FunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.ResolvedCall;
+
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -22,6 +26,7 @@ class FunctionNode {
 
     private final String function;
     private final Object[] arguments;
+    private FunctionDeterminism determinism = FunctionDeterminism.DETERMINISTIC;
 
     public FunctionNode(String function, Object... arguments) {
         this.function = function;
@@ -36,6 +41,61 @@ class FunctionNode {
         return function;
     }
 
+    //The determinism of the last invocation, combined with the one of its nested calls
+    public FunctionDeterminism getDeterminism() {
+        return determinism;
+    }
+
+    public Object invoke(FunctionInvoker invoker) {
+        Objects.requireNonNull(invoker);
+
+        FunctionDeterminism determinism = FunctionDeterminism.DETERMINISTIC;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof FunctionNode) {
+                FunctionNode argument = (FunctionNode) arguments[i];
+                arguments[i] = argument.invoke(invoker);
+                determinism = determinism.combine(argument.getDeterminism());
+            }
+        }
+
+        //The call is resolved once to the handle of the function it's bound to, and invoked straight through it.
+        //Unresolved calls are left to the invoker, which reports them
+        ResolvedCall call = invoker.resolveCall(function, arguments);
+        if (call == null) {
+            this.determinism = FunctionDeterminism.NONDETERMINISTIC;
+            return invoker.invoke(function, arguments);
+        }
+        this.determinism = determinism.combine(call.getDeterminism());
+        return call.invoke(arguments);
+    }
+
+    //Pure calls are folded to their value, the others are left to be evaluated on each execution
+    public Object defer(FunctionInvoker invoker) {
+        Objects.requireNonNull(invoker);
+
+        Object[] deferredArguments = new Object[arguments.length];
+        Object[] values = new Object[arguments.length];
+        FunctionDeterminism determinism = FunctionDeterminism.DETERMINISTIC;
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i] instanceof FunctionNode ?
+                    ((FunctionNode) arguments[i]).defer(invoker) : arguments[i];
+            deferredArguments[i] = argument;
+            if (argument instanceof DeferredFunction) {
+                determinism = determinism.combine(((DeferredFunction) argument).getDeterminism());
+                values[i] = ((DeferredFunction) argument).evaluate();
+            } else {
+                values[i] = argument;
+            }
+        }
+
+        ResolvedCall call = invoker.resolveCall(function, values);
+        determinism = determinism.combine(call != null ? call.getDeterminism() : FunctionDeterminism.NONDETERMINISTIC);
+        if (determinism == FunctionDeterminism.DETERMINISTIC) {
+            return call.invoke(values);
+        }
+        return new DeferredFunction(function, deferredArguments, invoker, determinism, values, call);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
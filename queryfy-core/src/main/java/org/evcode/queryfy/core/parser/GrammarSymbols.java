@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.lexer.Grammar;
+import org.evcode.queryfy.core.operator.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+final class GrammarSymbols {
+
+    private final Map<Operator, String[]> symbols = new HashMap<>();
+
+    GrammarSymbols(Grammar grammar) {
+        Stream.of(QueryOperatorType.values(), OrderOperatorType.values(), LogicalOperatorType.values(),
+                StringOperatorType.values(), ComparisionOperatorType.values(), SelectorOperatorType.values(),
+                ListOperatorType.values())
+                .flatMap(Arrays::stream)
+                .forEach(operator -> symbols.put(operator, asArray(grammar.getOperatorSymbols(operator))));
+    }
+
+    //Keeps the grammar iteration order, which is the order the parboiled rules try the symbols
+    private static String[] asArray(Set<String> symbols) {
+        return symbols != null ? symbols.toArray(new String[0]) : new String[0];
+    }
+
+    String[] get(Operator operator) {
+        return symbols.get(operator);
+    }
+}
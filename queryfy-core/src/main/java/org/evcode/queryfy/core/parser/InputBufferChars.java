@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.parboiled.buffers.InputBuffer;
+
+//A CharSequence view over the first chars of a parboiled InputBuffer. It's reused by a single parser instance.
+final class InputBufferChars implements CharSequence {
+
+    private InputBuffer buffer;
+    private int length;
+
+    InputBufferChars wrap(InputBuffer buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return buffer.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return buffer.extract(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return buffer.extract(0, length);
+    }
+}
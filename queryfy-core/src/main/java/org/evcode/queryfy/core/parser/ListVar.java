@@ -32,10 +32,22 @@ class ListVar<T> extends Var<LinkedList<T>> {
         this.allowMultipleTypes = allowMultipleTypes;
     }
 
+    @Override
+    public boolean enterFrame() {
+        this.values = new LinkedList<>();
+        this.valueType = null;
+        return super.enterFrame();
+    }
+
     public boolean add(T value) {
         if (isNotSet()) {
             set(values);
         }
+        //Parameters are bound later, so they don't take part in the type check
+        if (value instanceof Parameter) {
+            this.values.add(value);
+            return true;
+        }
         if (!allowMultipleTypes && valueType != null && !valueType.equals(value.getClass())) {
             throw new IllegalArgumentException("Illegal value type. An instance of " + valueType.getName() + " was expected");
         }
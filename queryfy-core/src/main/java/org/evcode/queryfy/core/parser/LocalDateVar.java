@@ -18,40 +18,30 @@ package org.evcode.queryfy.core.parser;
 import org.parboiled.support.Var;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.Objects;
 
 class LocalDateVar extends Var<LocalDate> {
 
-    private String year;
-    private String month;
-    private String day;
+    private int year;
+    private int month;
+    private int day;
 
     @Override
     public LocalDate get() {
-
-        Objects.requireNonNull(year);
-        Objects.requireNonNull(month);
-        Objects.requireNonNull(day);
-
-        String dateString = year + "-" + month + "-" + day;
-
-        return LocalDate.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE);
+        return LocalDate.of(year, month, day);
     }
 
     public boolean appendYear(String year) {
-        this.year = year;
+        this.year = TemporalLiterals.number(year, 0, year.length());
         return true;
     }
 
     public boolean appendMonth(String month) {
-        this.month = month;
+        this.month = TemporalLiterals.number(month, 0, month.length());
         return true;
     }
 
     public boolean appendDay(String day) {
-        this.day = day;
+        this.day = TemporalLiterals.number(day, 0, day.length());
         return true;
     }
 }
-
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.operator.LogicalOperatorType;
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.LogicalNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.ast.OrNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The operations of an AND/OR chain being matched. Operations of the same operator (as a parenthesized group)
+//are flattened into the chain, so the whole chain becomes a single n-ary node.
+final class LogicalChain {
+
+    private final LogicalOperatorType operator;
+    private final List<Node> operations = new ArrayList<>();
+
+    LogicalChain(LogicalOperatorType operator, Node operation) {
+        this.operator = operator;
+        add(operation);
+    }
+
+    LogicalOperatorType getOperator() {
+        return operator;
+    }
+
+    LogicalChain add(Node operation) {
+        if (operation instanceof LogicalNode && ((LogicalNode) operation).getOperator() == operator) {
+            operations.addAll(((LogicalNode) operation).getOperations());
+        } else {
+            operations.add(operation);
+        }
+        return this;
+    }
+
+    Node build() {
+        return operator == LogicalOperatorType.AND ? new AndNode(operations) : new OrNode(operations);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import java.math.BigDecimal;
+
+/**
+ * Decodes numeric literals straight from the matched characters. Unqualified integers are Long (Double when
+ * they overflow or are a negative zero), unqualified decimals are BigDecimal keeping their scale, and the
+ * F/L/I/D qualifiers force Float, Long, Integer and Double.
+ */
+final class NumberLiteral {
+
+    private NumberLiteral() {
+    }
+
+    //The number is text[start, end), the qualifier is 0 when there is none
+    static Number decode(CharSequence text, int start, int end, char qualifier) {
+        switch (qualifier) {
+            case 0:
+                return decodeUnqualified(text, start, end);
+            case 'l':
+            case 'L':
+                return parseLong(text, start, end, Long.MIN_VALUE);
+            case 'i':
+            case 'I':
+                return (int) parseLong(text, start, end, Integer.MIN_VALUE);
+            case 'f':
+            case 'F':
+                return Float.parseFloat(text.subSequence(start, end).toString());
+            case 'd':
+            case 'D':
+                return Double.parseDouble(text.subSequence(start, end).toString());
+            default:
+                throw new IllegalArgumentException(String.format("Invalid number qualifier '%s'", qualifier));
+        }
+    }
+
+    private static Number decodeUnqualified(CharSequence text, int start, int end) {
+        boolean negative = start < end && text.charAt(start) == '-';
+        int digitsStart = negative ? start + 1 : start;
+        if (digitsStart >= end || !isDigit(text.charAt(digitsStart))) {
+            throw new RuntimeException(String.format("Invalid number '%s'", text.subSequence(start, end)));
+        }
+
+        int dot = -1;
+        for (int i = digitsStart; i < end; i++) {
+            if (text.charAt(i) == '.') {
+                dot = i;
+                break;
+            }
+        }
+
+        if (dot >= 0) {
+            //Up to 18 digits fit the unscaled long, longer literals fall back to BigDecimal's own parsing
+            if (end - digitsStart <= 19) {
+                long unscaled = 0;
+                for (int i = digitsStart; i < end; i++) {
+                    if (i != dot) {
+                        unscaled = unscaled * 10 + (text.charAt(i) - '0');
+                    }
+                }
+                //BigDecimal has no negative zero, so '-0.0' is 0.0 as it has always been
+                return BigDecimal.valueOf(negative ? -unscaled : unscaled, end - dot - 1);
+            }
+
+            char[] chars = new char[end - start];
+            for (int i = start; i < end; i++) {
+                chars[i - start] = text.charAt(i);
+            }
+            return new BigDecimal(chars);
+        }
+
+        //Accumulated as a negative value, so Long.MIN_VALUE doesn't overflow
+        long value = 0;
+        boolean zero = true;
+        for (int i = digitsStart; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            zero &= digit == 0;
+            if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit ||
+                    (!negative && value * 10 - digit == Long.MIN_VALUE)) {
+                return Double.parseDouble(text.subSequence(start, end).toString());
+            }
+            value = value * 10 - digit;
+        }
+
+        if (negative && zero) {
+            return -0.0d;
+        }
+        return negative ? value : -value;
+    }
+
+    //Same accepted input and errors as Long.parseLong/Integer.parseInt over the same characters
+    private static long parseLong(CharSequence text, int start, int end, long min) {
+        boolean negative = start < end && text.charAt(start) == '-';
+        int i = negative || (start < end && text.charAt(start) == '+') ? start + 1 : start;
+        if (i >= end) {
+            throw invalidNumber(text, start, end);
+        }
+
+        long limit = negative ? min : min + 1;
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                throw invalidNumber(text, start, end);
+            }
+            int digit = c - '0';
+            if (value < limit / 10 || value * 10 < limit + digit) {
+                throw invalidNumber(text, start, end);
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    private static NumberFormatException invalidNumber(CharSequence text, int start, int end) {
+        return new NumberFormatException("For input string: \"" + text.subSequence(start, end) + "\"");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -17,11 +17,6 @@ package org.evcode.queryfy.core.parser;
 
 import org.parboiled.support.Var;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.util.Locale;
-
 class NumberVar extends Var<Number> {
 
     public static final String FLOAT = "F";
@@ -29,7 +24,6 @@ class NumberVar extends Var<Number> {
     public static final String INTEGER = "I";
     public static final String DOUBLE = "D";
 
-    private Locale locale = Locale.getDefault();
     private String number;
     private String typeQualifier;
 
@@ -38,59 +32,16 @@ class NumberVar extends Var<Number> {
         return true;
     }
 
-    private void buildQualifiedNumber() {
-        if (typeQualifier.equalsIgnoreCase(FLOAT)) {
-            set(Float.parseFloat(number));
-            return;
-        }
-
-        if (typeQualifier.equalsIgnoreCase(LONG)) {
-            set(Long.parseLong(number));
-            return;
-        }
-
-        if (typeQualifier.equalsIgnoreCase(INTEGER)) {
-            set(Integer.parseInt(number));
-            return;
-        }
-
-        if (typeQualifier.equalsIgnoreCase(DOUBLE)) {
-            set(Double.parseDouble(number));
-            return;
-        }
-
-        throw new IllegalArgumentException(
-                String.format("Invalid number qualifier '%s'", typeQualifier));
-    }
-
     private void build() {
-        try {
-
-            if (typeQualifier != null) {
-                buildQualifiedNumber();
-                return;
-            }
-
-            Number value;
-            if (number.contains(".")) {
-                DecimalFormat decimalFormat = (DecimalFormat) DecimalFormat.getInstance(Locale.US);
-                decimalFormat.setParseBigDecimal(true);
-
-                int decSymbolIndex = number.lastIndexOf(".");
-                if (decSymbolIndex > -1) {
-                    int precision = number.substring(decSymbolIndex, number.length() - 1).length();
-                    decimalFormat.setMaximumFractionDigits(precision);
-                }
-
-                value = decimalFormat.parse(number);
-            } else {
-                value = NumberFormat.getInstance(locale).parse(number);
-            }
+        char qualifier = typeQualifier != null ? typeQualifier.charAt(0) : 0;
+        set(NumberLiteral.decode(number, 0, number.length(), qualifier));
+    }
 
-            set(value);
-        } catch (ParseException e) {
-            throw new RuntimeException(String.format("Invalid number '%s'", number));
-        }
+    @Override
+    public boolean enterFrame() {
+        this.number = null;
+        this.typeQualifier = null;
+        return super.enterFrame();
     }
 
     public boolean setNumber(String number) {
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import java.util.Objects;
+
+public final class Parameter {
+
+    private static final Parameter POSITIONAL = new Parameter(null);
+
+    private final String name;
+
+    private Parameter(String name) {
+        this.name = name;
+    }
+
+    public static Parameter positional() {
+        return POSITIONAL;
+    }
+
+    public static Parameter named(String name) {
+        return new Parameter(Objects.requireNonNull(name));
+    }
+
+    public boolean isNamed() {
+        return name != null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Parameter parameter = (Parameter) o;
+
+        return name != null ? name.equals(parameter.name) : parameter.name == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return name != null ? name.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? ":" + name : "?";
+    }
+}
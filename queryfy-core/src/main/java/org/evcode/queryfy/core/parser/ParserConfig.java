@@ -25,16 +25,43 @@ public final class ParserConfig {
     public static final ParserConfig DEFAULT = ParserConfig.builder().build();
     private final Grammar grammar;
     private final FunctionInvoker functionInvoker;
+    private final ParserEngine engine;
+    private final QueryCache queryCache;
+    private final SymbolTable symbolTable;
+    private final QueryLimits limits;
+    private final boolean optimized;
+    private final boolean deferredFunctions;
+    private volatile GrammarSymbols symbols;
 
-    private ParserConfig(Grammar grammar, FunctionInvoker functionInvoker) {
+    private ParserConfig(Grammar grammar, FunctionInvoker functionInvoker, ParserEngine engine,
+                         QueryCache queryCache, SymbolTable symbolTable, QueryLimits limits, boolean optimized,
+                         boolean deferredFunctions) {
         this.grammar = grammar;
         this.functionInvoker = functionInvoker;
+        this.engine = engine;
+        this.queryCache = queryCache;
+        this.symbolTable = symbolTable;
+        this.limits = limits;
+        this.optimized = optimized;
+        this.deferredFunctions = deferredFunctions;
     }
 
     public static Builder builder() {
         return new Builder();
     }
 
+    public static Builder builder(ParserConfig config) {
+        return new Builder()
+                .withGrammar(config.grammar)
+                .withFunctionInvoker(config.functionInvoker)
+                .withEngine(config.engine)
+                .withQueryCache(config.queryCache)
+                .withSymbolTable(config.symbolTable)
+                .withLimits(config.limits)
+                .withOptimizer(config.optimized)
+                .withDeferredFunctions(config.deferredFunctions);
+    }
+
     public Grammar getGrammar() {
         return grammar;
     }
@@ -43,10 +70,73 @@ public final class ParserConfig {
         return functionInvoker;
     }
 
+    public ParserEngine getEngine() {
+        return engine;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public QueryLimits getLimits() {
+        return limits;
+    }
+
+    public boolean isOptimized() {
+        return optimized;
+    }
+
+    public boolean isDeferredFunctions() {
+        return deferredFunctions;
+    }
+
+    GrammarSymbols getSymbols() {
+        GrammarSymbols grammarSymbols = symbols;
+        if (grammarSymbols == null) {
+            grammarSymbols = new GrammarSymbols(grammar);
+            symbols = grammarSymbols;
+        }
+        return grammarSymbols;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ParserConfig that = (ParserConfig) o;
+
+        return grammar == that.grammar && functionInvoker == that.functionInvoker && engine == that.engine &&
+                symbolTable == that.symbolTable && limits.equals(that.limits) && optimized == that.optimized &&
+                deferredFunctions == that.deferredFunctions;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = System.identityHashCode(grammar);
+        result = 31 * result + System.identityHashCode(functionInvoker);
+        result = 31 * result + engine.hashCode();
+        result = 31 * result + System.identityHashCode(symbolTable);
+        result = 31 * result + limits.hashCode();
+        result = 31 * result + (optimized ? 1 : 0);
+        result = 31 * result + (deferredFunctions ? 1 : 0);
+        return result;
+    }
+
     public static class Builder {
 
         private Grammar grammar = new DefaultGrammar();
         private FunctionInvoker functionInvoker = new DefaultFunctionInvoker();
+        private ParserEngine engine = ParserEngine.PARBOILED;
+        private QueryCache queryCache;
+        private SymbolTable symbolTable = SymbolTable.EMPTY;
+        private QueryLimits limits = QueryLimits.NONE;
+        private boolean optimized;
+        private boolean deferredFunctions;
 
         public Builder withGrammar(final Grammar grammar) {
             this.grammar = grammar;
@@ -58,9 +148,42 @@ public final class ParserConfig {
             return this;
         }
 
+        public Builder withEngine(final ParserEngine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public Builder withQueryCache(final QueryCache queryCache) {
+            this.queryCache = queryCache;
+            return this;
+        }
+
+        public Builder withSymbolTable(final SymbolTable symbolTable) {
+            this.symbolTable = symbolTable != null ? symbolTable : SymbolTable.EMPTY;
+            return this;
+        }
+
+        public Builder withLimits(final QueryLimits limits) {
+            this.limits = limits != null ? limits : QueryLimits.NONE;
+            return this;
+        }
+
+        //Rewrites the parsed filters through the QueryOptimizer
+        public Builder withOptimizer(final boolean optimized) {
+            this.optimized = optimized;
+            return this;
+        }
+
+        //Leaves the calls that aren't pure (eg. @now()) in the filter values as DeferredFunction, to be evaluated
+        //on each execution through PreparedQuery.bind or Evaluator.resolve
+        public Builder withDeferredFunctions(final boolean deferredFunctions) {
+            this.deferredFunctions = deferredFunctions;
+            return this;
+        }
 
         public ParserConfig build() {
-            return new ParserConfig(grammar, functionInvoker);
+            return new ParserConfig(grammar, functionInvoker, engine, queryCache, symbolTable, limits, optimized,
+                    deferredFunctions);
         }
     }
 }
\ No newline at end of file
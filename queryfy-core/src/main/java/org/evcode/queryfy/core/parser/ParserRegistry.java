@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.lexer.Grammar;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.parboiled.Parboiled;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pools of parboiled parsers, reused between queries as building their rule trees is expensive.
+ * The rule trees only depend on the grammar, so configs sharing a grammar (eg. the contexts of every backend, which
+ * only differ by their symbol table) share a pool, and a parser is bound to the config of each query it parses.
+ * The registry keeps the pools of the most recently used grammars only, each one holding at most as many idle
+ * parsers as its maximum pool size.
+ */
+public final class ParserRegistry {
+
+    public static final int DEFAULT_MAXIMUM_POOLS = 64;
+    public static final int DEFAULT_MAXIMUM_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final int maximumPoolSize;
+    private final LinkedHashMap<Grammar, Queue<QueryParser>> parsers;
+
+    public ParserRegistry() {
+        this(DEFAULT_MAXIMUM_POOLS, DEFAULT_MAXIMUM_POOL_SIZE);
+    }
+
+    public ParserRegistry(int maximumPools, int maximumPoolSize) {
+        if (maximumPools < 1 || maximumPoolSize < 1) {
+            throw new IllegalArgumentException("Maximum pools and pool size must be positive");
+        }
+        this.maximumPoolSize = maximumPoolSize;
+        this.parsers = new LinkedHashMap<Grammar, Queue<QueryParser>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Grammar, Queue<QueryParser>> eldest) {
+                return size() > maximumPools;
+            }
+        };
+    }
+
+    public QueryParser acquire(ParserConfig config) {
+        QueryParser parser = pool(config.getGrammar(), true).poll();
+        if (parser != null) {
+            parser.config = config;
+            parser.functionDeterminism = FunctionDeterminism.DETERMINISTIC;
+            parser.parameters = false;
+            return parser;
+        }
+
+        parser = Parboiled.createParser(QueryParser.class, config);
+        //Builds and caches the whole rule tree once per parser instance
+        parser.Query();
+        return parser;
+    }
+
+    //Parsers beyond the maximum pool size, or of an evicted pool, are dropped
+    public void release(QueryParser parser) {
+        Queue<QueryParser> pool = pool(parser.config.getGrammar(), false);
+        if (pool != null) {
+            pool.offer(parser);
+        }
+    }
+
+    //Evicts the pool of the config's grammar, shared with every config of the same grammar
+    public synchronized void evict(ParserConfig config) {
+        parsers.remove(config.getGrammar());
+    }
+
+    public synchronized void evictAll() {
+        parsers.clear();
+    }
+
+    public synchronized boolean contains(ParserConfig config) {
+        return parsers.containsKey(config.getGrammar());
+    }
+
+    public synchronized int size() {
+        return parsers.size();
+    }
+
+    private synchronized Queue<QueryParser> pool(Grammar grammar, boolean create) {
+        Queue<QueryParser> pool = parsers.get(grammar);
+        if (pool == null && create) {
+            pool = new ArrayBlockingQueue<>(maximumPoolSize);
+            parsers.put(grammar, pool);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed queries, keyed by the query text and the {@link ParserConfig} used to parse it.
+ * Custom function values are folded while parsing, so queries are stored by the determinism of their calls:
+ * pure ones are kept as any other query, time dependent ones (eg. @now()) only until the end of the current
+ * clock bucket when one is configured, and nondeterministic ones are never stored.
+ * Clock buckets are aligned to the local time of the clock's zone, so a day bucket ends at midnight in the zone the
+ * provided functions (eg. @today()) read the date in, the system default one.
+ */
+public final class QueryCache {
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final long clockBucket;
+    private final Clock clock;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private QueryCache(long maximumSize, long maximumWeight, long clockBucket, Clock clock) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.clockBucket = clockBucket;
+        this.clock = clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public synchronized List<Node> get(String query, ParserConfig config) {
+        Key key = new Key(query, config);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= clock.millis()) {
+            entries.remove(key);
+            weight -= weigh(query);
+            evictionCount++;
+            entry = null;
+        }
+
+        if (entry != null) {
+            hitCount++;
+            return entry.nodes;
+        }
+        missCount++;
+        return null;
+    }
+
+    public List<Node> put(String query, ParserConfig config, List<Node> nodes) {
+        return put(query, config, nodes, FunctionDeterminism.DETERMINISTIC);
+    }
+
+    public synchronized List<Node> put(String query, ParserConfig config, List<Node> nodes,
+                                       FunctionDeterminism functionDeterminism) {
+        List<Node> cachedNodes = Collections.unmodifiableList(nodes);
+        long entryWeight = weigh(query);
+        long expiresAt = expiresAt(functionDeterminism);
+        if (maximumSize == 0 || entryWeight > maximumWeight || expiresAt == 0) {
+            return cachedNodes;
+        }
+
+        if (entries.put(new Key(query, config), new Entry(cachedNodes, expiresAt)) == null) {
+            weight += entryWeight;
+        }
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maximumSize || weight > maximumWeight) {
+            Map.Entry<Key, Entry> entry = eldest.next();
+            weight -= weigh(entry.getKey().query);
+            eldest.remove();
+            evictionCount++;
+        }
+
+        return cachedNodes;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hitCount, missCount, evictionCount);
+    }
+
+    //Time dependent values are shared until the end of the current clock bucket, so they're at most one bucket old.
+    //Returns 0 when the entry must not be stored
+    private long expiresAt(FunctionDeterminism functionDeterminism) {
+        switch (functionDeterminism) {
+            case DETERMINISTIC:
+                return Long.MAX_VALUE;
+            case TIME_DEPENDENT:
+                if (clockBucket == 0) {
+                    return 0;
+                }
+                long now = clock.millis();
+                long localEnd = (Math.floorDiv(now + offset(now), clockBucket) + 1) * clockBucket;
+                //The offset at the end of the bucket is the one that counts when a zone transition falls within it
+                long end = localEnd - offset(localEnd - offset(now));
+                return end > now ? end : 0;
+            default:
+                return 0;
+        }
+    }
+
+    private long offset(long millis) {
+        return clock.getZone().getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+    }
+
+    //The cached tree size grows with the query length, so it's used as the entry weight
+    private static long weigh(String query) {
+        return query.length();
+    }
+
+    private static final class Entry {
+
+        private final List<Node> nodes;
+        private final long expiresAt;
+
+        private Entry(List<Node> nodes, long expiresAt) {
+            this.nodes = nodes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+
+        private final String query;
+        private final ParserConfig config;
+
+        private Key(String query, ParserConfig config) {
+            this.query = query;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            return query.equals(key.query) && config.equals(key.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + config.hashCode();
+        }
+    }
+
+    public static final class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        private Stats(long hitCount, long missCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getRequestCount() {
+            return hitCount + missCount;
+        }
+
+        public double getHitRate() {
+            long requestCount = getRequestCount();
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hitCount=" + hitCount +
+                    ", missCount=" + missCount +
+                    ", evictionCount=" + evictionCount +
+                    '}';
+        }
+    }
+
+    public static class Builder {
+
+        private long maximumSize = 1000;
+        private long maximumWeight = Long.MAX_VALUE;
+        private long clockBucket;
+        private Clock clock = Clock.systemDefaultZone();
+
+        public Builder withMaximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("Maximum size must not be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder withMaximumWeight(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("Maximum weight must not be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        //Caches queries with time dependent function values (eg. @now()) until the end of each bucket of this size.
+        //They aren't cached by default
+        public Builder withClockBucket(Duration clockBucket) {
+            if (clockBucket == null || clockBucket.isNegative()) {
+                throw new IllegalArgumentException("Clock bucket must not be negative");
+            }
+            this.clockBucket = clockBucket.toMillis();
+            return this;
+        }
+
+        public Builder withClock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("Clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        public QueryCache build() {
+            return new QueryCache(maximumSize, maximumWeight, clockBucket, clock);
+        }
+    }
+}
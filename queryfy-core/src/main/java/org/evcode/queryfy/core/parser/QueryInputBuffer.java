@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+//An InputBuffer reading the query String in place, reset for each query parsed by the same runner.
+//Line positions are only needed for errors, so they're taken from a DefaultInputBuffer built on demand.
+final class QueryInputBuffer implements InputBuffer {
+
+    private String input = "";
+    private DefaultInputBuffer lines;
+
+    void reset(String input) {
+        this.input = input;
+        this.lines = null;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return index >= 0 && index < input.length() ? input.charAt(index) : Chars.EOI;
+    }
+
+    @Override
+    public boolean test(int index, char[] characters) {
+        if (index < 0 || index + characters.length > input.length()) {
+            return false;
+        }
+        for (int i = 0; i < characters.length; i++) {
+            if (input.charAt(index + i) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String extract(int start, int end) {
+        start = Math.max(start, 0);
+        end = Math.min(end, input.length());
+        return end > start ? input.substring(start, end) : "";
+    }
+
+    @Override
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(int index) {
+        return lines().getPosition(index);
+    }
+
+    @Override
+    public int getOriginalIndex(int index) {
+        return index;
+    }
+
+    @Override
+    public String extractLine(int lineNumber) {
+        return lines().extractLine(lineNumber);
+    }
+
+    @Override
+    public int getLineCount() {
+        return lines().getLineCount();
+    }
+
+    private DefaultInputBuffer lines() {
+        if (lines == null) {
+            lines = new DefaultInputBuffer(input.toCharArray());
+        }
+        return lines;
+    }
+}
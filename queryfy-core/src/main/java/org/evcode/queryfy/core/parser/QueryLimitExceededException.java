@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+/**
+ * Thrown when a query exceeds one of the {@link QueryLimits} of its parser config. It's an invalid query, so
+ * it's an {@link IllegalArgumentException} like the other parsing errors.
+ */
+public class QueryLimitExceededException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final QueryLimits.Limit limit;
+    private final int maxValue;
+
+    public QueryLimitExceededException(QueryLimits.Limit limit, int maxValue) {
+        super("Invalid query: the query exceeds the max " + limit.getDescription() + " of " + maxValue);
+        this.limit = limit;
+        this.maxValue = maxValue;
+    }
+
+    public QueryLimits.Limit getLimit() {
+        return limit;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+}
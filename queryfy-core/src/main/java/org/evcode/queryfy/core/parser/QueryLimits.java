@@ -0,0 +1,248 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import java.util.Arrays;
+
+/**
+ * Admission limits of the queries accepted by a parser. A query exceeding any of them is rejected with a
+ * {@link QueryLimitExceededException} as soon as the parser finds it out, before the rest of the query is
+ * parsed. No limit is set by default.
+ */
+public final class QueryLimits {
+
+    public static final QueryLimits NONE = QueryLimits.builder().build();
+
+    public enum Limit {
+        INPUT_LENGTH("input length"),
+        PREDICATES("predicate count"),
+        NESTING_DEPTH("nesting depth"),
+        IN_LIST_SIZE("IN list size"),
+        FUNCTION_DEPTH("function call depth");
+
+        private final String description;
+
+        Limit(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final int maxInputLength;
+    private final int maxPredicates;
+    private final int maxNestingDepth;
+    private final int maxInListSize;
+    private final int maxFunctionDepth;
+
+    private QueryLimits(int maxInputLength, int maxPredicates, int maxNestingDepth, int maxInListSize,
+                        int maxFunctionDepth) {
+        this.maxInputLength = maxInputLength;
+        this.maxPredicates = maxPredicates;
+        this.maxNestingDepth = maxNestingDepth;
+        this.maxInListSize = maxInListSize;
+        this.maxFunctionDepth = maxFunctionDepth;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxInputLength() {
+        return maxInputLength;
+    }
+
+    public int getMaxPredicates() {
+        return maxPredicates;
+    }
+
+    //Parentheses nesting: groups, IN lists and function arguments
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    public int getMaxFunctionDepth() {
+        return maxFunctionDepth;
+    }
+
+    public void checkInputLength(String query) {
+        if (query.length() > maxInputLength) {
+            throw new QueryLimitExceededException(Limit.INPUT_LENGTH, maxInputLength);
+        }
+    }
+
+    void checkPredicates(int predicates) {
+        if (predicates > maxPredicates) {
+            throw new QueryLimitExceededException(Limit.PREDICATES, maxPredicates);
+        }
+    }
+
+    void checkNestingDepth(int depth) {
+        if (depth > maxNestingDepth) {
+            throw new QueryLimitExceededException(Limit.NESTING_DEPTH, maxNestingDepth);
+        }
+    }
+
+    void checkInListSize(int size) {
+        if (size > maxInListSize) {
+            throw new QueryLimitExceededException(Limit.IN_LIST_SIZE, maxInListSize);
+        }
+    }
+
+    void checkFunctionDepth(int depth) {
+        if (depth > maxFunctionDepth) {
+            throw new QueryLimitExceededException(Limit.FUNCTION_DEPTH, maxFunctionDepth);
+        }
+    }
+
+    /**
+     * Checks the input length and the nesting limits of a query in a single pass over its chars, before it's
+     * parsed. Parentheses inside string literals are skipped, and the parentheses following the function
+     * prefix open a function call.
+     */
+    public void checkInput(String query, String functionPrefix) {
+        checkInputLength(query);
+        if (maxNestingDepth == Integer.MAX_VALUE && maxFunctionDepth == Integer.MAX_VALUE) {
+            return;
+        }
+
+        //Bit i tells whether the parenthesis opened at depth i + 1 is a function call
+        long[] functions = new long[1];
+        int depth = 0;
+        int functionDepth = 0;
+        boolean pendingFunction = false;
+
+        int length = query.length();
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipString(query, i, c);
+            } else if (c == '(') {
+                checkNestingDepth(++depth);
+                if (depth > functions.length * 64) {
+                    functions = Arrays.copyOf(functions, functions.length * 2);
+                }
+                int bit = depth - 1;
+                if (pendingFunction) {
+                    checkFunctionDepth(++functionDepth);
+                    functions[bit >>> 6] |= 1L << bit;
+                    pendingFunction = false;
+                } else {
+                    functions[bit >>> 6] &= ~(1L << bit);
+                }
+            } else if (c == ')') {
+                if (depth > 0) {
+                    int bit = depth - 1;
+                    if ((functions[bit >>> 6] & (1L << bit)) != 0) {
+                        functionDepth--;
+                    }
+                    depth--;
+                }
+            } else if (!functionPrefix.isEmpty() && query.startsWith(functionPrefix, i)) {
+                pendingFunction = true;
+                i += functionPrefix.length() - 1;
+            }
+        }
+    }
+
+    //Returns the index of the closing quote, or the last index of an unterminated string
+    private static int skipString(String query, int start, char quote) {
+        int length = query.length();
+        for (int i = start + 1; i < length; i++) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                return i;
+            }
+        }
+        return length - 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        QueryLimits that = (QueryLimits) o;
+
+        return maxInputLength == that.maxInputLength && maxPredicates == that.maxPredicates &&
+                maxNestingDepth == that.maxNestingDepth && maxInListSize == that.maxInListSize &&
+                maxFunctionDepth == that.maxFunctionDepth;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = maxInputLength;
+        result = 31 * result + maxPredicates;
+        result = 31 * result + maxNestingDepth;
+        result = 31 * result + maxInListSize;
+        result = 31 * result + maxFunctionDepth;
+        return result;
+    }
+
+    public static class Builder {
+
+        private int maxInputLength = Integer.MAX_VALUE;
+        private int maxPredicates = Integer.MAX_VALUE;
+        private int maxNestingDepth = Integer.MAX_VALUE;
+        private int maxInListSize = Integer.MAX_VALUE;
+        private int maxFunctionDepth = Integer.MAX_VALUE;
+
+        public Builder withMaxInputLength(final int maxInputLength) {
+            this.maxInputLength = notNegative(maxInputLength, Limit.INPUT_LENGTH);
+            return this;
+        }
+
+        public Builder withMaxPredicates(final int maxPredicates) {
+            this.maxPredicates = notNegative(maxPredicates, Limit.PREDICATES);
+            return this;
+        }
+
+        public Builder withMaxNestingDepth(final int maxNestingDepth) {
+            this.maxNestingDepth = notNegative(maxNestingDepth, Limit.NESTING_DEPTH);
+            return this;
+        }
+
+        public Builder withMaxInListSize(final int maxInListSize) {
+            this.maxInListSize = notNegative(maxInListSize, Limit.IN_LIST_SIZE);
+            return this;
+        }
+
+        public Builder withMaxFunctionDepth(final int maxFunctionDepth) {
+            this.maxFunctionDepth = notNegative(maxFunctionDepth, Limit.FUNCTION_DEPTH);
+            return this;
+        }
+
+        private static int notNegative(int value, Limit limit) {
+            if (value < 0) {
+                throw new IllegalArgumentException("The max " + limit.getDescription() + " can't be negative");
+            }
+            return value;
+        }
+
+        public QueryLimits build() {
+            return new QueryLimits(maxInputLength, maxPredicates, maxNestingDepth, maxInListSize, maxFunctionDepth);
+        }
+    }
+}
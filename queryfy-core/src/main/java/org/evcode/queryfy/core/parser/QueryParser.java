@@ -17,10 +17,12 @@ package org.evcode.queryfy.core.parser;
 
 import org.evcode.queryfy.core.operator.*;
 import org.evcode.queryfy.core.parser.ast.*;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
 import org.parboiled.BaseParser;
 import org.parboiled.Rule;
-import org.parboiled.annotations.MemoMismatches;
-import org.parboiled.support.StringBuilderVar;
+import org.parboiled.parserunners.ErrorLocatingParseRunner;
+import org.parboiled.parserunners.ErrorReportingParseRunner;
+import org.parboiled.support.ParsingResult;
 import org.parboiled.support.StringVar;
 import org.parboiled.support.Var;
 
@@ -29,7 +31,15 @@ import java.util.stream.Collectors;
 
 public class QueryParser extends BaseParser<Object> {
 
-    final ParserConfig config;
+    //Bound to the config of each parsed query by the ParserRegistry, the rule tree only depends on its grammar
+    ParserConfig config;
+    final SelectorInterner selectorInterner = new SelectorInterner();
+    final InputBufferChars inputChars = new InputBufferChars();
+    FunctionDeterminism functionDeterminism = FunctionDeterminism.DETERMINISTIC;
+    boolean parameters;
+    int predicates;
+    QueryLimitExceededException limitExceeded;
+    private ValueStackParseRunner runner;
 
     public QueryParser() {
         this.config = ParserConfig.DEFAULT;
@@ -92,16 +102,6 @@ public class QueryParser extends BaseParser<Object> {
         return CharRange('0', '9');
     }
 
-    Rule Date() {
-        LocalDateVar date = new LocalDateVar();
-        return Sequence(
-                FourDigits(), date.appendYear(match()),
-                Minus(), TwoDigits(), date.appendMonth(match()),
-                Minus(), TwoDigits(), date.appendDay(match()),
-                push(date.get())
-        );
-    }
-
     Rule ZoneOffset() {
         return FirstOf(IgnoreCase('Z'),
                 Sequence(FirstOf(Minus(), Plus()),
@@ -120,12 +120,20 @@ public class QueryParser extends BaseParser<Object> {
                 Ch(']'));
     }
 
-    Rule DateTime() {
+    //Date and DateTime share the date part, which is matched only once
+    Rule DateOrDateTime() {
+        LocalDateVar date = new LocalDateVar();
         DateTimeVar dateTime = new DateTimeVar();
         return Sequence(
-                FourDigits(), dateTime.appendYear(match()),
-                Minus(), TwoDigits(), dateTime.appendMonth(match()),
-                Minus(), TwoDigits(), dateTime.appendDay(match()),
+                FourDigits(), date.appendYear(match()) && dateTime.appendYear(match()),
+                Minus(), TwoDigits(), date.appendMonth(match()) && dateTime.appendMonth(match()),
+                Minus(), TwoDigits(), date.appendDay(match()) && dateTime.appendDay(match()),
+                FirstOf(DateTime(dateTime), push(date.get()))
+        );
+    }
+
+    Rule DateTime(DateTimeVar dateTime) {
+        return Sequence(
                 Ch('T'), TwoDigits(), dateTime.appendHour(match()),
                 Colon(), TwoDigits(), dateTime.appendMinute(match()),
                 Optional(Colon(), TwoDigits(), dateTime.appendSecond(match())),
@@ -166,22 +174,21 @@ public class QueryParser extends BaseParser<Object> {
         );
     }
 
+    //The string content is matched without actions and then taken from the input at once
     Rule DoubleQuoteString() {
-        StringBuilderVar str = new StringBuilderVar();
-        return Sequence('"', ZeroOrMore(FirstOf(Escape(str),
-                Sequence(TestNot(AnyOf("\r\n\"\\")), ANY, str.append(match())))).suppressSubnodes(), '"',
-                push(str.getString()));
+        return Sequence('"', StringContent("\r\n\"\\"), push(StringLiterals.unescape(match())), '"');
     }
 
     Rule SingleQuoteString() {
-        StringBuilderVar str = new StringBuilderVar();
-        return Sequence('\'', ZeroOrMore(FirstOf(Escape(str),
-                Sequence(TestNot(AnyOf("\r\n'\\")), ANY, str.append(match())))).suppressSubnodes(), '\'',
-                push(str.getString()));
+        return Sequence('\'', StringContent("\r\n'\\"), push(StringLiterals.unescape(match())), '\'');
+    }
+
+    Rule StringContent(String excludedChars) {
+        return ZeroOrMore(FirstOf(Escape(), Sequence(TestNot(AnyOf(excludedChars)), ANY))).suppressSubnodes();
     }
 
-    Rule Escape(StringBuilderVar str) {
-        return Sequence('\\', FirstOf(AnyOf("btnfr\"\'\\"), OctalEscape(), UnicodeEscape()), str.append(match()));
+    Rule Escape() {
+        return Sequence('\\', FirstOf(AnyOf("btnfr\"\'\\"), OctalEscape(), UnicodeEscape()));
     }
 
     Rule OctalEscape() {
@@ -200,15 +207,17 @@ public class QueryParser extends BaseParser<Object> {
         return FirstOf(CharRange('a', 'f'), CharRange('A', 'F'), CharRange('0', '9'));
     }
 
-    Rule Arguments(ListVar listValues) {
+    Rule Arguments(ListVar<Object> listValues) {
         return Sequence(
-                Value(),
+                Operand(),
                 listValues.add(pop()),
+                admitInListSize(listValues.get().size()),
                 ZeroOrMore(Sequence(OptionalWS(),
                         ArgumentsSeparator(),
                         OptionalWS(),
-                        Value(),
-                        listValues.add(pop()))
+                        Operand(),
+                        listValues.add(pop()),
+                        admitInListSize(listValues.get().size()))
                 )
         );
     }
@@ -299,13 +308,26 @@ public class QueryParser extends BaseParser<Object> {
     }
 
     Rule Temporal() {
-        return FirstOf(DateTime(), Date(), Time());
+        return FirstOf(DateOrDateTime(), Time());
     }
 
     Rule Value() {
         return FirstOf(Temporal(), Numeric(), String(), CustomFunction());
     }
 
+    //Placeholders are only allowed as operation values, never as function arguments
+    Rule Operand() {
+        return FirstOf(Value(), Placeholder());
+    }
+
+    Rule Placeholder() {
+        return FirstOf(
+                Sequence(String(config.getGrammar().getPositionalParameter()), pushParameter(Parameter.positional())),
+                Sequence(String(config.getGrammar().getNamedParameterPrefix()), QualifiedSelector(),
+                        pushParameter(Parameter.named(match())))
+        );
+    }
+
     Rule CustomFunction() {
         Var<LinkedList<Object>> list = new Var<>();
         StringVar function = new StringVar();
@@ -329,7 +351,7 @@ public class QueryParser extends BaseParser<Object> {
 
     //Operations
     Rule SelectorOperation() {
-        return Sequence(Selector(), WS(),
+        return Sequence(WS(),
                 FirstOf(IsNotNullOperator(), IsNullOperator(), IsTrueOperator(), IsFalseOperator(),
                         IsNotEmptyOperator(), IsEmptyOperator()),
                 pushSelectorOperation());
@@ -337,7 +359,7 @@ public class QueryParser extends BaseParser<Object> {
 
     Rule InOperation() {
         ListVar<Object> list = new ListVar<>();
-        return Sequence(Selector(), WS(), FirstOf(NotInOperator(), InOperator()),
+        return Sequence(WS(), FirstOf(NotInOperator(), InOperator()),
                 OptionalWS(),
                 Ch('('),
                 OptionalWS(), Arguments(list), OptionalWS(),
@@ -345,22 +367,24 @@ public class QueryParser extends BaseParser<Object> {
     }
 
     Rule LikeOperation() {
-        return Sequence(Selector(), WS(), FirstOf(NotLikeOperator(), LikeOperator()),
-                WS(), FirstOf(String(), CustomFunction()), pushFilterOperation());
+        return Sequence(WS(), FirstOf(NotLikeOperator(), LikeOperator()),
+                WS(), FirstOf(String(), CustomFunction(), Placeholder()), pushFilterOperation());
     }
 
     Rule EqualOperation() {
-        return Sequence(Selector(), OptionalWS(), EqualOperator(), pushOperator(),
-                OptionalWS(), FirstOf(True(), False(), Value()), pushFilterOperation());
+        return Sequence(OptionalWS(), EqualOperator(), pushOperator(),
+                OptionalWS(), FirstOf(True(), False(), Operand()), pushFilterOperation());
     }
 
     Rule ComparisionOperation() {
-        return Sequence(Selector(), OptionalWS(), ComparisionOperator(), pushOperator(),
-                OptionalWS(), Value(), pushFilterOperation());
+        return Sequence(OptionalWS(), ComparisionOperator(), pushOperator(),
+                OptionalWS(), Operand(), pushFilterOperation());
     }
 
     Rule Operations() {
-        return FirstOf(EqualOperation(), ComparisionOperation(), SelectorOperation(), LikeOperation(), InOperation());
+        //All operations start with the selector, so it's matched once and left on the stack for them
+        return Sequence(Selector(),
+                FirstOf(EqualOperation(), ComparisionOperation(), SelectorOperation(), LikeOperation(), InOperation()));
     }
 
     Rule LogicalOperation() {
@@ -369,12 +393,12 @@ public class QueryParser extends BaseParser<Object> {
 
     Rule AndOperation() {
         return Sequence(LogicalOperation(), ZeroOrMore(Sequence(WS(), toOperator(LogicalOperatorType.AND), WS(),
-                LogicalOperation(), pushLogicalOperation(LogicalOperatorType.AND))));
+                LogicalOperation(), pushLogicalOperation(LogicalOperatorType.AND))), buildLogicalOperation());
     }
 
     Rule OrOperation() {
         return Sequence(AndOperation(), ZeroOrMore(Sequence(WS(), toOperator(LogicalOperatorType.OR), WS(),
-                AndOperation(), pushLogicalOperation(LogicalOperatorType.OR))));
+                AndOperation(), pushLogicalOperation(LogicalOperatorType.OR))), buildLogicalOperation());
     }
 
     //Query structure
@@ -382,28 +406,24 @@ public class QueryParser extends BaseParser<Object> {
         return Sequence(toOperator(QueryOperatorType.SELECT), WS());
     }
 
+    //Mismatches aren't memoized: the matcher contexts (and their memo) are reused across queries by the runner
     Rule QualifiedSelector() {
-        return Sequence(SelectorPattern(), ZeroOrMore(Dot(), SelectorPattern()));
+        return new SelectorMatcher();
     }
 
     Rule Selector() {
-        return Sequence(QualifiedSelector(), push(match()));
-    }
-
-    @MemoMismatches
-    Rule SelectorPattern() {
-        return OneOrMore(new SelectorMatcher());
+        return Sequence(QualifiedSelector(), push(selector()));
     }
 
     Rule ProjectionSelectors() {
         ListVar<String> fields = new ListVar<>();
         return Sequence(
-                Sequence(QualifiedSelector(), push(match())),
+                Selector(),
                 fields.add((String) pop()),
                 ZeroOrMore(Sequence(OptionalWS(),
                         String(config.getGrammar().getArgsSeparator()),
                         OptionalWS(),
-                        Sequence(QualifiedSelector(), push(match())),
+                        Selector(),
                         fields.add((String) pop()))
                 ),
                 pushProjectionSelectors(fields.get())
@@ -421,7 +441,7 @@ public class QueryParser extends BaseParser<Object> {
     }
 
     Rule OrderSpecifier(OrderVar orderVar) {
-        return Sequence(QualifiedSelector(), orderVar.setSelector(match()),
+        return Sequence(QualifiedSelector(), orderVar.setSelector(selector()),
                 Optional(WS(), FirstOf(toOperator(OrderOperatorType.ASC), toOperator(OrderOperatorType.DESC)),
                         orderVar.setOperator((OrderOperatorType) config.getGrammar().getOperator(match()))));
     }
@@ -465,6 +485,15 @@ public class QueryParser extends BaseParser<Object> {
         return push(new LimitNode(offset, limit));
     }
 
+    //Known selectors are taken from the symbol table, so the backends can resolve them by identity
+    String selector() {
+        int start = matchStart();
+        int end = matchEnd();
+        CharSequence input = inputChars.wrap(getContext().getInputBuffer(), end);
+        String symbol = config.getSymbolTable().lookup(input, start, end);
+        return symbol != null ? symbol : selectorInterner.intern(input, start, end);
+    }
+
     boolean pushProjectionSelectors(List<String> selectors) {
         ProjectionNode projection = new ProjectionNode(selectors
                 .stream()
@@ -479,59 +508,146 @@ public class QueryParser extends BaseParser<Object> {
     }
 
     boolean pushListOperation(List<Object> list) {
+        if (!admitPredicate()) {
+            return false;
+        }
         ListOperatorType operator = (ListOperatorType) pop();
         String selector = (String) pop();
 
         List<Object> parsedValues = list.stream().map(this::parseValue)
                 .collect(Collectors.toList());
 
-        FilterNode node = new FilterNode(operator, selector, parsedValues);
+        FilterNode node = filterNode(operator, selector, parsedValues);
         return push(node);
     }
 
     boolean pushFilterOperation() {
+        if (!admitPredicate()) {
+            return false;
+        }
         Object value = parseValue(pop());
         Operator operator = (Operator) pop();
         String selector = (String) pop();
-        FilterNode node = new FilterNode(operator, selector, Collections.singletonList(value));
+        FilterNode node = filterNode(operator, selector, Collections.singletonList(value));
         return push(node);
     }
 
     boolean pushSelectorOperation() {
+        if (!admitPredicate()) {
+            return false;
+        }
         SelectorOperatorType operator = (SelectorOperatorType) pop();
         String selector = (String) pop();
-        FilterNode node = new FilterNode(operator, selector, Collections.emptyList());
+        FilterNode node = filterNode(operator, selector, Collections.emptyList());
         return push(node);
     }
 
+    //Nodes keep the symbol index of their selector, so the backends don't look it up again
+    private FilterNode filterNode(Operator operator, String selector, List<Object> args) {
+        SymbolTable symbolTable = config.getSymbolTable();
+        return new FilterNode(operator, selector, args, symbolTable, symbolTable.indexOf(selector));
+    }
+
+    //The operations of a chain are collected in a LogicalChain, which becomes a single node once the chain ends.
+    //It's only changed by the last action of a matched sequence, so no backtracking sees a changed chain.
     boolean pushLogicalOperation(LogicalOperatorType operator) {
         Node rightNode = (Node) pop();
-        Node leftNode = (Node) pop();
+        Object left = pop();
 
-        Node logicalNode = operator == LogicalOperatorType.AND ?
-                new AndNode(rightNode, leftNode) :
-                new OrNode(rightNode, leftNode);
+        LogicalChain chain = left instanceof LogicalChain && ((LogicalChain) left).getOperator() == operator ?
+                (LogicalChain) left : new LogicalChain(operator, (Node) left);
+        return push(chain.add(rightNode));
+    }
 
-        return push(logicalNode);
+    boolean buildLogicalOperation() {
+        if (peek() instanceof LogicalChain) {
+            poke(((LogicalChain) peek()).build());
+        }
+        return true;
+    }
+
+    //Query limits. An action exception would leave the pooled parser dirty, so a query over a limit just stops
+    //matching at that point, and the exceeded limit is kept to be thrown once the parser is released.
+    boolean admitPredicate() {
+        try {
+            config.getLimits().checkPredicates(++predicates);
+            return true;
+        } catch (QueryLimitExceededException e) {
+            limitExceeded = e;
+            return false;
+        }
+    }
+
+    boolean admitInListSize(int size) {
+        try {
+            config.getLimits().checkInListSize(size);
+            return true;
+        } catch (QueryLimitExceededException e) {
+            limitExceeded = e;
+            return false;
+        }
+    }
+
+    /**
+     * Matches the query building only the value stack. Most queries are valid, so the error locating and
+     * reporting passes (the same ReportingParseRunner uses) only run once this match fails, and they're skipped
+     * for a query over the limits. The result is valid until the next run.
+     */
+    public ParsingResult<Object> run(String query) {
+        if (runner == null) {
+            runner = new ValueStackParseRunner(Query());
+        }
+
+        resetLimits();
+        ParsingResult<Object> result = runner.run(query);
+        if (result.matched || limitExceeded != null) {
+            return result;
+        }
+
+        resetLimits();
+        result = new ErrorLocatingParseRunner<>(Query()).run(query);
+        if (result.matched || !result.hasErrors()) {
+            return result;
+        }
+
+        resetLimits();
+        int errorIndex = result.parseErrors.get(0).getStartIndex();
+        return new ErrorReportingParseRunner<>(Query(), errorIndex).run(query);
+    }
+
+    private void resetLimits() {
+        predicates = 0;
+        limitExceeded = null;
+    }
+
+    public QueryLimitExceededException getLimitExceeded() {
+        return limitExceeded;
+    }
+
+    //The determinism of all the function calls resolved by the last parse, DETERMINISTIC when there were none
+    public FunctionDeterminism getFunctionDeterminism() {
+        return functionDeterminism;
+    }
+
+    public boolean hasParameters() {
+        return parameters;
+    }
+
+    boolean pushParameter(Parameter parameter) {
+        parameters = true;
+        return push(parameter);
     }
 
     Object parseValue(Object value) {
         if (value instanceof FunctionNode) {
-            Objects.requireNonNull(config.getFunctionInvoker());
-            FunctionNode functionValue = (FunctionNode) value;
-
-            if (functionValue.getArguments() != null && functionValue.getArguments().length > 0) {
-                for (int i = 0; i < functionValue.getArguments().length; i++) {
-                    if (functionValue.getArguments()[i] instanceof FunctionNode) {
-                        functionValue.getArguments()[i] = parseValue(functionValue.getArguments()[i]);
-                    }
-                }
+            FunctionNode function = (FunctionNode) value;
+            //Deferred calls aren't frozen in the tree, so they don't keep it from being reused
+            if (config.isDeferredFunctions()) {
+                return function.defer(config.getFunctionInvoker());
             }
-
-            Object parsedValue = config.getFunctionInvoker()
-                    .invoke(functionValue.getFunction(), functionValue.getArguments());
-
-            return parsedValue;
+            Object result = function.invoke(config.getFunctionInvoker());
+            functionDeterminism = functionDeterminism.combine(function.getDeterminism());
+            return result;
         }
 
         return value;
@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+//Interns the selectors matched by a parser, so a selector seen before is taken without copying it from the input.
+//It's owned by a single parser instance, which is never used by two threads at once.
+final class SelectorInterner {
+
+    private static final int CAPACITY = 2048;
+    private static final int MAX_SIZE = CAPACITY / 2;
+
+    private final String[] selectors = new String[CAPACITY];
+    private int size;
+
+    String intern(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        int mask = CAPACITY - 1;
+        for (int slot = SymbolTable.spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            String selector = selectors[slot];
+            if (selector == null) {
+                selector = text.subSequence(start, end).toString();
+                if (size < MAX_SIZE) {
+                    selectors[slot] = selector;
+                    size++;
+                }
+                return selector;
+            }
+            if (selector.hashCode() == hash && SymbolTable.regionMatches(selector, text, start, end)) {
+                return selector;
+            }
+        }
+    }
+}
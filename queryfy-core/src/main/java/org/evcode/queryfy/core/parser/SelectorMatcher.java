@@ -16,14 +16,17 @@
 package org.evcode.queryfy.core.parser;
 
 import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
 import org.parboiled.matchers.CustomMatcher;
 
+//Matches a whole qualified selector (e.g. customer.address.city) at once, creating a single parse tree node
 class SelectorMatcher extends CustomMatcher {
 
     protected SelectorMatcher() {
         super("SelectorMatcher");
     }
 
+    //It's still reported as a single char matcher, so error messages keep listing selectors as expected input
     @Override
     public final boolean isSingleCharMatcher() {
         return true;
@@ -46,15 +49,41 @@ class SelectorMatcher extends CustomMatcher {
 
     @Override
     public final <V> boolean match(final MatcherContext<V> context) {
-        if (!isAllowedChar(context.getCurrentChar())) {
+        int start = context.getCurrentIndex();
+        int end = selectorEnd(context.getInputBuffer(), start);
+        if (end == start) {
             return false;
         }
-        context.advanceIndex(1);
+        context.advanceIndex(end - start);
         context.createNode();
         return true;
     }
 
+    //A dot is only part of the selector when another selector part follows it
+    private int selectorEnd(InputBuffer input, int index) {
+        int end = partEnd(input, index);
+        while (end > index && input.charAt(end) == '.') {
+            int next = partEnd(input, end + 1);
+            if (next == end + 1) {
+                break;
+            }
+            end = next;
+        }
+        return end;
+    }
+
+    private int partEnd(InputBuffer input, int index) {
+        while (isAllowedChar(input.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
     protected boolean isAllowedChar(char c) {
+        return isSelectorChar(c);
+    }
+
+    static boolean isSelectorChar(char c) {
         return Character.isJavaIdentifierPart(c) && c != 32;
     }
 }
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+final class StringLiterals {
+
+    private StringLiterals() {
+    }
+
+    //The grammar keeps the escaped text without its leading backslash, e.g. \' is ' and \n is n,
+    //so an escape is decoded by dropping the backslash and copying what follows it
+    static String unescape(String text) {
+        int escape = text.indexOf('\\');
+        if (escape < 0) {
+            return text;
+        }
+
+        StringBuilder value = new StringBuilder(text.length() - 1);
+        int runStart = 0;
+        while (escape >= 0) {
+            value.append(text, runStart, escape);
+            runStart = escape + 1;
+            //The escaped character is copied with the next run, even when it's a backslash itself
+            escape = text.indexOf('\\', escape + 2);
+        }
+        return value.append(text, runStart, text.length()).toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable table of known selectors. Parsers configured with it emit the table's own String instances for
+ * these selectors, so the backends can resolve them through {@link #indexOf(String)} by identity, without
+ * hashing the selector again.
+ */
+public final class SymbolTable {
+
+    public static final SymbolTable EMPTY = new SymbolTable(new String[0]);
+
+    private final String[] symbols;
+    private final int[] slots;
+    private final int mask;
+
+    private SymbolTable(String[] symbols) {
+        this.symbols = symbols;
+
+        int capacity = 2;
+        while (capacity < symbols.length * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < symbols.length; i++) {
+            int slot = spread(symbols[i].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            //Slots keep index + 1, so 0 is an empty slot
+            slots[slot] = i + 1;
+        }
+    }
+
+    public static SymbolTable of(String... symbols) {
+        return of(Arrays.asList(symbols));
+    }
+
+    public static SymbolTable of(Collection<String> symbols) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            distinct.add(Objects.requireNonNull(symbol, "Symbols can't be null"));
+        }
+        return new SymbolTable(distinct.toArray(new String[0]));
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    public String get(int index) {
+        return symbols[index];
+    }
+
+    //The table's own instances are found by identity, any other equal String by equals
+    public int indexOf(String symbol) {
+        int hash = symbol.hashCode();
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            String candidate = symbols[entry - 1];
+            if (candidate == symbol || (candidate.hashCode() == hash && candidate.equals(symbol))) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public boolean contains(String symbol) {
+        return indexOf(symbol) >= 0;
+    }
+
+    public String intern(String symbol) {
+        int index = indexOf(symbol);
+        return index >= 0 ? symbols[index] : symbol;
+    }
+
+    //Finds the symbol for text[start, end) without creating a String, or null when it isn't in the table
+    String lookup(CharSequence text, int start, int end) {
+        if (symbols.length == 0) {
+            return null;
+        }
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return null;
+            }
+            String candidate = symbols[entry - 1];
+            if (candidate.hashCode() == hash && regionMatches(candidate, text, start, end)) {
+                return candidate;
+            }
+        }
+    }
+
+    static boolean regionMatches(String value, CharSequence text, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
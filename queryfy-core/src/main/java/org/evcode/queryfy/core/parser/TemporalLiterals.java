@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import java.text.ParsePosition;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
+import java.time.temporal.TemporalAccessor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds temporal literals straight from their matched fields, with the same results the ISO formatters give
+ * for the text the grammar accepts.
+ */
+final class TemporalLiterals {
+
+    static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final int MAX_CACHED_ENTRIES = 1024;
+    private static final Map<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> DATE_TIME_OFFSETS = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> TIME_OFFSETS = new ConcurrentHashMap<>();
+
+    //When a literal has both an offset and a zone id, JDK 8 keeps its local date time in the zone while
+    //later JDKs keep the instant given by the offset. Literals are resolved the way the running JDK does.
+    private static final boolean OFFSET_INSTANT =
+            ZonedDateTime.parse("2000-01-01T00:00+01:00[UTC]", DateTimeFormatter.ISO_ZONED_DATE_TIME).getHour() == 23;
+
+    private TemporalLiterals() {
+    }
+
+    static int number(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    //Fraction digits are the leading digits of the nanosecond
+    static int nanos(CharSequence text, int start, int end) {
+        int value = number(text, start, end);
+        for (int i = end - start; i < 9; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    //Offsets are resolved once through the ISO parsers as well, since their accepted forms changed between JDKs
+    //(later ones accept +HH on date times). The range is only checked when it's used as the literal's offset.
+    static int dateTimeOffsetSeconds(CharSequence text, int start, int end) {
+        return offsetSeconds(text, start, end, DATE_TIME_OFFSETS,
+                DateTimeFormatter.ISO_OFFSET_DATE_TIME, "2000-01-01T00:00");
+    }
+
+    static int timeOffsetSeconds(CharSequence text, int start, int end) {
+        return offsetSeconds(text, start, end, TIME_OFFSETS, DateTimeFormatter.ISO_OFFSET_TIME, "00:00");
+    }
+
+    private static int offsetSeconds(CharSequence text, int start, int end, Map<String, Integer> offsets,
+                                     DateTimeFormatter formatter, String prefix) {
+        if (end - start == 1 && (text.charAt(start) == 'Z' || text.charAt(start) == 'z')) {
+            return 0;
+        }
+
+        String offset = text.subSequence(start, end).toString();
+        Integer seconds = offsets.get(offset);
+        if (seconds == null) {
+            String temporal = prefix + offset;
+            ParsePosition position = new ParsePosition(0);
+            TemporalAccessor parsed = formatter.parseUnresolved(temporal, position);
+            if (parsed == null || position.getErrorIndex() >= 0 || position.getIndex() < temporal.length()) {
+                throw new DateTimeParseException(String.format("Invalid zone offset '%s'", offset), offset, 0);
+            }
+
+            seconds = (int) parsed.getLong(ChronoField.OFFSET_SECONDS);
+            if (offsets.size() < MAX_CACHED_ENTRIES) {
+                offsets.putIfAbsent(offset, seconds);
+            }
+        }
+        return seconds;
+    }
+
+    //The zone id keeps its brackets, e.g. [America/Sao_Paulo]
+    static ZoneId zone(String zoneId) {
+        ZoneId zone = ZONES.get(zoneId);
+        if (zone == null) {
+            //Resolved once through the ISO parser, so the accepted ids (regions, UTC/GMT prefixes, offsets) don't change
+            zone = ZonedDateTime.parse("2000-01-01T00:00Z" + zoneId, DateTimeFormatter.ISO_ZONED_DATE_TIME).getZone();
+            if (ZONES.size() < MAX_CACHED_ENTRIES) {
+                ZONES.putIfAbsent(zoneId, zone);
+            }
+        }
+        return zone;
+    }
+
+    static Temporal dateTime(LocalDateTime dateTime, int offsetSeconds, ZoneId zone) {
+        if (zone != null) {
+            if (offsetSeconds == NO_OFFSET) {
+                throw new DateTimeParseException("A zone id requires a zone offset", dateTime.toString(), 0);
+            }
+            return OFFSET_INSTANT ?
+                    ZonedDateTime.ofInstant(dateTime, ZoneOffset.ofTotalSeconds(offsetSeconds), zone) :
+                    ZonedDateTime.ofLocal(dateTime, zone, null);
+        }
+
+        if (offsetSeconds != NO_OFFSET) {
+            return ZonedDateTime.of(dateTime, ZoneOffset.ofTotalSeconds(offsetSeconds));
+        }
+        return dateTime;
+    }
+}
@@ -18,67 +18,51 @@ package org.evcode.queryfy.core.parser;
 import org.parboiled.support.Var;
 
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Objects;
 
 class TimeVar extends Var<LocalTime> {
 
-    private String hour = "00";
-    private String minute = "00";
-    private String second = "00";
-    private String nanosecond;
-    private String zoneOffset;
+    private int hour;
+    private int minute;
+    private int second;
+    private int nanosecond;
 
     public boolean appendHour(String hours) {
-        this.hour = hours;
+        this.hour = TemporalLiterals.number(hours, 0, hours.length());
         return true;
     }
 
     public boolean appendMinute(String minutes) {
-        this.minute = minutes;
+        this.minute = TemporalLiterals.number(minutes, 0, minutes.length());
         return true;
     }
 
     public boolean appendSecond(String seconds) {
-        this.second = seconds;
+        this.second = TemporalLiterals.number(seconds, 0, seconds.length());
         return true;
     }
 
     public boolean appendNanosecond(String nanoseconds) {
-        this.nanosecond = nanoseconds;
+        this.nanosecond = TemporalLiterals.nanos(nanoseconds, 0, nanoseconds.length());
         return true;
     }
 
+    //The offset is validated, but a LocalTime has always been built from the local part only
     public boolean appendZoneOffset(String zoneOffset) {
-        this.zoneOffset = zoneOffset;
+        TemporalLiterals.timeOffsetSeconds(zoneOffset, 0, zoneOffset.length());
         return true;
     }
 
-    private void build() {
-
-        Objects.requireNonNull(hour);
-        Objects.requireNonNull(minute);
-
-        StringBuilder timeString = new StringBuilder();
-        timeString.append(hour);
-        timeString.append(":");
-        timeString.append(minute);
-        timeString.append(":");
-        timeString.append(second);
-
-        if (nanosecond != null) {
-            timeString.append(".").append(nanosecond);
-        }
-
-        if (zoneOffset != null) {
-            timeString.append(zoneOffset);
-        }
-
-        LocalTime time = zoneOffset != null ?
-                LocalTime.parse(timeString.toString(), DateTimeFormatter.ISO_OFFSET_TIME) :
-                LocalTime.parse(timeString.toString(), DateTimeFormatter.ISO_TIME);
+    @Override
+    public boolean enterFrame() {
+        this.hour = 0;
+        this.minute = 0;
+        this.second = 0;
+        this.nanosecond = 0;
+        return super.enterFrame();
+    }
 
-        set(time);
+    private void build() {
+        set(LocalTime.of(hour, minute, second, nanosecond));
     }
 
     @Override
@@ -88,4 +72,4 @@ class TimeVar extends Var<LocalTime> {
         }
         return super.get();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.parserunners.AbstractParseRunner;
+import org.parboiled.support.ParsingResult;
+
+/**
+ * A parse runner that builds nothing but the value stack. Like the BasicParseRunner it creates no parse tree
+ * nodes (the rules of QueryParser are all node suppressed), and it also keeps its input buffer, value stack and
+ * matcher contexts across runs, so a valid query allocates only its AST. It doesn't track errors: a failed run is
+ * repeated by the error locating and reporting runners to find the error position.
+ * <p>
+ * It's owned by a single parser instance and must not be used by two threads at once.
+ */
+final class ValueStackParseRunner extends AbstractParseRunner<Object> implements MatchHandler {
+
+    private final QueryInputBuffer inputBuffer = new QueryInputBuffer();
+    private MatcherContext<Object> rootContext;
+
+    ValueStackParseRunner(Rule rule) {
+        super(rule);
+    }
+
+    @Override
+    public ParsingResult<Object> run(String input) {
+        inputBuffer.reset(input);
+        return run(inputBuffer);
+    }
+
+    @Override
+    public ParsingResult<Object> run(InputBuffer inputBuffer) {
+        resetValueStack();
+        getParseErrors().clear();
+
+        MatcherContext<Object> context;
+        if (inputBuffer == this.inputBuffer) {
+            if (rootContext == null) {
+                rootContext = createRootContext(inputBuffer, this, true);
+            }
+            //A run retires the root matcher, so the reused context is rewound to the start of the new input
+            context = rootContext;
+            context.setMatcher(getRootMatcher());
+            context.setStartIndex(0);
+            context.setCurrentIndex(0);
+        } else {
+            context = createRootContext(inputBuffer, this, true);
+        }
+
+        boolean matched = context.runMatcher();
+        return createParsingResult(matched, context);
+    }
+
+    @Override
+    public boolean match(MatcherContext<?> context) {
+        return context.getMatcher().match(context);
+    }
+}
@@ -18,12 +18,27 @@ package org.evcode.queryfy.core.parser.ast;
 import org.evcode.queryfy.core.operator.LogicalOperatorType;
 import org.evcode.queryfy.core.Visitor;
 
+import java.util.List;
+
 public final class AndNode extends LogicalNode {
 
     public AndNode(final Node rightOperation, final Node leftOperation) {
         super(rightOperation, leftOperation, LogicalOperatorType.AND);
     }
 
+    public AndNode(final List<Node> operations) {
+        super(operations, LogicalOperatorType.AND);
+    }
+
+    private AndNode(final LogicalOperatorType operator, final List<Node> operations) {
+        super(operator, operations);
+    }
+
+    @Override
+    LogicalNode create(List<Node> operations) {
+        return new AndNode(LogicalOperatorType.AND, operations);
+    }
+
     @Override
     public <R, A> R accept(final Visitor<R, A> visitor, A param) {
         return visitor.visit(this, param);
@@ -15,9 +15,13 @@
  */
 package org.evcode.queryfy.core.parser.ast;
 
+import org.evcode.queryfy.core.operator.ListOperatorType;
 import org.evcode.queryfy.core.operator.Operator;
 import org.evcode.queryfy.core.Visitor;
+import org.evcode.queryfy.core.parser.SymbolTable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public final class FilterNode implements Node {
@@ -25,11 +29,37 @@ public final class FilterNode implements Node {
     private final Operator operator;
     private final String selector;
     private final List<Object> args;
+    private final SymbolTable symbolTable;
+    private final int selectorIndex;
 
     public FilterNode(final Operator operator, final String selector, final List<Object> args) {
+        this(operator, selector, args, null, -1);
+    }
+
+    //Parsed nodes keep the index of their selector in the parser's symbol table, or -1 when it isn't there
+    public FilterNode(final Operator operator, final String selector, final List<Object> args,
+                      final SymbolTable symbolTable, final int selectorIndex) {
         this.operator = operator;
         this.selector = selector;
-        this.args = args;
+        this.symbolTable = symbolTable;
+        this.selectorIndex = selectorIndex;
+        //Homogeneous numeric lists are kept as sorted primitive arrays, which matters for large id lists
+        this.args = immutable(operator instanceof ListOperatorType ? PrimitiveArgs.compact(args) : args);
+    }
+
+    //Nodes are shared by cached and prepared queries, so their args are copied and can't be changed
+    private static List<Object> immutable(List<Object> args) {
+        if (args == null || args instanceof PrimitiveArgs) {
+            return args;
+        }
+        switch (args.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(args.get(0));
+            default:
+                return Collections.unmodifiableList(new ArrayList<>(args));
+        }
     }
 
     public Operator getOperator() {
@@ -44,6 +74,36 @@ public final class FilterNode implements Node {
         return args;
     }
 
+    //The index of the selector in a symbol table, found again only when the node was parsed with another table
+    public int getSelectorIndex(SymbolTable symbolTable) {
+        return symbolTable == this.symbolTable ? selectorIndex : symbolTable.indexOf(selector);
+    }
+
+    //A node of the same selector, which keeps its symbol index
+    public FilterNode withOperation(Operator operator, List<Object> args) {
+        return new FilterNode(operator, selector, args, symbolTable, selectorIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        FilterNode that = (FilterNode) o;
+
+        if (operator != null ? !operator.equals(that.operator) : that.operator != null) return false;
+        if (selector != null ? !selector.equals(that.selector) : that.selector != null) return false;
+        return args != null ? args.equals(that.args) : that.args == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = operator != null ? operator.hashCode() : 0;
+        result = 31 * result + (selector != null ? selector.hashCode() : 0);
+        result = 31 * result + (args != null ? args.hashCode() : 0);
+        return result;
+    }
+
     @Override
     public <R, A> R accept(final Visitor<R, A> visitor, A param) {
         return visitor.visit(this, param);
@@ -17,27 +17,76 @@ package org.evcode.queryfy.core.parser.ast;
 
 import org.evcode.queryfy.core.operator.LogicalOperatorType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public abstract class LogicalNode implements Node {
 
-    private final Node rightOperation;
-    private final Node leftOperation;
+    private final List<Node> operations;
     private final LogicalOperatorType operator;
+    private Node leftOperation;
 
     public LogicalNode(final Node rightOperation, final Node leftOperation, final LogicalOperatorType operator) {
-        this.rightOperation = rightOperation;
-        this.leftOperation = leftOperation;
+        this.operations = Collections.unmodifiableList(Arrays.asList(leftOperation, rightOperation));
+        this.operator = operator;
+    }
+
+    public LogicalNode(final List<Node> operations, final LogicalOperatorType operator) {
+        this(operator, Collections.unmodifiableList(new ArrayList<>(operations)));
+    }
+
+    //Takes an unmodifiable list as it is
+    LogicalNode(final LogicalOperatorType operator, final List<Node> operations) {
+        if (operations.size() < 2) {
+            throw new IllegalArgumentException("A logical operation needs at least two operations");
+        }
+        this.operations = operations;
         this.operator = operator;
     }
 
+    //The operations in the query order. Chains of the same operator are flattened into a single node at parse time
+    public List<Node> getOperations() {
+        return operations;
+    }
+
+    //The binary view of the node: its last operation
     public Node getRightOperation() {
-        return rightOperation;
+        return operations.get(operations.size() - 1);
     }
 
+    //The binary view of the node: its first operation, or a node of all the operations before the last one
     public Node getLeftOperation() {
+        if (operations.size() == 2) {
+            return operations.get(0);
+        }
+        if (leftOperation == null) {
+            leftOperation = create(operations.subList(0, operations.size() - 1));
+        }
         return leftOperation;
     }
 
+    abstract LogicalNode create(List<Node> operations);
+
     public LogicalOperatorType getOperator() {
         return operator;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LogicalNode that = (LogicalNode) o;
+
+        return operator == that.operator && operations.equals(that.operations);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = operations.hashCode();
+        result = 31 * result + (operator != null ? operator.hashCode() : 0);
+        return result;
+    }
 }
@@ -18,12 +18,27 @@ package org.evcode.queryfy.core.parser.ast;
 import org.evcode.queryfy.core.operator.LogicalOperatorType;
 import org.evcode.queryfy.core.Visitor;
 
+import java.util.List;
+
 public final class OrNode extends LogicalNode {
 
     public OrNode(final Node rightOperation, final Node leftOperation) {
         super(rightOperation, leftOperation, LogicalOperatorType.OR);
     }
 
+    public OrNode(final List<Node> operations) {
+        super(operations, LogicalOperatorType.OR);
+    }
+
+    private OrNode(final LogicalOperatorType operator, final List<Node> operations) {
+        super(operator, operations);
+    }
+
+    @Override
+    LogicalNode create(List<Node> operations) {
+        return new OrNode(LogicalOperatorType.OR, operations);
+    }
+
     @Override
     public <R, A> R accept(final Visitor<R, A> visitor, final A param) {
         return visitor.visit(this, param);
@@ -32,6 +32,21 @@ public final class OrderNode implements Node {
         return orderSpecifiers;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OrderNode orderNode = (OrderNode) o;
+
+        return orderSpecifiers != null ? orderSpecifiers.equals(orderNode.orderSpecifiers) : orderNode.orderSpecifiers == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return orderSpecifiers != null ? orderSpecifiers.hashCode() : 0;
+    }
+
     @Override
     public <R, A> R accept(final Visitor<R, A> visitor, final A param) {
         return visitor.visit(this, param);
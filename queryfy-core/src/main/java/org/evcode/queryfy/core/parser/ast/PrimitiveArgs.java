@@ -0,0 +1,232 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.ast;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list views over sorted and deduplicated primitive arrays, used to hold homogeneous numeric
+ * arguments of list operations (eg. large id lists) without keeping a boxed instance per value.
+ */
+public abstract class PrimitiveArgs extends AbstractList<Object> implements RandomAccess {
+
+    private PrimitiveArgs() {
+    }
+
+    static List<Object> compact(List<Object> args) {
+        if (args == null || args.isEmpty() || args instanceof PrimitiveArgs) {
+            return args;
+        }
+
+        Class<?> type = args.get(0).getClass();
+        for (Object arg : args) {
+            if (arg == null || arg.getClass() != type) {
+                return args;
+            }
+        }
+
+        int size = args.size();
+        if (type == Long.class) {
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Long) args.get(i);
+            }
+            Arrays.sort(values);
+            return new Longs(Arrays.copyOf(values, distinct(values)));
+        }
+
+        if (type == Integer.class) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Integer) args.get(i);
+            }
+            Arrays.sort(values);
+            return new Ints(Arrays.copyOf(values, distinct(values)));
+        }
+
+        if (type == Double.class) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Double) args.get(i);
+            }
+            Arrays.sort(values);
+            return new Doubles(Arrays.copyOf(values, distinct(values)));
+        }
+
+        return args;
+    }
+
+    //Moves the distinct values of a sorted array to its beginning, returning how many there are
+    private static int distinct(long[] values) {
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size;
+    }
+
+    private static int distinct(int[] values) {
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size;
+    }
+
+    //Same equality as Double.equals, so 0.0 and -0.0 are kept apart
+    private static int distinct(double[] values) {
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (size == 0 || Double.compare(values[size - 1], values[i]) != 0) {
+                values[size++] = values[i];
+            }
+        }
+        return size;
+    }
+
+    public abstract Class<? extends Number> getType();
+
+    public static final class Longs extends PrimitiveArgs {
+
+        private final long[] values;
+
+        private Longs(long[] values) {
+            this.values = values;
+        }
+
+        public long getLong(int index) {
+            return values[index];
+        }
+
+        public boolean contains(long value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        public long[] toLongArray() {
+            return values.clone();
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Long && contains((long) (Long) o);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Class<Long> getType() {
+            return Long.class;
+        }
+    }
+
+    public static final class Ints extends PrimitiveArgs {
+
+        private final int[] values;
+
+        private Ints(int[] values) {
+            this.values = values;
+        }
+
+        public int getInt(int index) {
+            return values[index];
+        }
+
+        public boolean contains(int value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        public int[] toIntArray() {
+            return values.clone();
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && contains((int) (Integer) o);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Class<Integer> getType() {
+            return Integer.class;
+        }
+    }
+
+    public static final class Doubles extends PrimitiveArgs {
+
+        private final double[] values;
+
+        private Doubles(double[] values) {
+            this.values = values;
+        }
+
+        public double getDouble(int index) {
+            return values[index];
+        }
+
+        public boolean contains(double value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        public double[] toDoubleArray() {
+            return values.clone();
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Double && contains((double) (Double) o);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Class<Double> getType() {
+            return Double.class;
+        }
+    }
+}
@@ -32,6 +32,21 @@ public final class ProjectionNode implements Node {
         return Collections.unmodifiableSet(selectors);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ProjectionNode that = (ProjectionNode) o;
+
+        return selectors != null ? selectors.equals(that.selectors) : that.selectors == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return selectors != null ? selectors.hashCode() : 0;
+    }
+
     @Override
     public <R, A> R accept(Visitor<R, A> visitor, A param) {
         return visitor.visit(this, param);
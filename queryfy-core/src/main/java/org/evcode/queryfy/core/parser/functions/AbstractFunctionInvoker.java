@@ -16,43 +16,151 @@
 
 package org.evcode.queryfy.core.parser.functions;
 
-import java.util.Arrays;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class AbstractFunctionInvoker implements FunctionInvoker {
 
     protected final HashMap<String, List<Class[]>> functions = new HashMap<>();
+    protected final HashMap<String, FunctionDeterminism> determinism = new HashMap<>();
+    private final HashMap<String, List<Binding>> bindings = new HashMap<>();
+    //Subclasses overriding the deprecated signature check are still called through it
+    private final boolean legacySignatureCheck = overridesLegacySignatureCheck(getClass());
 
     protected void addFunction(String functionName, List<Class[]> signatures) {
         functions.put(functionName, signatures);
     }
 
+    protected void addFunction(String functionName, List<Class[]> signatures, FunctionDeterminism determinism) {
+        functions.put(functionName, signatures);
+        this.determinism.put(functionName, determinism);
+    }
+
+    //Binds a function signature to a handle, its parameter types are the signature. A function can be bound once per
+    //signature, and its calls are resolved to the handle instead of going through invoke
+    protected void addFunction(String functionName, MethodHandle handle, FunctionDeterminism determinism) {
+        Class<?>[] signature = handle.type().wrap().parameterArray();
+
+        List<Class[]> signatures = new ArrayList<>(functions.getOrDefault(functionName, Collections.emptyList()));
+        signatures.add(signature);
+        functions.put(functionName, signatures);
+        bindings.computeIfAbsent(functionName, p -> new ArrayList<>())
+                .add(new Binding(signature, FunctionHandles.adapt(handle)));
+        this.determinism.put(functionName, determinism);
+    }
+
+    //Finds a static method of the lookup class, to be bound to a function
+    protected static MethodHandle findStatic(MethodHandles.Lookup lookup, String methodName, Class<?> returnType,
+                                             Class<?>... parameterTypes) {
+        try {
+            return lookup.findStatic(lookup.lookupClass(), methodName,
+                    MethodType.methodType(returnType, parameterTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Invalid function method " + methodName, e);
+        }
+    }
+
+    @Override
+    public Object invoke(String function, Object... args) {
+        MethodHandle handle = findBinding(function, args);
+        if (handle == null) {
+            throw new IllegalArgumentException("Function " + function + " is not supported.");
+        }
+        return FunctionHandles.invoke(handle, args);
+    }
+
+    @Override
+    public MethodHandle resolve(String function, Object... args) {
+        MethodHandle handle = findBinding(function, args);
+        return handle != null ? handle : FunctionInvoker.super.resolve(function, args);
+    }
+
+    @Override
+    public FunctionDeterminism getDeterminism(String function, Object... args) {
+        return determinism.getOrDefault(function, FunctionDeterminism.NONDETERMINISTIC);
+    }
+
+    @Override
+    public Map<String, Set<Integer>> getFunctionArities() {
+        Map<String, Set<Integer>> arities = new HashMap<>();
+        for (Map.Entry<String, List<Class[]>> function : functions.entrySet()) {
+            Set<Integer> functionArities = new HashSet<>();
+            for (Class<?>[] signature : function.getValue()) {
+                functionArities.add(signature.length);
+            }
+            if (functionArities.isEmpty()) {
+                functionArities.add(0);
+            }
+            arities.put(function.getKey(), functionArities);
+        }
+        return arities;
+    }
+
+    //Called on every function invocation, so it doesn't allocate
     @Override
     public boolean canHandle(String function, Object... args) {
-        if (!functions.containsKey(function))
+        List<Class[]> signatureTypes = functions.get(function);
+        if (signatureTypes == null)
             return false;
 
-        List<Class[]> signatureTypes = functions.get(function);
-        if (args.length == 0 && signatureTypes.size() == 0) {
-            return true;
+        if (signatureTypes.size() == 0) {
+            return args.length == 0;
         }
 
-        if (signatureTypes.size() == 0 && args.length > 0) {
-            return false;
+        for (int i = 0; i < signatureTypes.size(); i++) {
+            Class<?>[] signature = signatureTypes.get(i);
+            if (signature.length == args.length && isValidArgsForSignature(signature, args)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        Class[] callingArgsCls = Arrays.asList(args).stream()
-                .map(p -> p.getClass())
-                .collect(Collectors.toList())
-                .toArray(new Class[0]);
+    private MethodHandle findBinding(String function, Object[] args) {
+        List<Binding> functionBindings = bindings.get(function);
+        if (functionBindings == null) {
+            return null;
+        }
 
-        return signatureTypes.stream()
-                .filter(p -> p.length == callingArgsCls.length)
-                .anyMatch(signature -> isValidArgsForSignature(signature, callingArgsCls));
+        for (int i = 0; i < functionBindings.size(); i++) {
+            Binding binding = functionBindings.get(i);
+            if (binding.signature.length == args.length && isValidArgsForSignature(binding.signature, args)) {
+                return binding.handle;
+            }
+        }
+        return null;
+    }
+
+    protected boolean isValidArgsForSignature(Class[] signature, Object[] args) {
+        if (legacySignatureCheck) {
+            Class<?>[] argsCls = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                argsCls[i] = args[i] != null ? args[i].getClass() : null;
+            }
+            return isValidArgsForSignature(signature, argsCls);
+        }
+
+        for (int i = 0; i < signature.length; i++) {
+            if (!signature[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * @deprecated checks the argument classes, which must be taken from the arguments on every call. Override
+     * {@link #isValidArgsForSignature(Class[], Object[])} instead
+     */
+    @Deprecated
     protected boolean isValidArgsForSignature(Class[] signature, Class[] args) {
         for (int i = 0; i < signature.length; i++) {
             if (!signature[i].isAssignableFrom(args[i])) {
@@ -61,4 +169,27 @@ public abstract class AbstractFunctionInvoker implements FunctionInvoker {
         }
         return true;
     }
+
+    private static boolean overridesLegacySignatureCheck(Class<?> type) {
+        for (; type != AbstractFunctionInvoker.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("isValidArgsForSignature", Class[].class, Class[].class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                //Checks the superclass
+            }
+        }
+        return false;
+    }
+
+    private static final class Binding {
+
+        private final Class<?>[] signature;
+        private final MethodHandle handle;
+
+        private Binding(Class<?>[] signature, MethodHandle handle) {
+            this.signature = signature;
+            this.handle = handle;
+        }
+    }
 }
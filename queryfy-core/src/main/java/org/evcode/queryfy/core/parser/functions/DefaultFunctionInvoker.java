@@ -15,25 +15,31 @@
  */
 package org.evcode.queryfy.core.parser.functions;
 
+import java.lang.invoke.MethodHandle;
 import java.util.*;
 
 public class DefaultFunctionInvoker implements FunctionInvoker {
 
     public static final int DEFAULT_PRIORITY = 0;
     public static final int PROVIDED_PRIORITY = -1;
-    private final static Set<CustomFunction> discoveredFunctions = new HashSet<>();
 
-    static {
-        Iterator<CustomFunction> functionInvokerIterator = ServiceLoader.load(CustomFunction.class).iterator();
-        functionInvokerIterator.forEachRemaining(discoveredFunctions::add);
-    }
+    //Copy-on-write: invocations read the current table without locking, registrations replace it
+    private volatile FunctionTable table;
 
-    private final Set<CustomFunction> registeredInvokers = new HashSet<>();
+    //Discovered functions are registered on the first call of one of their names, so only the ones used by
+    //queries are instantiated
+    private final FunctionIndex index = FunctionIndex.get();
+    private volatile Set<String> undiscovered;
+    private volatile boolean unindexedPending;
+    private final Set<CustomFunction> unregistered = new HashSet<>();
 
     public DefaultFunctionInvoker() {
-        registeredInvokers.add(CustomFunction.of(new TemporalFunctionInvoker(), PROVIDED_PRIORITY));
-        registeredInvokers.add(CustomFunction.of(new StringFunctionInvoker(), PROVIDED_PRIORITY));
-        registeredInvokers.addAll(discoveredFunctions);
+        List<CustomFunction> functions = new ArrayList<>();
+        functions.add(CustomFunction.of(new TemporalFunctionInvoker(), PROVIDED_PRIORITY));
+        functions.add(CustomFunction.of(new StringFunctionInvoker(), PROVIDED_PRIORITY));
+        table = new FunctionTable(functions);
+        undiscovered = index.getFunctionNames();
+        unindexedPending = index.hasUnindexedProviders();
     }
 
     public static DefaultFunctionInvoker with(FunctionInvoker... functionInvoker) {
@@ -48,39 +54,48 @@ public class DefaultFunctionInvoker implements FunctionInvoker {
         return invoker;
     }
 
-    public DefaultFunctionInvoker register(CustomFunction function) {
-        this.registeredInvokers.add(function);
+    public synchronized DefaultFunctionInvoker register(CustomFunction function) {
+        List<CustomFunction> functions = table.getFunctions();
+        //Functions are compared by their invoker, an invoker is only registered once
+        unregistered.remove(function);
+        if (!functions.contains(function)) {
+            List<CustomFunction> registered = new ArrayList<>(functions);
+            registered.add(function);
+            table = new FunctionTable(registered);
+        }
         return this;
     }
 
     public DefaultFunctionInvoker register(FunctionInvoker function) {
-        this.registeredInvokers.add(CustomFunction.of(function));
-        return this;
+        return register(CustomFunction.of(function));
     }
 
     public DefaultFunctionInvoker register(FunctionInvoker function, int priority) {
-        this.registeredInvokers.add(CustomFunction.of(function, priority));
-        return this;
+        return register(CustomFunction.of(function, priority));
     }
 
-    public DefaultFunctionInvoker unregister(CustomFunction function) {
-        this.registeredInvokers.remove(function);
+    public synchronized DefaultFunctionInvoker unregister(CustomFunction function) {
+        //Keeps it from being registered again if it's discovered later
+        unregistered.add(function);
+        List<CustomFunction> functions = table.getFunctions();
+        if (functions.contains(function)) {
+            List<CustomFunction> registered = new ArrayList<>(functions);
+            registered.remove(function);
+            table = new FunctionTable(registered);
+        }
         return this;
     }
 
-    public DefaultFunctionInvoker unregisterAll() {
-        this.registeredInvokers.clear();
+    public synchronized DefaultFunctionInvoker unregisterAll() {
+        undiscovered = Collections.emptySet();
+        unindexedPending = false;
+        table = new FunctionTable(Collections.emptyList());
         return this;
     }
 
     @Override
     public Object invoke(String function, Object... args) {
-        FunctionInvoker invoker = registeredInvokers.stream()
-                .filter(p -> p.getInvoker().canHandle(function, args))
-                .sorted(Comparator.comparingInt(p -> p.getPriority()))
-                .map(p -> p.getInvoker())
-                .findFirst()
-                .orElse(null);
+        FunctionInvoker invoker = find(function, args);
 
         if (invoker == null) {
             throw new IllegalArgumentException(String.format("Custom function %s with %s argument(s) is not supported",
@@ -92,9 +107,60 @@ public class DefaultFunctionInvoker implements FunctionInvoker {
 
     @Override
     public boolean canHandle(String function, Object... args) {
-        return registeredInvokers.parallelStream()
-                .filter(p -> p.getInvoker().canHandle(function, args))
-                .findFirst()
-                .isPresent();
+        return find(function, args) != null;
+    }
+
+    //Binds the call to the handle of the invoker handling it, so it isn't dispatched again when invoked
+    @Override
+    public MethodHandle resolve(String function, Object... args) {
+        FunctionInvoker invoker = find(function, args);
+        return invoker != null ? invoker.resolve(function, args) : null;
+    }
+
+    //Dispatched once to the invoker handling the call, which resolves its handle and determinism
+    @Override
+    public ResolvedCall resolveCall(String function, Object... args) {
+        FunctionInvoker invoker = find(function, args);
+        return invoker != null ? invoker.resolveCall(function, args) : null;
+    }
+
+    //The determinism declared by the invoker handling the call
+    @Override
+    public FunctionDeterminism getDeterminism(String function, Object... args) {
+        FunctionInvoker invoker = find(function, args);
+        return invoker != null ? invoker.getDeterminism(function, args) : FunctionDeterminism.NONDETERMINISTIC;
+    }
+
+    private FunctionInvoker find(String function, Object[] args) {
+        if (unindexedPending || undiscovered.contains(function)) {
+            discover(function);
+        }
+        return table.find(function, args);
+    }
+
+    private synchronized void discover(String function) {
+        List<CustomFunction> discovered = new ArrayList<>();
+        if (unindexedPending) {
+            discovered.addAll(index.loadUnindexed());
+            unindexedPending = false;
+        }
+        if (undiscovered.contains(function)) {
+            discovered.addAll(index.load(function));
+            Set<String> remaining = new HashSet<>(undiscovered);
+            remaining.remove(function);
+            undiscovered = remaining;
+        }
+        //Another call may have discovered them already
+        if (discovered.isEmpty()) {
+            return;
+        }
+
+        List<CustomFunction> functions = new ArrayList<>(table.getFunctions());
+        for (CustomFunction discoveredFunction : discovered) {
+            if (!functions.contains(discoveredFunction) && !unregistered.contains(discoveredFunction)) {
+                functions.add(discoveredFunction);
+            }
+        }
+        table = new FunctionTable(functions);
     }
-}
\ No newline at end of file
+}
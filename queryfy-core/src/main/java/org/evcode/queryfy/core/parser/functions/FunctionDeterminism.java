@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.functions;
+
+/**
+ * How the result of a custom function call may be reused, declared by its {@link FunctionInvoker}.
+ */
+public enum FunctionDeterminism {
+
+    //The same arguments give the same result, so the call is folded once and cached with the parsed query
+    DETERMINISTIC,
+
+    //The result depends on the clock (eg. @now()), so the call is evaluated again on every parse or cached
+    //up to the end of a clock bucket of the QueryCache
+    TIME_DEPENDENT,
+
+    //The call is evaluated on every parse and never cached
+    NONDETERMINISTIC;
+
+    //The determinism of a call using the result of another one
+    public FunctionDeterminism combine(FunctionDeterminism other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.functions;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Resolved function calls are handles of type {@code (Object[])Object}, so call sites invoke them exactly
+ * whatever the function signature is.
+ */
+public final class FunctionHandles {
+
+    public static final MethodType CALL_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final MethodHandle INVOKE;
+
+    static {
+        try {
+            INVOKE = MethodHandles.publicLookup().findVirtual(FunctionInvoker.class, "invoke",
+                    MethodType.methodType(Object.class, String.class, Object[].class)).asFixedArity();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FunctionHandles() {
+    }
+
+    //Adapts a handle with typed parameters to the call type, arguments are cast when it's invoked
+    public static MethodHandle adapt(MethodHandle handle) {
+        MethodType type = handle.type();
+        return handle.asType(type.generic())
+                .asSpreader(Object[].class, type.parameterCount())
+                .asType(CALL_TYPE);
+    }
+
+    //A call going through FunctionInvoker.invoke, for invokers that don't bind their functions to handles
+    public static MethodHandle invoker(FunctionInvoker invoker, String function) {
+        return MethodHandles.insertArguments(INVOKE, 0, invoker, function);
+    }
+
+    public static Object invoke(MethodHandle handle, Object... args) {
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Custom function invocation failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.functions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the {@link CustomFunction} providers in the classpath by function name, read from the
+ * META-INF/queryfy/functions.properties resources (function name = comma separated provider classes) without
+ * instantiating them. Providers are only instantiated when one of their functions is called, and only once.
+ * Providers registered in META-INF/services but missing from the index can't be told apart, so they're all loaded
+ * on the first call.
+ */
+final class FunctionIndex {
+
+    static final String INDEX_RESOURCE = "META-INF/queryfy/functions.properties";
+    static final String SERVICES_RESOURCE = "META-INF/services/" + CustomFunction.class.getName();
+
+    private final ClassLoader classLoader;
+    private final Map<String, List<String>> providers = new HashMap<>();
+    private final List<String> unindexedProviders = new ArrayList<>();
+    private final ConcurrentHashMap<String, CustomFunction> instances = new ConcurrentHashMap<>();
+
+    private FunctionIndex(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+
+        Set<String> indexedProviders = new HashSet<>();
+        for (URL url : resources(INDEX_RESOURCE)) {
+            Properties index = new Properties();
+            try (InputStream input = url.openStream()) {
+                index.load(input);
+            } catch (IOException e) {
+                throw new ServiceConfigurationError("Invalid function index " + url, e);
+            }
+
+            for (String function : index.stringPropertyNames()) {
+                for (String provider : index.getProperty(function).split(",")) {
+                    if (!provider.trim().isEmpty()) {
+                        providers.computeIfAbsent(function, p -> new ArrayList<>()).add(provider.trim());
+                        indexedProviders.add(provider.trim());
+                    }
+                }
+            }
+        }
+
+        for (URL url : resources(SERVICES_RESOURCE)) {
+            for (String provider : readServices(url)) {
+                if (!indexedProviders.contains(provider) && !unindexedProviders.contains(provider)) {
+                    unindexedProviders.add(provider);
+                }
+            }
+        }
+    }
+
+    //Read once on first use, from the context class loader as ServiceLoader.load does
+    static FunctionIndex get() {
+        return Holder.INDEX;
+    }
+
+    Set<String> getFunctionNames() {
+        return Collections.unmodifiableSet(providers.keySet());
+    }
+
+    boolean hasUnindexedProviders() {
+        return !unindexedProviders.isEmpty();
+    }
+
+    List<CustomFunction> load(String function) {
+        return load(providers.getOrDefault(function, Collections.emptyList()));
+    }
+
+    List<CustomFunction> loadUnindexed() {
+        return load(unindexedProviders);
+    }
+
+    private List<CustomFunction> load(List<String> classNames) {
+        List<CustomFunction> functions = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            functions.add(instances.computeIfAbsent(className, this::instantiate));
+        }
+        return functions;
+    }
+
+    private CustomFunction instantiate(String className) {
+        try {
+            return Class.forName(className, true, classLoader).asSubclass(CustomFunction.class)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            throw new ServiceConfigurationError("Custom function " + className + " could not be instantiated", e);
+        }
+    }
+
+    private List<URL> resources(String name) {
+        try {
+            return Collections.list(classLoader.getResources(name));
+        } catch (IOException e) {
+            throw new ServiceConfigurationError("Invalid resource " + name, e);
+        }
+    }
+
+    //Provider configuration files hold a class name per line, with # comments
+    private static List<String> readServices(URL url) {
+        List<String> classNames = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!className.isEmpty()) {
+                    classNames.add(className);
+                }
+            }
+        } catch (IOException e) {
+            throw new ServiceConfigurationError("Invalid provider configuration " + url, e);
+        }
+        return classNames;
+    }
+
+    private static final class Holder {
+
+        private static final FunctionIndex INDEX = new FunctionIndex(classLoader());
+
+        private static ClassLoader classLoader() {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            return classLoader != null ? classLoader : FunctionIndex.class.getClassLoader();
+        }
+    }
+}
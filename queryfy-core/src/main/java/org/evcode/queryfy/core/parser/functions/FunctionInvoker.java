@@ -15,10 +15,38 @@
  */
 package org.evcode.queryfy.core.parser.functions;
 
+import java.lang.invoke.MethodHandle;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
 public interface FunctionInvoker {
 
     Object invoke(String function, Object... args);
 
     boolean canHandle(String function, Object... args);
-    
+
+    //The functions handled by this invoker and their arities, used to index it when registered.
+    //An invoker that doesn't declare them is asked through canHandle on every call instead, and one handling other
+    //arities of a declared function is asked after the invokers declaring the called arity
+    default Map<String, Set<Integer>> getFunctionArities() {
+        return Collections.emptyMap();
+    }
+
+    //Whether the result of a call can be reused. Undeclared functions are evaluated on every parse
+    default FunctionDeterminism getDeterminism(String function, Object... args) {
+        return FunctionDeterminism.NONDETERMINISTIC;
+    }
+
+    //Resolves a call once to a handle of type FunctionHandles.CALL_TYPE, or null when it isn't handled.
+    //By default the handle goes through invoke
+    default MethodHandle resolve(String function, Object... args) {
+        return canHandle(function, args) ? FunctionHandles.invoker(this, function) : null;
+    }
+
+    //Resolves a call to its handle and determinism at once, or null when it isn't handled
+    default ResolvedCall resolveCall(String function, Object... args) {
+        MethodHandle handle = resolve(function, args);
+        return handle != null ? new ResolvedCall(handle, getDeterminism(function, args)) : null;
+    }
 }
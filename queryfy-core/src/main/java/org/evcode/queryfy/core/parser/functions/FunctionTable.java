@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.functions;
+
+import java.util.*;
+
+/**
+ * Immutable dispatch index of the registered functions, keyed by function name and arity. Each key holds the
+ * invokers that may handle it already sorted by priority, so a call only asks those through canHandle.
+ * Invokers may handle more arities than they declare (eg. varargs functions through an overridden canHandle), so
+ * a call no candidate handles falls back to the invokers declaring the function with other arities.
+ */
+final class FunctionTable {
+
+    private static final FunctionInvoker[] NONE = new FunctionInvoker[0];
+
+    private final List<CustomFunction> functions;
+    private final Map<String, FunctionInvoker[][]> invokers = new HashMap<>();
+    private final Map<String, FunctionInvoker[]> invokersByName = new HashMap<>();
+    //Invokers that don't declare their functions, they are candidates of every call
+    private final FunctionInvoker[] undeclared;
+
+    FunctionTable(List<CustomFunction> functions) {
+        this.functions = Collections.unmodifiableList(functions);
+
+        //A stable sort keeps the registration order between functions of the same priority
+        List<CustomFunction> sorted = new ArrayList<>(functions);
+        sorted.sort(Comparator.comparingInt(CustomFunction::getPriority));
+
+        List<FunctionInvoker> undeclaredInvokers = new ArrayList<>();
+        Map<String, Map<Integer, List<FunctionInvoker>>> candidates = new HashMap<>();
+        Map<String, List<FunctionInvoker>> byName = new HashMap<>();
+        for (CustomFunction function : sorted) {
+            Map<String, Set<Integer>> arities = function.getInvoker().getFunctionArities();
+            if (arities.isEmpty()) {
+                undeclaredInvokers.add(function.getInvoker());
+                for (Map<Integer, List<FunctionInvoker>> functionCandidates : candidates.values()) {
+                    for (List<FunctionInvoker> arityCandidates : functionCandidates.values()) {
+                        arityCandidates.add(function.getInvoker());
+                    }
+                }
+                continue;
+            }
+
+            for (Map.Entry<String, Set<Integer>> arity : arities.entrySet()) {
+                byName.computeIfAbsent(arity.getKey(), name -> new ArrayList<>()).add(function.getInvoker());
+                Map<Integer, List<FunctionInvoker>> functionCandidates =
+                        candidates.computeIfAbsent(arity.getKey(), name -> new HashMap<>());
+                for (Integer argsLength : arity.getValue()) {
+                    functionCandidates.computeIfAbsent(argsLength, length -> new ArrayList<>(undeclaredInvokers))
+                            .add(function.getInvoker());
+                }
+            }
+        }
+
+        this.undeclared = undeclaredInvokers.toArray(NONE);
+        for (Map.Entry<String, Map<Integer, List<FunctionInvoker>>> function : candidates.entrySet()) {
+            int maxArity = Collections.max(function.getValue().keySet());
+            FunctionInvoker[][] byArity = new FunctionInvoker[maxArity + 1][];
+            for (Map.Entry<Integer, List<FunctionInvoker>> arity : function.getValue().entrySet()) {
+                byArity[arity.getKey()] = arity.getValue().toArray(NONE);
+            }
+            invokers.put(function.getKey(), byArity);
+        }
+        for (Map.Entry<String, List<FunctionInvoker>> function : byName.entrySet()) {
+            invokersByName.put(function.getKey(), function.getValue().toArray(NONE));
+        }
+    }
+
+    List<CustomFunction> getFunctions() {
+        return functions;
+    }
+
+    //The invoker with the lowest priority value that can handle the call, or null when there's none
+    FunctionInvoker find(String function, Object[] args) {
+        FunctionInvoker[] candidates = candidates(function, args.length);
+        for (FunctionInvoker invoker : candidates) {
+            if (invoker.canHandle(function, args)) {
+                return invoker;
+            }
+        }
+
+        //Only reached by calls of undeclared arities, so the invokers already asked are looked up linearly
+        for (FunctionInvoker invoker : invokersByName.getOrDefault(function, NONE)) {
+            if (!contains(candidates, invoker) && invoker.canHandle(function, args)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(FunctionInvoker[] invokers, FunctionInvoker invoker) {
+        for (FunctionInvoker candidate : invokers) {
+            if (candidate == invoker) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FunctionInvoker[] candidates(String function, int arity) {
+        FunctionInvoker[][] byArity = invokers.get(function);
+        if (byArity == null || arity >= byArity.length || byArity[arity] == null) {
+            return undeclared;
+        }
+        return byArity[arity];
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core.parser.functions;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A function call resolved to the handle of the function handling it, along with the determinism of its result,
+ * so both are found through a single dispatch.
+ */
+public final class ResolvedCall {
+
+    private final MethodHandle handle;
+    private final FunctionDeterminism determinism;
+
+    public ResolvedCall(MethodHandle handle, FunctionDeterminism determinism) {
+        this.handle = handle;
+        this.determinism = determinism;
+    }
+
+    //A handle of type FunctionHandles.CALL_TYPE
+    public MethodHandle getHandle() {
+        return handle;
+    }
+
+    public FunctionDeterminism getDeterminism() {
+        return determinism;
+    }
+
+    public Object invoke(Object... args) {
+        return FunctionHandles.invoke(handle, args);
+    }
+}
@@ -16,8 +16,9 @@
 
 package org.evcode.queryfy.core.parser.functions;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.lang.invoke.MethodHandles;
+
+import static org.evcode.queryfy.core.parser.functions.FunctionDeterminism.DETERMINISTIC;
 
 public class StringFunctionInvoker extends AbstractFunctionInvoker {
 
@@ -28,32 +29,39 @@ public class StringFunctionInvoker extends AbstractFunctionInvoker {
     private static final String SUBSTRING = "substring";
 
     public StringFunctionInvoker() {
-        addFunction(UPPER, Collections.singletonList(new Class[]{String.class}));
-        addFunction(LOWER, Collections.singletonList(new Class[]{String.class}));
-        addFunction(REPLACE, Collections.singletonList(new Class[]{String.class, String.class, String.class}));
-        addFunction(LENGTH, Collections.singletonList(new Class[]{String.class}));
-        addFunction(SUBSTRING, Arrays.asList(new Class[]{String.class, Long.class, Long.class},
-                new Class[]{String.class, Long.class}));
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        addFunction(UPPER, findStatic(lookup, "upper", String.class, String.class), DETERMINISTIC);
+        addFunction(LOWER, findStatic(lookup, "lower", String.class, String.class), DETERMINISTIC);
+        addFunction(REPLACE, findStatic(lookup, "replace", String.class, String.class, String.class, String.class),
+                DETERMINISTIC);
+        addFunction(LENGTH, findStatic(lookup, "length", Integer.class, String.class), DETERMINISTIC);
+        addFunction(SUBSTRING, findStatic(lookup, "substring", String.class, String.class, Long.class, Long.class),
+                DETERMINISTIC);
+        addFunction(SUBSTRING, findStatic(lookup, "substring", String.class, String.class, Long.class),
+                DETERMINISTIC);
+    }
+
+    private static String upper(String value) {
+        return value.toUpperCase();
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase();
+    }
+
+    private static String replace(String value, String target, String replacement) {
+        return value.replace(target, replacement);
+    }
+
+    private static Integer length(String value) {
+        return value.length();
+    }
+
+    private static String substring(String value, Long beginIndex, Long endIndex) {
+        return value.substring(beginIndex.intValue(), endIndex.intValue());
     }
 
-    @Override
-    public Object invoke(String function, Object... args) {
-        switch (function) {
-            case UPPER:
-                return String.valueOf(args[0]).toUpperCase();
-            case LOWER:
-                return String.valueOf(args[0]).toLowerCase();
-            case REPLACE:
-                return String.valueOf(args[0]).replace((String) args[1], (String) args[2]);
-            case LENGTH:
-                return String.valueOf(args[0]).length();
-            case SUBSTRING: {
-                boolean hasEndIndexArg = args.length > 2;
-                return !hasEndIndexArg ? String.valueOf(args[0]).substring(((Long) args[1]).intValue()) :
-                        String.valueOf(args[0]).substring(((Long) args[1]).intValue(), ((Long) args[2]).intValue());
-            }
-            default:
-                throw new IllegalArgumentException("Function " + function + " is not supported.");
-        }
+    private static String substring(String value, Long beginIndex) {
+        return value.substring(beginIndex.intValue());
     }
 }
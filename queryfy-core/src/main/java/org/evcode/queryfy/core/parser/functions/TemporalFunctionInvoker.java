@@ -13,13 +13,17 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
+
 package org.evcode.queryfy.core.parser.functions;
 
+import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.Temporal;
-import java.util.Collections;
+
+import static org.evcode.queryfy.core.parser.functions.FunctionDeterminism.DETERMINISTIC;
+import static org.evcode.queryfy.core.parser.functions.FunctionDeterminism.TIME_DEPENDENT;
 
 public class TemporalFunctionInvoker extends AbstractFunctionInvoker {
 
@@ -31,31 +35,40 @@ public class TemporalFunctionInvoker extends AbstractFunctionInvoker {
     private static final String TEMPORAL_PLUS_YEARS = "plusYears";
 
     public TemporalFunctionInvoker() {
-        addFunction(DATE_TODAY, Collections.emptyList());
-        addFunction(DATE_END_OF_MONTH, Collections.emptyList());
-        addFunction(DATETIME_NOW, Collections.emptyList());
-        addFunction(TEMPORAL_PLUS_DAYS, Collections.singletonList(new Class[]{Temporal.class, Long.class}));
-        addFunction(TEMPORAL_PLUS_MONTHS, Collections.singletonList(new Class[]{Temporal.class, Long.class}));
-        addFunction(TEMPORAL_PLUS_YEARS, Collections.singletonList(new Class[]{Temporal.class, Long.class}));
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        addFunction(DATE_TODAY, findStatic(lookup, "today", LocalDate.class), TIME_DEPENDENT);
+        addFunction(DATE_END_OF_MONTH, findStatic(lookup, "endOfMonth", LocalDate.class), TIME_DEPENDENT);
+        addFunction(DATETIME_NOW, findStatic(lookup, "now", LocalDateTime.class), TIME_DEPENDENT);
+        addFunction(TEMPORAL_PLUS_DAYS, findStatic(lookup, "plusDays", Temporal.class, Temporal.class, Long.class),
+                DETERMINISTIC);
+        addFunction(TEMPORAL_PLUS_MONTHS, findStatic(lookup, "plusMonths", Temporal.class, Temporal.class, Long.class),
+                DETERMINISTIC);
+        addFunction(TEMPORAL_PLUS_YEARS, findStatic(lookup, "plusYears", Temporal.class, Temporal.class, Long.class),
+                DETERMINISTIC);
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now();
+    }
+
+    private static LocalDate endOfMonth() {
+        LocalDate today = LocalDate.now();
+        return today.withDayOfMonth(today.lengthOfMonth());
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+
+    private static Temporal plusDays(Temporal temporal, Long days) {
+        return temporal.plus(days, ChronoUnit.DAYS);
+    }
+
+    private static Temporal plusMonths(Temporal temporal, Long months) {
+        return temporal.plus(months, ChronoUnit.MONTHS);
     }
 
-    @Override
-    public Object invoke(String function, Object... args) {
-        switch (function) {
-            case DATE_TODAY:
-                return LocalDate.now();
-            case DATE_END_OF_MONTH:
-                return LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth());
-            case DATETIME_NOW:
-                return LocalDateTime.now();
-            case TEMPORAL_PLUS_DAYS:
-                return ((Temporal) args[0]).plus((Long) args[1], ChronoUnit.DAYS);
-            case TEMPORAL_PLUS_MONTHS:
-                return ((Temporal) args[0]).plus((Long) args[1], ChronoUnit.MONTHS);
-            case TEMPORAL_PLUS_YEARS:
-                return ((Temporal) args[0]).plus((Long) args[1], ChronoUnit.YEARS);
-            default:
-                throw new IllegalArgumentException("Function " + function + " is not supported.");
-        }
+    private static Temporal plusYears(Temporal temporal, Long years) {
+        return temporal.plus(years, ChronoUnit.YEARS);
     }
-}
\ No newline at end of file
+}
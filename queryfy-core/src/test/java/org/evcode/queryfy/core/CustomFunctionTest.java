@@ -16,15 +16,32 @@
 
 package org.evcode.queryfy.core;
 
+import org.evcode.queryfy.core.parser.DeferredFunction;
 import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.QueryCache;
+import org.evcode.queryfy.core.parser.ast.AndNode;
 import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.functions.AbstractFunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.CustomFunction;
 import org.evcode.queryfy.core.parser.functions.FunctionInvoker;
 import org.evcode.queryfy.core.parser.functions.DefaultFunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.evcode.queryfy.core.parser.functions.FunctionHandles;
+import org.evcode.queryfy.core.parser.functions.ResolvedCall;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class CustomFunctionTest {
 
@@ -58,16 +75,305 @@ public class CustomFunctionTest {
         checkValue("selector = @sayHello()", "Hello function");
     }
 
+    @Test
+    public void testFunctionDispatch() {
+        DefaultFunctionInvoker invoker = new DefaultFunctionInvoker();
+        Assert.assertEquals("VALUE", invoker.invoke("upper", "value"));
+        Assert.assertTrue(invoker.canHandle("substring", "value", 1L));
+        Assert.assertFalse(invoker.canHandle("substring", "value"));
+        Assert.assertFalse(invoker.canHandle("substring", 1L, 1L));
+        Assert.assertFalse(invoker.canHandle("upper", "a", "b"));
+        Assert.assertFalse(invoker.canHandle("unknown"));
+
+        //The lowest priority value wins, declared or not
+        FunctionInvoker upper = new FixedFunctionInvoker("upper", "overridden");
+        invoker.register(upper, -2);
+        Assert.assertEquals("overridden", invoker.invoke("upper", "value"));
+        invoker.unregister(CustomFunction.of(upper));
+        Assert.assertEquals("VALUE", invoker.invoke("upper", "value"));
+
+        invoker.register(new HelloFunctionInvoker(), -2);
+        Assert.assertEquals("Hello function", invoker.invoke("sayHello"));
+        Assert.assertEquals("VALUE", invoker.invoke("upper", "value"));
+
+        invoker.unregisterAll();
+        Assert.assertFalse(invoker.canHandle("upper", "value"));
+        try {
+            invoker.invoke("upper", "value");
+            Assert.fail("Unregistered function was invoked");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Custom function upper with 1 argument(s) is not supported", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUndeclaredArities() {
+        DefaultFunctionInvoker invoker = DefaultFunctionInvoker.with(new ConcatFunctionInvoker());
+        Assert.assertEquals("ab", invoker.invoke("concat", "a", "b"));
+        Assert.assertEquals("abc", invoker.invoke("concat", "a", "b", "c"));
+        Assert.assertFalse(invoker.canHandle("concat", "a", 1L));
+    }
+
+    @Test
+    public void testLegacySignatureCheck() {
+        DefaultFunctionInvoker invoker = DefaultFunctionInvoker.with(new LegacyFunctionInvoker());
+        Assert.assertTrue(invoker.canHandle("legacy", 1L));
+        Assert.assertFalse(invoker.canHandle("legacy", 1.5));
+    }
+
+    @Test
+    public void testFunctionResolution() {
+        DefaultFunctionInvoker invoker = DefaultFunctionInvoker.with(new HelloFunctionInvoker(),
+                new TwiceFunctionInvoker());
+
+        //Bound functions are resolved to the same handle on every call, whatever their overload
+        MethodHandle upper = invoker.resolve("upper", "value");
+        Assert.assertSame(upper, invoker.resolve("upper", "other"));
+        Assert.assertEquals(FunctionHandles.CALL_TYPE, upper.type());
+        Assert.assertEquals("VALUE", FunctionHandles.invoke(upper, "value"));
+        Assert.assertEquals("al", FunctionHandles.invoke(invoker.resolve("substring", "value", 1L, 3L),
+                "value", 1L, 3L));
+
+        Assert.assertEquals(4L, FunctionHandles.invoke(invoker.resolve("twice", 2L), 2L));
+        Assert.assertEquals("aa", FunctionHandles.invoke(invoker.resolve("twice", "a"), "a"));
+        Assert.assertNull(invoker.resolve("twice", 1.5));
+        Assert.assertEquals(FunctionDeterminism.DETERMINISTIC, invoker.getDeterminism("twice", 2L));
+
+        //Calls are resolved to their handle and determinism through a single dispatch
+        ResolvedCall call = invoker.resolveCall("twice", 3L);
+        Assert.assertEquals(FunctionDeterminism.DETERMINISTIC, call.getDeterminism());
+        Assert.assertEquals(6L, call.invoke(3L));
+        Assert.assertEquals(FunctionDeterminism.NONDETERMINISTIC, invoker.resolveCall("sayHello").getDeterminism());
+        Assert.assertNull(invoker.resolveCall("twice", 1.5));
+
+        //Invokers that don't bind their functions are resolved through invoke
+        Assert.assertEquals("Hello function", FunctionHandles.invoke(invoker.resolve("sayHello")));
+        Assert.assertNull(invoker.resolve("unknown"));
+
+        checkValue("selector = @twice(@length('abc'))", 6);
+    }
+
+    @Test
+    public void testLazyFunctionDiscovery() {
+        DefaultFunctionInvoker invoker = new DefaultFunctionInvoker();
+        invoker.invoke("upper", "value");
+        Assert.assertEquals(0, IndexedCustomFunction.INSTANCES.get());
+
+        //Indexed functions are instantiated on their first call, once
+        Assert.assertEquals("indexed", invoker.invoke("indexed"));
+        Assert.assertEquals("indexed", new DefaultFunctionInvoker().invoke("indexed"));
+        Assert.assertEquals(1, IndexedCustomFunction.INSTANCES.get());
+
+        DefaultFunctionInvoker unregistered = new DefaultFunctionInvoker().unregisterAll();
+        Assert.assertFalse(unregistered.canHandle("indexed"));
+    }
+
+    @Test
+    public void testDeferredFunctions() {
+        for (ParserEngine engine : ParserEngine.values()) {
+            QueryCache cache = QueryCache.builder().build();
+            ParserConfig config = ParserConfig.builder()
+                    .withEngine(engine)
+                    .withQueryCache(cache)
+                    .withDeferredFunctions(true)
+                    .build();
+
+            //Pure calls are still folded, the others are kept in the cached tree and evaluated when resolved
+            String query = "created > @plusDays(@today(), -7) and name = @upper('x')";
+            List<Node> nodes = Evaluator.parse(query, config);
+            Assert.assertSame(nodes, Evaluator.parse(query, config));
+
+            AndNode filter = (AndNode) nodes.get(0);
+            Object deferred = ((FilterNode) filter.getLeftOperation()).getArgs().get(0);
+            Assert.assertTrue(deferred instanceof DeferredFunction);
+            Assert.assertEquals("@plusDays(@today(), -7)", deferred.toString());
+            Assert.assertEquals("X", ((FilterNode) filter.getRightOperation()).getArgs().get(0));
+
+            AndNode resolved = (AndNode) Evaluator.resolve(nodes).get(0);
+            Assert.assertEquals(LocalDate.now().minusDays(7),
+                    ((FilterNode) resolved.getLeftOperation()).getArgs().get(0));
+            Assert.assertSame(filter.getRightOperation(), resolved.getRightOperation());
+        }
+    }
+
+    @Test
+    public void testDeferredFunctionsAreEvaluatedOnBind() {
+        ParserConfig config = ParserConfig.builder()
+                .withFunctionInvoker(DefaultFunctionInvoker.with(new SequenceFunctionInvoker()))
+                .withDeferredFunctions(true)
+                .build();
+
+        PreparedQuery query = Evaluator.prepare("id = ? and sequence > @next()", config);
+        AndNode first = (AndNode) query.bind(1L).get(0);
+        AndNode second = (AndNode) query.bind(1L).get(0);
+
+        long next = (Long) ((FilterNode) first.getRightOperation()).getArgs().get(0);
+        Assert.assertEquals(next + 1, ((FilterNode) second.getRightOperation()).getArgs().get(0));
+    }
+
+    @Test
+    public void testDeferredFunctionsAreOnlyInvokedWhenEvaluated() {
+        CountingFunctionInvoker counting = new CountingFunctionInvoker();
+        ParserConfig config = ParserConfig.builder()
+                .withFunctionInvoker(DefaultFunctionInvoker.with(counting))
+                .withDeferredFunctions(true)
+                .build();
+
+        //Calls the invoker doesn't resolve to handles are validated through canHandle
+        FilterNode node = (FilterNode) Evaluator.parse("sequence > @count()", config).get(0);
+        Assert.assertEquals(0, counting.invocations.get());
+
+        Assert.assertEquals(1L, ((DeferredFunction) node.getArgs().get(0)).evaluate());
+        Assert.assertEquals(1, counting.invocations.get());
+
+        try {
+            Evaluator.parse("sequence > @count(1)", config);
+            Assert.fail("An unsupported call was deferred");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Custom function count with 1 argument(s)"));
+        }
+    }
+
     public void checkValue(String query, Object expectedValue) {
         FilterNode node = (FilterNode) Evaluator.parse(query,
                 ParserConfig.builder()
-                        .withFunctionInvoker(DefaultFunctionInvoker.with(new HelloFunctionInvoker()))
+                        .withFunctionInvoker(DefaultFunctionInvoker.with(new HelloFunctionInvoker(),
+                                new TwiceFunctionInvoker()))
                         .build())
                 .get(0);
 
         Assert.assertEquals(expectedValue, node.getArgs().get(0));
     }
 
+    private static class FixedFunctionInvoker extends AbstractFunctionInvoker {
+
+        private final Object value;
+
+        private FixedFunctionInvoker(String function, Object value) {
+            this.value = value;
+            addFunction(function, Collections.singletonList(new Class[]{String.class}));
+        }
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return value;
+        }
+    }
+
+    private static class ConcatFunctionInvoker extends AbstractFunctionInvoker {
+
+        private ConcatFunctionInvoker() {
+            addFunction("concat", Collections.singletonList(new Class[]{String.class, String.class}));
+        }
+
+        //Any number of strings, only two are declared
+        @Override
+        public boolean canHandle(String function, Object... args) {
+            return "concat".equals(function) && Arrays.stream(args).allMatch(String.class::isInstance);
+        }
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return Arrays.stream(args).map(String.class::cast).collect(Collectors.joining());
+        }
+    }
+
+    private static class LegacyFunctionInvoker extends AbstractFunctionInvoker {
+
+        private LegacyFunctionInvoker() {
+            addFunction("legacy", Collections.singletonList(new Class[]{Number.class}));
+        }
+
+        @SuppressWarnings("deprecation")
+        protected boolean isValidArgsForSignature(Class[] signature, Class[] args) {
+            return args[0] == Long.class;
+        }
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return "legacy";
+        }
+    }
+
+    private static class TwiceFunctionInvoker extends AbstractFunctionInvoker {
+
+        private TwiceFunctionInvoker() {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            addFunction("twice", findStatic(lookup, "twice", Long.class, Long.class),
+                    FunctionDeterminism.DETERMINISTIC);
+            addFunction("twice", findStatic(lookup, "twice", Integer.class, Integer.class),
+                    FunctionDeterminism.DETERMINISTIC);
+            addFunction("twice", findStatic(lookup, "twice", String.class, String.class),
+                    FunctionDeterminism.DETERMINISTIC);
+        }
+
+        private static Long twice(Long value) {
+            return value * 2;
+        }
+
+        private static Integer twice(Integer value) {
+            return value * 2;
+        }
+
+        private static String twice(String value) {
+            return value + value;
+        }
+    }
+
+    public static class IndexedCustomFunction extends CustomFunction {
+
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public IndexedCustomFunction() {
+            super(new FunctionInvoker() {
+                @Override
+                public Object invoke(String function, Object... args) {
+                    return "indexed";
+                }
+
+                @Override
+                public boolean canHandle(String function, Object... args) {
+                    return "indexed".equals(function);
+                }
+            });
+            INSTANCES.incrementAndGet();
+        }
+    }
+
+    private static class SequenceFunctionInvoker extends AbstractFunctionInvoker {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        private SequenceFunctionInvoker() {
+            addFunction("next", Collections.emptyList(), FunctionDeterminism.NONDETERMINISTIC);
+        }
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return (long) sequence.incrementAndGet();
+        }
+    }
+
+    private static class CountingFunctionInvoker implements FunctionInvoker {
+
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return (long) invocations.incrementAndGet();
+        }
+
+        @Override
+        public boolean canHandle(String function, Object... args) {
+            return "count".equals(function) && args.length == 0;
+        }
+
+        @Override
+        public MethodHandle resolve(String function, Object... args) {
+            return null;
+        }
+    }
+
     public static class HelloFunctionInvoker implements FunctionInvoker {
         @Override
         public Object invoke(String function, Object... args) {
@@ -51,6 +51,8 @@ public class DataTypeTest {
         checkValue("selector = 'string'", "string");
         checkValue("selector = 'string with (like) operators = like or'", "string with (like) operators = like or");
         checkValue("selector = 'John Doe\\'s strings are escaped!'", "John Doe's strings are escaped!");
+        checkValue("selector = \"say \\\"hi\\\" \\\\\"", "say \"hi\" \\");
+        checkValue("selector = ''", "");
 
         checkValue("selector = 2017-01-01", LocalDate.parse("2017-01-01", ISO_DATE));
         checkValue("selector = 2017-01-01T12:10:10", LocalDateTime.parse("2017-01-01T12:10:10", ISO_DATE_TIME));
@@ -59,6 +61,42 @@ public class DataTypeTest {
         checkValue("selector = 18:10:10.056+01:00", LocalTime.parse("18:10:10.056+01:00", ISO_OFFSET_TIME));
     }
 
+    @Test
+    public void testNumberLiterals() {
+        checkValue("selector = 0", 0L);
+        checkValue("selector = -0", -0.0d);
+        checkValue("selector = 007", 7L);
+        checkValue("selector = -42", -42L);
+        checkValue("selector = 9223372036854775807", Long.MAX_VALUE);
+        checkValue("selector = -9223372036854775808", Long.MIN_VALUE);
+        checkValue("selector = 9223372036854775808", 9223372036854775808d);
+        checkValue("selector = 1.50", new BigDecimal("1.50"));
+        checkValue("selector = -0.0", new BigDecimal("0.0"));
+        checkValue("selector = -0.05", new BigDecimal("-0.05"));
+        checkValue("selector = 123456789012345678901234567890.123456789",
+                new BigDecimal("123456789012345678901234567890.123456789"));
+        checkValue("selector = -2147483648I", Integer.MIN_VALUE);
+        checkValue("selector = 9223372036854775807L", Long.MAX_VALUE);
+        checkValue("selector = 1.5F", 1.5f);
+        checkValue("selector = -0D", -0.0d);
+    }
+
+    @Test
+    public void testTemporalLiterals() {
+        checkValue("selector = 2016-02-29", LocalDate.of(2016, 2, 29));
+        checkValue("selector = 2017-01-01T12:10", LocalDateTime.of(2017, 1, 1, 12, 10));
+        checkValue("selector = 2017-01-01T12:10:10,056", LocalDateTime.of(2017, 1, 1, 12, 10, 10, 56_000_000));
+        checkValue("selector = 2017-01-01T12:10:10z",
+                ZonedDateTime.parse("2017-01-01T12:10:10Z", ISO_ZONED_DATE_TIME));
+        checkValue("selector = 2017-01-01T12:10:10-03:00:30",
+                ZonedDateTime.parse("2017-01-01T12:10:10-03:00:30", ISO_ZONED_DATE_TIME));
+        checkValue("selector = 2017-10-15T00:30:00-03:00 [America/Sao_Paulo]",
+                ZonedDateTime.parse("2017-10-15T00:30:00-03:00[America/Sao_Paulo]", ISO_ZONED_DATE_TIME));
+        checkValue("selector = 2017-01-01T12:10:10+03:00[UTC]",
+                ZonedDateTime.parse("2017-01-01T12:10:10+03:00[UTC]", ISO_ZONED_DATE_TIME));
+        checkValue("selector = 18:10:10.056-18:00", LocalTime.of(18, 10, 10, 56_000_000));
+    }
+
     public void checkValue(String query, Object expectedValue) {
         QueryParser expressionParser = Parboiled.createParser(QueryParser.class);
         FilterNode node = (FilterNode) ExpressionParserUtils.parse(query, expressionParser.Query()).pop();
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.lexer.DefaultGrammar;
+import org.evcode.queryfy.core.operator.ComparisionOperatorType;
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.operator.SelectorOperatorType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+
+@RunWith(JUnit4.class)
+public class GrammarTest {
+
+    @Test
+    public void testOperatorLookup() {
+        DefaultGrammar grammar = new DefaultGrammar();
+        Assert.assertEquals(ComparisionOperatorType.EQUAL, grammar.getOperator("=="));
+        Assert.assertEquals(ComparisionOperatorType.NOT_EQUAL, grammar.getOperator("<>"));
+        Assert.assertEquals(SelectorOperatorType.IS_NOT_NULL, grammar.getOperator("is not null"));
+        Assert.assertEquals(ListOperatorType.NOT_IN, grammar.getOperator("!in"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testUnknownOperator() {
+        new DefaultGrammar().getOperator("~");
+    }
+
+    @Test
+    public void testOperatorRedefinition() {
+        DefaultGrammar grammar = new DefaultGrammar() {
+            @Override
+            protected void initGrammarOperators() {
+                super.initGrammarOperators();
+                registerOperator(ListOperatorType.IN, new HashSet<>(Arrays.asList("in", "within")));
+                registerOperator(ListOperatorType.NOT_IN, new HashSet<>(Arrays.asList("not within")));
+            }
+        };
+
+        Assert.assertEquals(ListOperatorType.IN, grammar.getOperator("within"));
+        Assert.assertEquals(ListOperatorType.NOT_IN, grammar.getOperator("not within"));
+        try {
+            grammar.getOperator("!in");
+            Assert.fail("Replaced symbol was resolved");
+        } catch (NoSuchElementException e) {
+            //expected
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAmbiguousSymbolsAreRejectedOnRegistration() {
+        new DefaultGrammar() {
+            @Override
+            protected void initGrammarOperators() {
+                super.initGrammarOperators();
+                registerOperator(ComparisionOperatorType.NOT_EQUAL, new HashSet<>(Arrays.asList("!=", "==")));
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ComparisionOperatorType;
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.ast.OrNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class NodeTraversalTest {
+
+    private static final int DEPTH = 100_000;
+
+    private static final NodeFolder<String, Void> PRINTER = new NodeFolder<String, Void>() {
+        @Override
+        public String fold(FilterNode node, Void param) {
+            return node.getSelector();
+        }
+
+        @Override
+        public String fold(AndNode node, List<String> operations, Void param) {
+            return "(" + String.join(" and ", operations) + ")";
+        }
+
+        @Override
+        public String fold(OrNode node, List<String> operations, Void param) {
+            return "(" + String.join(" or ", operations) + ")";
+        }
+    };
+
+    @Test
+    public void testFoldOrder() {
+        Node node = Evaluator.parse("a = 1 and (b = 1 or c = 1 or (d = 1 and e = 1)) and f = 1").get(0);
+        Assert.assertEquals("(a and (b or c or (d and e)) and f)", NodeTraversal.fold(node, PRINTER, null));
+        Assert.assertEquals(4, NodeTraversal.depth(node));
+
+        List<String> selectors = new ArrayList<>();
+        NodeTraversal.forEachFilter(node, filter -> selectors.add(filter.getSelector()));
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), selectors);
+
+        FilterNode filter = filter("a");
+        Assert.assertEquals("a", NodeTraversal.fold(filter, PRINTER, null));
+        Assert.assertEquals(1, NodeTraversal.depth(filter));
+    }
+
+    @Test
+    public void testDeepTree() {
+        Node node = deepTree(DEPTH);
+        Assert.assertEquals(DEPTH + 1, NodeTraversal.depth(node));
+
+        int[] filters = {0};
+        NodeTraversal.forEachFilter(node, filter -> filters[0]++);
+        Assert.assertEquals(DEPTH + 1, filters[0]);
+
+        Node copy = NodeTraversal.fold(node, new NodeFolder<Node, Void>() {
+            @Override
+            public Node fold(FilterNode node, Void param) {
+                return filter(node.getSelector());
+            }
+
+            @Override
+            public Node fold(AndNode node, List<Node> operations, Void param) {
+                return new AndNode(operations);
+            }
+
+            @Override
+            public Node fold(OrNode node, List<Node> operations, Void param) {
+                return new OrNode(operations);
+            }
+        }, null);
+        Assert.assertEquals(DEPTH + 1, NodeTraversal.depth(copy));
+        Assert.assertEquals("s" + (DEPTH - 1), ((FilterNode) ((OrNode) copy).getOperations().get(0)).getSelector());
+
+        //The optimizer folds the tree the same way, keeping a tree without anything to optimize as it is
+        Assert.assertSame(node, QueryOptimizer.optimize(node));
+    }
+
+    //Alternating AND/OR nodes can't be flattened, so each level nests the previous one
+    private static Node deepTree(int depth) {
+        Node node = filter("root");
+        for (int i = 0; i < depth; i++) {
+            List<Node> operations = Arrays.asList(filter("s" + i), node);
+            node = i % 2 == 0 ? new AndNode(operations) : new OrNode(operations);
+        }
+        return node;
+    }
+
+    private static FilterNode filter(String selector) {
+        return new FilterNode(ComparisionOperatorType.EQUAL, selector, Collections.singletonList(1L));
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.functions.DefaultFunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.FunctionInvoker;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ParserConformanceTest {
+
+    private static final FunctionInvoker FUNCTIONS = DefaultFunctionInvoker.with(new CustomFunctionTest.HelloFunctionInvoker());
+
+    private static final ParserConfig PARBOILED = ParserConfig.builder()
+            .withFunctionInvoker(FUNCTIONS)
+            .withEngine(ParserEngine.PARBOILED)
+            .build();
+
+    private static final ParserConfig RECURSIVE_DESCENT = ParserConfig.builder()
+            .withFunctionInvoker(FUNCTIONS)
+            .withEngine(ParserEngine.RECURSIVE_DESCENT)
+            .build();
+
+    private static final String[] VALID_QUERIES = {
+            "",
+            "selector = 1",
+            "selector == 1",
+            "selector != 1",
+            "selector <> 1",
+            "selector > 1",
+            "selector >= 1",
+            "selector < 1",
+            "selector <= 1",
+            "selector=1",
+            "selector  >=  -1",
+            "selector = -0",
+            "selector = -0.0",
+            "selector = 1.50",
+            "selector = 18968.4536",
+            "selector = 999999999",
+            "selector = 99999999999999999999999999999999",
+            "selector = 1d",
+            "selector = 1f",
+            "selector = 1F",
+            "selector = 1i",
+            "selector = 1l",
+            "selector = 1f and other = 2",
+            "selector = true",
+            "selector = false",
+            "selector != true",
+            "selector = 'string'",
+            "selector = \"string\"",
+            "selector = ''",
+            "selector = 'John Doe\\'s strings are escaped!'",
+            "selector = \"with 'single' quotes\"",
+            "selector = 'with \"double\" quotes'",
+            "selector = 'escapes \\n \\t \\\\ \\\" \\101 \\7 \\77 \\u0041 \\uu00e9'",
+            "selector = \"say \\\"hi\\\" \\\\\" and other = '' and another = \"\"",
+            "selector = 'string with (like) operators = like or'",
+            "selector = 2017-01-01",
+            "selector = 2017-01-01T12:10",
+            "selector = 2017-01-01T12:10:10",
+            "selector = 2017-01-01T12:10:10.123",
+            "selector = 2017-01-01T12:10:10,123",
+            "selector = 2017-01-01T12:10:10Z",
+            "selector = 2017-01-01T12:10:10.123+03:00",
+            "selector = 2017-01-01T12:10:10-03:00",
+            "selector = 2017-01-01T12:10:10+03:00[America/Sao_Paulo]",
+            "selector = 2017-01-01T12:10:10+03:00 [America/Sao_Paulo]",
+            "selector = 2017-01-01T12:10:10z and other = 2017-01-01T12:10:10-03:00:30[UTC]",
+            "selector = 2017-01-01T12:10:10.123 and other = 2017-01-01T12:10",
+            "selector = 18:10",
+            "selector = 18:10:10",
+            "selector = 18:10:10.056",
+            "selector = 18:10:10.056+01:00",
+            "selector = 18:10:10Z",
+            "selector is null",
+            "selector is not null",
+            "selector !null",
+            "selector is empty",
+            "selector is not empty",
+            "selector !empty",
+            "selector is true",
+            "selector is false",
+            "selector like 'test'",
+            "selector not like 'te%st'",
+            "selector !like \"test\"",
+            "selector like @upper('value')",
+            "selector in (1, 2, 3)",
+            "selector in (1,2,3)",
+            "selector in ( 'a' , 'b' )",
+            "selector not in (1, 2, 3)",
+            "selector !in (2017-01-01, 2017-01-02)",
+            "selector in (@upper('a'), @lower('B'))",
+            "selector = @sayHello()",
+            "selector = @sayHello( )",
+            "selector = @upper('value')",
+            "selector = @lower(@replace(@upper('vxaxlxuxe'), 'X', ''))",
+            "selector = @substring('value', 0, 2)",
+            "selector = @plusDays(@today(), 1)",
+            "one.two.three = 1",
+            "_under$score = 1",
+            "left = 1 and right = 2",
+            "left = 1 && right = 2",
+            "left = 1 or right = 2",
+            "left = 1 || right = 2",
+            "left = 1 or right = 2 and other = 3",
+            "left = 1 and right = 2 and (left = 3 and right = 4)",
+            "left = 1 or right = 2 or (left = 3 or right = 4)",
+            "(left = 1 or right = 2) and ( other is null )",
+            "((a = 1))",
+            "order by one",
+            "order by one, two",
+            "order by one desc, two asc",
+            "order by one desc, two asc, three desc",
+            "order by one limit 1,1",
+            "limit 1,1",
+            "limit 1 , 10",
+            "selector = 1 order by one limit 0,10",
+            "selector = 1 limit 0,10",
+            "select one, two, three",
+            "select path ,other,one.more",
+            "select one, two limit 1,1",
+            "select one, two order by one",
+            "select one, two, three where one = 1 order by one asc, two desc limit 1,1",
+            "select one, two, three where one = 1 order by one asc, two limit 2,4",
+            "select one where a = 1 or b in (1, 2) and c like 'x'"
+    };
+
+    private static final String[] INVALID_QUERIES = {
+            "selector",
+            "selector = ",
+            "selector =",
+            "selector like \"",
+            "selector in ()",
+            "selector in (1, 'a')",
+            "selector in (@upper('a'), 'b')",
+            "selector is",
+            "selector = 'unterminated",
+            "selector = 'bad \\q escape'",
+            "selector = 'bad \\u12g4 escape'",
+            "selector = @unknown()",
+            "selector = 1 and",
+            "(selector = 1",
+            "selector = 1)",
+            "selector. = 1",
+            "selector..other = 1",
+            "select one., two",
+            "order by",
+            "limit 1",
+            "select",
+            "selector = 1 limit 1,",
+            "selector = 2017-13-01",
+            "selector = 2017-02-29",
+            "selector = 2017-01-01T24:00",
+            "selector = 2017-01-01T12:10:10+03:60",
+            "selector = 2017-01-01T12:10:10+0300",
+            "selector = 2017-01-01T12:10:10+19:00",
+            "selector = 2017-01-01T12:10:10[America/Sao_Paulo]",
+            "selector = 2017-01-01T12:10:10Z[america/sao_paulo]",
+            "selector = 18:10:10+03:60",
+            "selector = - 1.5",
+            "selector = 1x",
+            "selector = 2017-13-45",
+            "selector = 25:00:00",
+            "selector = 99999999999999999999999L",
+            "selector = @nope()",
+            "selector in (1, @nope(2))",
+            "selector = 1\nand other = 2"
+    };
+
+    @Test
+    public void testEnginesProduceTheSameNodes() {
+        for (String query : VALID_QUERIES) {
+            List<Node> expected = Evaluator.parse(query, PARBOILED);
+            List<Node> actual = Evaluator.parse(query, RECURSIVE_DESCENT);
+            Assert.assertEquals(query, expected, actual);
+        }
+    }
+
+    @Test
+    public void testEnginesRejectTheSameQueries() {
+        for (String query : INVALID_QUERIES) {
+            Assert.assertEquals(query, rejection(query, PARBOILED), rejection(query, RECURSIVE_DESCENT));
+        }
+    }
+
+    @Test
+    public void testErrorPosition() {
+        try {
+            Evaluator.parse("selector = 1 and other ~ 2", RECURSIVE_DESCENT);
+            Assert.fail("Invalid query was parsed");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Invalid input '~', expected "));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(" (line 1, pos 24)"));
+        }
+    }
+
+    @Test
+    public void testExpectedInput() {
+        for (ParserConfig config : Arrays.asList(PARBOILED, RECURSIVE_DESCENT)) {
+            String error = error("selector = 1 and", config);
+            Assert.assertTrue(error, error.startsWith("Invalid query: Unexpected end of input, expected WS " +
+                    "(line 1, pos 17)"));
+
+            error = error("selector = 1 or", config);
+            Assert.assertTrue(error, error.startsWith("Invalid query: Unexpected end of input, expected WS or 'd' " +
+                    "(line 1, pos 16)"));
+        }
+    }
+
+    @Test
+    public void testInvalidValuePosition() {
+        //Values that can't be built are reported where they end, with their own error
+        for (ParserConfig config : Arrays.asList(PARBOILED, RECURSIVE_DESCENT)) {
+            String error = error("selector = 1 and other = 2017-13-45 or x = 1", config);
+            Assert.assertTrue(error, error.startsWith("Invalid query: Invalid value for MonthOfYear " +
+                    "(valid values 1 - 12): 13 (line 1, pos 36):\n"));
+        }
+    }
+
+    @Test
+    public void testTrailingSelectorDotPosition() {
+        for (String query : Arrays.asList("a.b. = 1", "select a., b", "order by a.")) {
+            Assert.assertEquals(query, errorPosition(query, PARBOILED), errorPosition(query, RECURSIVE_DESCENT));
+        }
+    }
+
+    private static String errorPosition(String query, ParserConfig config) {
+        try {
+            Evaluator.parse(query, config);
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            return message.substring(message.indexOf("(line "), message.indexOf(')', message.indexOf("(line ")) + 1);
+        }
+        throw new AssertionError("Invalid query was parsed");
+    }
+
+    private static String error(String query, ParserConfig config) {
+        try {
+            Evaluator.parse(query, config);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        throw new AssertionError("Query '" + query + "' should be rejected by " + config.getEngine());
+    }
+
+    //The exception type and the error position
+    private static String rejection(String query, ParserConfig config) {
+        try {
+            Evaluator.parse(query, config);
+        } catch (RuntimeException e) {
+            String message = String.valueOf(e.getMessage());
+            int position = message.indexOf("(line ");
+            return e.getClass().getName() + (position >= 0 ?
+                    " " + message.substring(position, message.indexOf(')', position) + 1) : "");
+        }
+        throw new AssertionError("Query '" + query + "' should be rejected by " + config.getEngine());
+    }
+}
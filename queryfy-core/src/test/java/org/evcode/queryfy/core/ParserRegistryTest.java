@@ -0,0 +1,216 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.lexer.DefaultGrammar;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserRegistry;
+import org.evcode.queryfy.core.parser.QueryParser;
+import org.evcode.queryfy.core.parser.SymbolTable;
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.functions.DefaultFunctionInvoker;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.parboiled.support.ParsingResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+@RunWith(JUnit4.class)
+public class ParserRegistryTest {
+
+    @Test
+    public void testParserReuse() {
+        ParserRegistry registry = new ParserRegistry();
+        ParserConfig config = ParserConfig.builder().build();
+
+        QueryParser parser = registry.acquire(config);
+        registry.release(parser);
+
+        Assert.assertSame(parser, registry.acquire(config));
+        Assert.assertNotSame(parser, registry.acquire(config));
+    }
+
+    @Test
+    public void testConfigIdentity() {
+        ParserRegistry registry = new ParserRegistry();
+        DefaultGrammar grammar = new DefaultGrammar();
+        DefaultFunctionInvoker invoker = new DefaultFunctionInvoker();
+
+        ParserConfig config = ParserConfig.builder().withGrammar(grammar).withFunctionInvoker(invoker).build();
+        ParserConfig sameConfig = ParserConfig.builder().withGrammar(grammar).withFunctionInvoker(invoker).build();
+        ParserConfig otherConfig = ParserConfig.builder().withFunctionInvoker(invoker).build();
+
+        QueryParser parser = registry.acquire(config);
+        registry.release(parser);
+
+        Assert.assertSame(parser, registry.acquire(sameConfig));
+        Assert.assertNotSame(parser, registry.acquire(otherConfig));
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testSymbolTablesSharePools() {
+        ParserRegistry registry = new ParserRegistry();
+        ParserConfig config = ParserConfig.builder(ParserConfig.DEFAULT)
+                .withSymbolTable(SymbolTable.of(Collections.singleton("name")))
+                .build();
+        ParserConfig otherConfig = ParserConfig.builder(ParserConfig.DEFAULT)
+                .withSymbolTable(SymbolTable.of(Collections.singleton("age")))
+                .build();
+
+        QueryParser parser = registry.acquire(config);
+        registry.release(parser);
+
+        Assert.assertSame(parser, registry.acquire(otherConfig));
+        Assert.assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testBoundedPools() {
+        ParserRegistry registry = new ParserRegistry(2, 1);
+        ParserConfig config = ParserConfig.builder().build();
+
+        //Idle parsers beyond the pool size are dropped
+        QueryParser parser = registry.acquire(config);
+        QueryParser otherParser = registry.acquire(config);
+        registry.release(parser);
+        registry.release(otherParser);
+        Assert.assertSame(parser, registry.acquire(config));
+        Assert.assertNotSame(otherParser, registry.acquire(config));
+
+        //Only the pools of the most recently used grammars are kept
+        ParserConfig secondConfig = ParserConfig.builder().build();
+        ParserConfig thirdConfig = ParserConfig.builder().build();
+        registry.acquire(secondConfig);
+        registry.acquire(thirdConfig);
+        Assert.assertEquals(2, registry.size());
+        Assert.assertFalse(registry.contains(config));
+        Assert.assertTrue(registry.contains(thirdConfig));
+    }
+
+    @Test
+    public void testEviction() {
+        ParserRegistry registry = new ParserRegistry();
+        ParserConfig config = ParserConfig.builder().build();
+
+        QueryParser parser = registry.acquire(config);
+        registry.evict(config);
+        registry.release(parser);
+
+        Assert.assertFalse(registry.contains(config));
+        Assert.assertNotSame(parser, registry.acquire(config));
+
+        registry.evictAll();
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testLiteralStateIsNotShared() {
+        ParserConfig config = ParserConfig.builder().build();
+
+        Evaluator.parse("selector = 1f", config);
+        assertValues(Evaluator.parse("selector = 1f and other = 2", config).get(0), 1.0f, 2L);
+
+        Evaluator.parse("selector = 2017-01-01T12:10:10.123+03:00", config);
+        assertValues(Evaluator.parse("selector = 2017-01-01T12:10:10.123 and other = 2017-01-01T12:10", config).get(0),
+                LocalDateTime.of(2017, 1, 1, 12, 10, 10, 123000000),
+                LocalDateTime.of(2017, 1, 1, 12, 10));
+
+        Evaluator.parse("selector in (1, 2)", config);
+        AndNode node = (AndNode) Evaluator.parse("selector in (3) and other in ('4')", config).get(0);
+        Assert.assertEquals(Collections.singletonList(3L), ((FilterNode) node.getLeftOperation()).getArgs());
+        Assert.assertEquals(Collections.singletonList("4"), ((FilterNode) node.getRightOperation()).getArgs());
+
+        Evaluator.evict(config);
+    }
+
+    @Test
+    public void testRunnerStateIsNotShared() {
+        ParserRegistry registry = new ParserRegistry();
+        QueryParser parser = registry.acquire(ParserConfig.DEFAULT);
+
+        ParsingResult<Object> result = parser.run("selector = 1 and other = 2");
+        Assert.assertTrue(result.matched);
+        Assert.assertNull(result.parseTreeRoot);
+        assertValues(result.valueStack.peek(), 1L, 2L);
+
+        Assert.assertFalse(parser.run("selector = 1 and").matched);
+        Assert.assertFalse(parser.run("longer.selector = 'value' and other").matched);
+
+        result = parser.run("a = 3 and b = 4");
+        Assert.assertTrue(result.matched);
+        Assert.assertEquals(1, result.valueStack.size());
+        assertValues(result.valueStack.peek(), 3L, 4L);
+    }
+
+    @Test
+    public void testErrorPositionAfterReuse() {
+        ParserConfig config = ParserConfig.builder().build();
+
+        for (int i = 0; i < 3; i++) {
+            Evaluator.parse("selector = 1 and other = 2", config);
+            try {
+                Evaluator.parse("selector = 1 and other ~ 2", config);
+                Assert.fail("Invalid query was parsed");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("Invalid input '~'"));
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("(line 1, pos 24)"));
+            }
+        }
+
+        Evaluator.evict(config);
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        ParserConfig config = ParserConfig.builder().build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                long value = i;
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        AndNode node = (AndNode) Evaluator.parse("selector = " + value + " and other = " + j, config).get(0);
+                        assertValues(node, value, (long) j);
+                    }
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+            Evaluator.evict(config);
+        }
+    }
+
+    private static void assertValues(Object node, Object left, Object right) {
+        AndNode andNode = (AndNode) node;
+        Assert.assertEquals(left, ((FilterNode) andNode.getLeftOperation()).getArgs().get(0));
+        Assert.assertEquals(right, ((FilterNode) andNode.getRightOperation()).getArgs().get(0));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ComparisionOperatorType;
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.ast.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@RunWith(JUnit4.class)
+public class PreparedQueryTest {
+
+    @Test
+    public void testPositionalParameters() {
+        for (ParserEngine engine : ParserEngine.values()) {
+            ParserConfig config = ParserConfig.builder().withEngine(engine).build();
+            PreparedQuery query = Evaluator.prepare("price > ? and status in (?) and name like ? order by price", config);
+            Assert.assertEquals(3, query.getParameterCount());
+
+            List<Node> nodes = query.bind(10L, Arrays.asList("A", "B"), "J%");
+            Assert.assertEquals(Evaluator.parse("price > 10 and status in ('A', 'B') and name like 'J%' order by price",
+                    config), nodes);
+
+            nodes = query.bind(20L, new long[]{1L, 2L}, "M%");
+            Assert.assertEquals(Evaluator.parse("price > 20 and status in (1, 2) and name like 'M%' order by price",
+                    config), nodes);
+        }
+    }
+
+    @Test
+    public void testNamedParameters() {
+        for (ParserEngine engine : ParserEngine.values()) {
+            ParserConfig config = ParserConfig.builder().withEngine(engine).build();
+            PreparedQuery query = Evaluator.prepare("(start <= :day or end >= :day) and kind in (1, :kind)", config);
+            Assert.assertEquals(new HashSet<>(Arrays.asList("day", "kind")), query.getParameterNames());
+
+            Map<String, Object> values = new HashMap<>();
+            values.put("day", LocalDate.of(2017, 1, 1));
+            values.put("kind", 2L);
+
+            Assert.assertEquals(Evaluator.parse("(start <= 2017-01-01 or end >= 2017-01-01) and kind in (1, 2)", config),
+                    query.bind(values));
+        }
+    }
+
+    @Test
+    public void testBindingKeepsUnchangedNodes() {
+        PreparedQuery query = Evaluator.prepare("select one where a = 1 and b = ? limit 0,10");
+        List<Node> first = query.bind(1L);
+        List<Node> second = query.bind(2L);
+
+        Assert.assertSame(first.get(0), second.get(0));
+        Assert.assertSame(first.get(2), second.get(2));
+
+        AndNode firstFilter = (AndNode) first.get(1);
+        AndNode secondFilter = (AndNode) second.get(1);
+        Assert.assertSame(firstFilter.getLeftOperation(), secondFilter.getLeftOperation());
+        Assert.assertEquals(new FilterNode(ComparisionOperatorType.EQUAL, "b", Collections.singletonList(2L)),
+                secondFilter.getRightOperation());
+    }
+
+    @Test
+    public void testFunctionsAreEvaluatedOnBind() throws Exception {
+        PreparedQuery query = Evaluator.prepare("created < @now() and id in (?)");
+        Object first = ((FilterNode) ((AndNode) query.bind(1L).get(0)).getLeftOperation()).getArgs().get(0);
+        Thread.sleep(5);
+        AndNode node = (AndNode) query.bind(Arrays.asList(2L, 3L)).get(0);
+
+        Assert.assertNotEquals(first, ((FilterNode) node.getLeftOperation()).getArgs().get(0));
+        Assert.assertEquals(new FilterNode(ListOperatorType.IN, "id", Arrays.asList(2L, 3L)), node.getRightOperation());
+    }
+
+    @Test
+    public void testPureFunctionsAreFoldedOnce() {
+        PreparedQuery query = Evaluator.prepare("name = @upper('x') and id in (?)");
+        Node first = ((AndNode) query.bind(1L).get(0)).getLeftOperation();
+        Node second = ((AndNode) query.bind(2L).get(0)).getLeftOperation();
+
+        Assert.assertEquals(new FilterNode(ComparisionOperatorType.EQUAL, "name", Collections.singletonList("X")), first);
+        Assert.assertSame(first, second);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnboundParameters() {
+        Evaluator.parse("price > ?");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParametersAreNotFunctionArguments() {
+        Evaluator.prepare("name = @upper(?)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedParameters() {
+        Evaluator.prepare("price > ? and status = :status");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParameterCount() {
+        Evaluator.prepare("price > ? and status = ?").bind(1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingNamedParameter() {
+        Evaluator.prepare("price > :min and price < :max").bind(Collections.singletonMap("min", 1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullParameter() {
+        Evaluator.prepare("price > ?").bind((Object) null);
+    }
+}
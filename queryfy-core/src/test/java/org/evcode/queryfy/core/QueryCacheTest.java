@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ListOperatorType;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.QueryCache;
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class QueryCacheTest {
+
+    @Test
+    public void testCachedQueries() {
+        for (ParserEngine engine : ParserEngine.values()) {
+            QueryCache cache = QueryCache.builder().build();
+            ParserConfig config = ParserConfig.builder().withEngine(engine).withQueryCache(cache).build();
+
+            List<Node> nodes = Evaluator.parse("selector = 1 and other in (1, 2) order by one", config);
+            Assert.assertSame(nodes, Evaluator.parse("selector = 1 and other in (1, 2) order by one", config));
+            Assert.assertEquals(nodes, Evaluator.parse("selector = 1 and other in (1, 2) order by one",
+                    ParserConfig.builder().withEngine(engine).build()));
+
+            QueryCache.Stats stats = cache.stats();
+            Assert.assertEquals(1, stats.getHitCount());
+            Assert.assertEquals(1, stats.getMissCount());
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testConfigIsPartOfTheKey() {
+        QueryCache cache = QueryCache.builder().build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+        ParserConfig otherConfig = ParserConfig.builder().withQueryCache(cache).build();
+
+        Evaluator.parse("selector = 1", config);
+        Evaluator.parse("selector = 1", otherConfig);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(0, cache.stats().getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        QueryCache cache = QueryCache.builder().withMaximumSize(2).build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+
+        List<Node> first = Evaluator.parse("a = 1", config);
+        Evaluator.parse("b = 1", config);
+        Evaluator.parse("a = 1", config);
+        Evaluator.parse("c = 1", config);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.stats().getEvictionCount());
+        Assert.assertSame(first, Evaluator.parse("a = 1", config));
+        Assert.assertNull(cache.get("b = 1", config));
+    }
+
+    @Test
+    public void testWeightBound() {
+        QueryCache cache = QueryCache.builder().withMaximumWeight(12).build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+
+        Evaluator.parse("a = 1", config);
+        Evaluator.parse("b = 1", config);
+        Assert.assertEquals(10, cache.weight());
+
+        Evaluator.parse("c = 1", config);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(10, cache.weight());
+
+        Evaluator.parse("selector = 'too long to be cached'", config);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testFunctionValuesAreNotCached() throws Exception {
+        QueryCache cache = QueryCache.builder().build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+
+        Object now = ((FilterNode) Evaluator.parse("selector = @now()", config).get(0)).getArgs().get(0);
+        Thread.sleep(5);
+        Object later = ((FilterNode) Evaluator.parse("selector = @now()", config).get(0)).getArgs().get(0);
+
+        Assert.assertNotEquals(now, later);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPureFunctionValuesAreCached() {
+        for (ParserEngine engine : ParserEngine.values()) {
+            QueryCache cache = QueryCache.builder().build();
+            ParserConfig config = ParserConfig.builder().withEngine(engine).withQueryCache(cache).build();
+
+            List<Node> nodes = Evaluator.parse("name = @upper('x') and created > @plusDays(2024-01-01, 3)", config);
+            Assert.assertSame(nodes, Evaluator.parse("name = @upper('x') and created > @plusDays(2024-01-01, 3)",
+                    config));
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testTimeDependentValuesAreCachedPerClockBucket() {
+        MutableClock clock = new MutableClock(10_500);
+        QueryCache cache = QueryCache.builder().withClock(clock).withClockBucket(Duration.ofSeconds(1)).build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+
+        List<Node> nodes = Evaluator.parse("created > @plusDays(@today(), 1)", config);
+        clock.millis = 10_999;
+        Assert.assertSame(nodes, Evaluator.parse("created > @plusDays(@today(), 1)", config));
+
+        clock.millis = 11_000;
+        Assert.assertNotSame(nodes, Evaluator.parse("created > @plusDays(@today(), 1)", config));
+        Assert.assertEquals(1, cache.stats().getEvictionCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testClockBucketsAreAlignedToTheClockZone() {
+        ZoneId zone = ZoneId.of("America/Sao_Paulo");
+        long beforeMidnight = LocalDateTime.of(2024, 3, 10, 23, 30).atZone(zone).toInstant().toEpochMilli();
+        MutableClock clock = new MutableClock(beforeMidnight, zone);
+        QueryCache cache = QueryCache.builder().withClock(clock).withClockBucket(Duration.ofDays(1)).build();
+        ParserConfig config = ParserConfig.builder().withQueryCache(cache).build();
+
+        List<Node> nodes = Evaluator.parse("created > @today()", config);
+        clock.millis = beforeMidnight + Duration.ofMinutes(29).toMillis();
+        Assert.assertSame(nodes, Evaluator.parse("created > @today()", config));
+
+        //A day bucket ends at the local midnight, not at the UTC one
+        clock.millis = beforeMidnight + Duration.ofMinutes(30).toMillis();
+        Assert.assertNotSame(nodes, Evaluator.parse("created > @today()", config));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCachedNodesAreUnmodifiable() {
+        ParserConfig config = ParserConfig.builder().withQueryCache(QueryCache.builder().build()).build();
+        Evaluator.parse("selector = 1", config).clear();
+    }
+
+    @Test
+    public void testCachedNodeArgsAreUnmodifiable() {
+        ParserConfig config = ParserConfig.builder().withQueryCache(QueryCache.builder().build()).build();
+        AndNode node = (AndNode) Evaluator.parse("selector = 1 and other in ('a', 'b')", config).get(0);
+
+        for (Node operation : node.getOperations()) {
+            try {
+                ((FilterNode) operation).getArgs().set(0, "changed");
+                Assert.fail("Cached node args were changed");
+            } catch (UnsupportedOperationException e) {
+                //Expected
+            }
+        }
+
+        //The args a node is built with are copied
+        List<Object> args = new ArrayList<>(Arrays.asList("a", "b"));
+        FilterNode filter = new FilterNode(ListOperatorType.IN, "selector", args);
+        args.clear();
+        Assert.assertEquals(Arrays.asList("a", "b"), filter.getArgs());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+        private final ZoneId zone;
+
+        private MutableClock(long millis) {
+            this(millis, ZoneOffset.UTC);
+        }
+
+        private MutableClock(long millis, ZoneId zone) {
+            this.millis = millis;
+            this.zone = zone;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
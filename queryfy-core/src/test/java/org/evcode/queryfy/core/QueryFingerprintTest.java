@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.operator.ComparisionOperatorType;
+import org.evcode.queryfy.core.parser.ast.AndNode;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.evcode.queryfy.core.parser.ast.OrNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class QueryFingerprintTest {
+
+    @Test
+    public void testEquivalentQueries() {
+        assertSameFingerprint("a = 1 and b = 2", "b=2 && a==1");
+        assertSameFingerprint("a = 1 or (b = 2 and c = 3)", "(c = 3 and b = 2) || a = 1");
+        assertSameFingerprint("a = 1 and (b = 2 and c = 3)", "c = 3 and a = 1 and b = 2");
+        assertSameFingerprint("a in (3, 1, 2, 1)", "a in (1, 2, 3)");
+        assertSameFingerprint("a = 1.50", "a = 1.5");
+        assertSameFingerprint("a <> 'x'", "a != \"x\"");
+        assertSameFingerprint("select b, a where a = 1 order by a limit 0,10",
+                "select a, b where a = 1 order by a asc limit 0,10");
+    }
+
+    @Test
+    public void testDifferentQueries() {
+        assertDifferentFingerprint("a = 1 and b = 2", "a = 1 or b = 2");
+        assertDifferentFingerprint("a = 1", "a = 1i");
+        assertDifferentFingerprint("a = 1", "a = '1'");
+        assertDifferentFingerprint("a = 1", "a = 2");
+        assertDifferentFingerprint("a = 1 order by a, b", "a = 1 order by b, a");
+        assertDifferentFingerprint("a = 1 order by a", "a = 1 order by a desc");
+        assertDifferentFingerprint("a = 1", "select a where a = 1");
+        assertDifferentFingerprint("a = 1 and (b = 2 or c = 3)", "(a = 1 and b = 2) or c = 3");
+    }
+
+    @Test
+    public void testQueryShape() {
+        Assert.assertEquals(shape("a = 1 and b in (1, 2) limit 0,10"), shape("b in (7) and a = 42 limit 10,20"));
+        Assert.assertNotEquals(shape("a = 1"), shape("a > 1"));
+        Assert.assertNotEquals(shape("a = 1"), shape("a = 1 or a = 2"));
+        Assert.assertNotEquals(shape("a = 1"), fingerprint("a = 1"));
+
+        //Operands are sorted by their fingerprint
+        Assert.assertEquals("select a, b where (b IN (1, 2, 3) AND a EQUAL 1.5) order by a ASC limit 0,10",
+                QueryFingerprint.canonicalForm(Evaluator.parse(
+                        "select b, a where b in (3, 1, 2) and a = 1.50 order by a limit 0,10")));
+        Assert.assertEquals("where a LIKE ?", QueryFingerprint.canonicalShape(Evaluator.parse("a like 'x%'")));
+    }
+
+    @Test
+    public void testStableFingerprint() {
+        //Fingerprints may be stored, so they must not change between releases
+        Assert.assertEquals("e34bbc7bbc071b6c7a433ca9c49a9347",
+                QueryFingerprint.hash("The quick brown fox jumps over the lazy dog".getBytes()).toString());
+        Assert.assertEquals(fingerprint("a = 1 and b = 2"), fingerprint("a = 1 and b = 2"));
+        Assert.assertEquals(QueryFingerprint.of(Collections.emptyList()), fingerprint(""));
+    }
+
+    @Test
+    public void testDeepFilter() {
+        Node node = new FilterNode(ComparisionOperatorType.EQUAL, "root", Collections.singletonList(1L));
+        for (int i = 0; i < 100_000; i++) {
+            FilterNode filter = new FilterNode(ComparisionOperatorType.EQUAL, "s" + i, Collections.singletonList(1L));
+            node = i % 2 == 0 ? new AndNode(Arrays.asList(filter, node)) : new OrNode(Arrays.asList(node, filter));
+        }
+
+        Assert.assertNotNull(QueryFingerprint.of(Collections.singletonList(node)));
+        Assert.assertTrue(QueryFingerprint.canonicalForm(Collections.singletonList(node)).startsWith("where ("));
+    }
+
+    private static QueryFingerprint fingerprint(String query) {
+        return QueryFingerprint.of(Evaluator.parse(query));
+    }
+
+    private static QueryFingerprint shape(String query) {
+        return QueryFingerprint.shapeOf(Evaluator.parse(query));
+    }
+
+    private static void assertSameFingerprint(String query, String other) {
+        Assert.assertEquals(query, fingerprint(query), fingerprint(other));
+    }
+
+    private static void assertDifferentFingerprint(String query, String other) {
+        Assert.assertNotEquals(query, fingerprint(query), fingerprint(other));
+    }
+}
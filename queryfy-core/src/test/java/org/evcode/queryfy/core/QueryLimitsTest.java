@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
+import org.evcode.queryfy.core.parser.QueryLimitExceededException;
+import org.evcode.queryfy.core.parser.QueryLimits;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class QueryLimitsTest {
+
+    @Test
+    public void testInputLength() {
+        QueryLimits limits = QueryLimits.builder().withMaxInputLength(9).build();
+        assertAccepted("a = 12345", limits);
+        assertExceeded("a = 123456", limits, QueryLimits.Limit.INPUT_LENGTH);
+    }
+
+    @Test
+    public void testPredicates() {
+        QueryLimits limits = QueryLimits.builder().withMaxPredicates(2).build();
+        assertAccepted("a = 1 and b in (1, 2) order by a", limits);
+        assertExceeded("a = 1 and b is null or c like 'x'", limits, QueryLimits.Limit.PREDICATES);
+        assertExceeded("a = 1 and (b = 2 or (c = 3))", limits, QueryLimits.Limit.PREDICATES);
+    }
+
+    @Test
+    public void testNestingDepth() {
+        QueryLimits limits = QueryLimits.builder().withMaxNestingDepth(2).build();
+        assertAccepted("((a = 1)) and b in (1, 2)", limits);
+        assertAccepted("(a = 1) and b = '((('", limits);
+        assertExceeded("(((a = 1)))", limits, QueryLimits.Limit.NESTING_DEPTH);
+        assertExceeded("((a in (1, 2)))", limits, QueryLimits.Limit.NESTING_DEPTH);
+        assertExceeded("(a = @lower(@upper('x')))", limits, QueryLimits.Limit.NESTING_DEPTH);
+    }
+
+    @Test
+    public void testInListSize() {
+        QueryLimits limits = QueryLimits.builder().withMaxInListSize(2).build();
+        assertAccepted("a in (1, 2) and b = @substring('value', 0, 2)", limits);
+        assertExceeded("a in (1, 2, 3)", limits, QueryLimits.Limit.IN_LIST_SIZE);
+    }
+
+    @Test
+    public void testFunctionDepth() {
+        QueryLimits limits = QueryLimits.builder().withMaxFunctionDepth(1).build();
+        assertAccepted("a = @lower('x') and (b = @upper('y')) and c = '@lower(@upper('", limits);
+        assertExceeded("a = @lower(@upper('x'))", limits, QueryLimits.Limit.FUNCTION_DEPTH);
+    }
+
+    @Test
+    public void testPathologicalQueries() {
+        QueryLimits limits = QueryLimits.builder().withMaxNestingDepth(64).withMaxPredicates(1000).build();
+
+        StringBuilder nested = new StringBuilder();
+        StringBuilder chain = new StringBuilder("a = 0");
+        for (int i = 0; i < 50000; i++) {
+            nested.append('(');
+            chain.append(" or a = ").append(i);
+        }
+
+        assertExceeded(nested.append("a = 1").toString(), limits, QueryLimits.Limit.NESTING_DEPTH);
+        assertExceeded(chain.toString(), limits, QueryLimits.Limit.PREDICATES);
+        assertAccepted("a = 1 or b = 2", limits);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        QueryLimits.builder().withMaxPredicates(-1);
+    }
+
+    private static void assertAccepted(String query, QueryLimits limits) {
+        for (ParserEngine engine : ParserEngine.values()) {
+            Evaluator.parse(query, ParserConfig.builder().withEngine(engine).withLimits(limits).build());
+        }
+    }
+
+    private static void assertExceeded(String query, QueryLimits limits, QueryLimits.Limit limit) {
+        for (ParserEngine engine : ParserEngine.values()) {
+            try {
+                Evaluator.parse(query, ParserConfig.builder().withEngine(engine).withLimits(limits).build());
+                Assert.fail("Query over the " + limit + " limit was parsed by " + engine);
+            } catch (QueryLimitExceededException e) {
+                Assert.assertEquals(engine.name(), limit, e.getLimit());
+            }
+        }
+    }
+}
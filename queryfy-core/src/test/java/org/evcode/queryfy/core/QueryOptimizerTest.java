@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.core;
+
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ast.Node;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class QueryOptimizerTest {
+
+    private static final ParserConfig OPTIMIZED = ParserConfig.builder().withOptimizer(true).build();
+
+    @Test
+    public void testEqualitiesBecomeInList() {
+        assertOptimized("x = 1 or x = 2 or x = 3", "x in (1, 2, 3)");
+        assertOptimized("x = 'a' or x in ('b', 'a') or x = 'c'", "x in ('a', 'b', 'c')");
+        assertOptimized("x = 1 or y = 2 or x = 3", "x in (1, 3) or y = 2");
+        assertOptimized("x = 1 or (x = 2 or y = 3)", "x in (1, 2) or y = 3");
+        assertOptimized("x = 1 or x > 0 or x = -1", "x = -1 or x > 0");
+        assertOptimized("x = 1 or x = 2i", "x = 1 or x = 2i");
+    }
+
+    @Test
+    public void testRangesAreMerged() {
+        assertOptimized("a > 1 and a > 5", "a > 5");
+        assertOptimized("a >= 5 and a > 5 and a <= 10 and a < 20", "a > 5 and a <= 10");
+        assertOptimized("a > 1 or a > 5", "a > 1");
+        assertOptimized("a > 5 or a >= 5", "a >= 5");
+        assertOptimized("a >= 5 and a <= 5", "a = 5");
+        assertOptimized("a > 2017-01-01 and a > 2017-06-01", "a > 2017-06-01");
+        assertOptimized("a in (1, 2, 3, 4) and a > 2", "a in (3, 4)");
+        assertOptimized("a in (1, 2, 3) and a in (2, 3, 4) and a != 3", "a = 2");
+    }
+
+    @Test
+    public void testDuplicatesAreRemoved() {
+        assertOptimized("a = 1 and b like 'x' and a = 1 and b like 'x'", "a = 1 and b like 'x'");
+        assertOptimized("a is null or a is null", "a is null");
+        assertOptimized("(a = 1 and b = 2) or (a = 1 and b = 2)", "a = 1 and b = 2");
+    }
+
+    @Test
+    public void testContradictions() {
+        assertContradiction("a = 1 and a = 2");
+        assertContradiction("a > 5 and a < 3");
+        assertContradiction("a > 5 and a <= 5");
+        assertContradiction("a in (1, 2) and a not in (1, 2)");
+        assertContradiction("a = true and a = false");
+        assertContradiction("b = 1 and (a = 1 and a = 2 or a = 3 and a = 4)");
+
+        //A contradiction only drops its own branch of an OR
+        assertOptimized("a = 1 and a = 2 or b = 3", "b = 3");
+        Assert.assertFalse(QueryOptimizer.isContradiction(optimize("a = 1 or a = 2")));
+    }
+
+    @Test
+    public void testValuesNotOrderedAreKept() {
+        //Strings are compared with the backend collation, so they're never intersected
+        assertOptimized("a = 'x' and a = 'X'", "a = 'x' and a = 'X'");
+        assertOptimized("a > 'x' and a > 'y'", "a > 'x' and a > 'y'");
+        //Values of different types are never merged
+        assertOptimized("a > 1 and a > 2.5", "a > 1 and a > 2.5");
+        //BigDecimals are compared by their value
+        assertOptimized("a = 1.0 and a = 1.00", "a = 1.0");
+    }
+
+    @Test
+    public void testOperationOrderIsKept() {
+        assertOptimized("b like 'x' and a > 1 and c is null and a > 2", "b like 'x' and a > 2 and c is null");
+        Node node = Evaluator.parse("b like 'x' and a > 1 and c is null").get(0);
+        Assert.assertSame(node, QueryOptimizer.optimize(node));
+    }
+
+    @Test
+    public void testOptimizerConfig() {
+        List<Node> nodes = Evaluator.parse("select a where a = 1 or a = 2 order by a limit 0,10", OPTIMIZED);
+        Assert.assertEquals(Evaluator.parse("select a where a in (1, 2) order by a limit 0,10"), nodes);
+        Assert.assertTrue(QueryOptimizer.isContradiction(Evaluator.parse("a = 1 and a = 2", OPTIMIZED)));
+        Assert.assertFalse(QueryOptimizer.isContradiction(Evaluator.parse("a = 1 and a = 2")));
+
+        PreparedQuery query = Evaluator.prepare("a = ? and a = ?", OPTIMIZED);
+        Assert.assertEquals(Evaluator.parse("a = 1"), query.bind(1L, 1L));
+        Assert.assertTrue(QueryOptimizer.isContradiction(query.bind(1L, 2L)));
+    }
+
+    private static Node optimize(String query) {
+        return QueryOptimizer.optimize(Evaluator.parse(query).get(0));
+    }
+
+    private static void assertOptimized(String query, String expected) {
+        Assert.assertEquals(query, Evaluator.parse(expected).get(0), optimize(query));
+    }
+
+    private static void assertContradiction(String query) {
+        Assert.assertTrue(query, QueryOptimizer.isContradiction(optimize(query)));
+    }
+}
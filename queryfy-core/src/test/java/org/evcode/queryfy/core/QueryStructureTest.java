@@ -16,9 +16,14 @@
 package org.evcode.queryfy.core;
 
 import org.evcode.queryfy.core.operator.OrderOperatorType;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ParserEngine;
 import org.evcode.queryfy.core.parser.QueryParser;
+import org.evcode.queryfy.core.parser.SymbolTable;
 import org.evcode.queryfy.core.parser.ast.FilterNode;
 import org.evcode.queryfy.core.parser.ast.LimitNode;
+import org.evcode.queryfy.core.parser.ast.LogicalNode;
+import org.evcode.queryfy.core.parser.ast.Node;
 import org.evcode.queryfy.core.parser.ast.OrderNode;
 import org.evcode.queryfy.core.parser.ast.ProjectionNode;
 import org.evcode.queryfy.core.utils.ExpressionParserUtils;
@@ -101,6 +106,77 @@ public class QueryStructureTest {
                 new LimitNode(1L, 1L));
     }
 
+    @Test
+    public void testInvalidQueryMessage() {
+        for (String query : Arrays.asList("selector = ", "selector = 1 and other ~ 2", "select one where")) {
+            String expected = parseError(() -> ExpressionParserUtils.parse(query,
+                    Parboiled.createParser(QueryParser.class).Query()));
+            String actual = parseError(() -> Evaluator.parse(query));
+
+            Assert.assertEquals(expected, actual);
+            Assert.assertTrue(actual, actual.contains("(line 1, pos "));
+        }
+    }
+
+    @Test
+    public void testQualifiedSelectors() {
+        List<Node> nodes = Evaluator.parse("customer.address.city = 'a' and customer.address.city != 'b' " +
+                "order by customer.address.city");
+
+        LogicalNode filter = (LogicalNode) nodes.get(1);
+        String left = ((FilterNode) filter.getLeftOperation()).getSelector();
+        String right = ((FilterNode) filter.getRightOperation()).getSelector();
+        String order = ((OrderNode) nodes.get(0)).getOrderSpecifiers().get(0).getSelector();
+
+        Assert.assertEquals("customer.address.city", left);
+        Assert.assertSame(left, right);
+        Assert.assertSame(left, order);
+    }
+
+    @Test
+    public void testSymbolTableSelectors() {
+        String name = new String("name");
+        String city = new String("customer.address.city");
+        SymbolTable symbolTable = SymbolTable.of(name, city);
+
+        Assert.assertEquals(1, symbolTable.indexOf("customer.address.city"));
+        Assert.assertEquals(-1, symbolTable.indexOf("customer.address"));
+        Assert.assertSame(city, symbolTable.intern("customer.address.city"));
+
+        for (ParserEngine engine : ParserEngine.values()) {
+            ParserConfig config = ParserConfig.builder().withEngine(engine).withSymbolTable(symbolTable).build();
+            List<Node> nodes = Evaluator.parse("select name, other where customer.address.city = 'a' " +
+                    "order by customer.address.city", config);
+
+            FilterNode filter = (FilterNode) nodes.get(1);
+            ProjectionNode projection = (ProjectionNode) nodes.get(2);
+            Assert.assertSame(city, filter.getSelector());
+            Assert.assertEquals(1, filter.getSelectorIndex(symbolTable));
+            Assert.assertEquals(0, filter.getSelectorIndex(SymbolTable.of("customer.address.city")));
+            Assert.assertEquals(-1, filter.getSelectorIndex(SymbolTable.EMPTY));
+            Assert.assertSame(city, ((OrderNode) nodes.get(0)).getOrderSpecifiers().get(0).getSelector());
+            Assert.assertTrue(projection.getSelectors().contains("other"));
+            Assert.assertTrue(projection.getSelectors().stream().anyMatch(selector -> selector == name));
+        }
+    }
+
+    @Test
+    public void testTrailingSelectorDot() {
+        for (String query : Arrays.asList("a. = 1", "a..b = 1", "select a., b", "x = 1 order by a.b. asc")) {
+            String error = parseError(() -> Evaluator.parse(query));
+            Assert.assertTrue(error, error.contains("Invalid input '.'"));
+        }
+    }
+
+    private static String parseError(Runnable parse) {
+        try {
+            parse.run();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        throw new AssertionError("Invalid query was parsed");
+    }
+
     private void testQuery(String query,
                            List<String> projections,
                            Object filterValue,
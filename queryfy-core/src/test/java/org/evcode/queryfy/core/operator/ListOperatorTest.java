@@ -15,8 +15,10 @@
  */
 package org.evcode.queryfy.core.operator;
 
+import org.evcode.queryfy.core.Evaluator;
 import org.evcode.queryfy.core.parser.QueryParser;
 import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.core.parser.ast.PrimitiveArgs;
 import org.evcode.queryfy.core.utils.ExpressionParserUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -25,6 +27,9 @@ import org.junit.runners.JUnit4;
 import org.parboiled.Parboiled;
 import org.parboiled.errors.ParserRuntimeException;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+
 @RunWith(JUnit4.class)
 public class ListOperatorTest {
 
@@ -35,6 +40,25 @@ public class ListOperatorTest {
         testOperator("selector !in (1, 2, 3)", ListOperatorType.NOT_IN);
     }
 
+    @Test
+    public void testPrimitiveLists() {
+        FilterNode longs = (FilterNode) Evaluator.parse("selector in (3, 1, 2, 3, 1)").get(0);
+        Assert.assertEquals(PrimitiveArgs.Longs.class, longs.getArgs().getClass());
+        Assert.assertArrayEquals(new long[]{1L, 2L, 3L}, ((PrimitiveArgs.Longs) longs.getArgs()).toLongArray());
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), longs.getArgs());
+        Assert.assertTrue(longs.getArgs().contains(2L));
+        Assert.assertFalse(longs.getArgs().contains(2));
+
+        FilterNode ints = (FilterNode) Evaluator.parse("selector not in (2i, -1i)").get(0);
+        Assert.assertArrayEquals(new int[]{-1, 2}, ((PrimitiveArgs.Ints) ints.getArgs()).toIntArray());
+
+        FilterNode doubles = (FilterNode) Evaluator.parse("selector in (1d, -0, 0d, 1d)").get(0);
+        Assert.assertEquals(Arrays.asList(-0.0, 0.0, 1.0), doubles.getArgs());
+
+        FilterNode decimals = (FilterNode) Evaluator.parse("selector in (2.5, 1.5)").get(0);
+        Assert.assertEquals(Arrays.asList(new BigDecimal("2.5"), new BigDecimal("1.5")), decimals.getArgs());
+    }
+
     @Test(expected = ParserRuntimeException.class)
     public void testValueType() {
         testOperator("selector !in (1, 2, '3')", ListOperatorType.NOT_IN);
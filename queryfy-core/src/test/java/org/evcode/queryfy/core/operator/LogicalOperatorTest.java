@@ -27,6 +27,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.parboiled.Parboiled;
 
+import java.util.List;
+
 @RunWith(JUnit4.class)
 public class LogicalOperatorTest {
 
@@ -35,28 +37,13 @@ public class LogicalOperatorTest {
         Node node = parseNode("left = 1 or right = 2 or (left = 3 or right = 4)");
         Assert.assertEquals(OrNode.class, node.getClass());
 
-        //root node
-        OrNode rootOrNode = (OrNode) node;
-
-        // or (left = 3 or right = 4)
-        Assert.assertEquals(OrNode.class, rootOrNode.getRightOperation().getClass());
-        OrNode rightOrNode = (OrNode) rootOrNode.getRightOperation();
-
-        Assert.assertEquals(FilterNode.class, rightOrNode.getRightOperation().getClass());
-        assertNodeValue((FilterNode) rightOrNode.getRightOperation(), "right", ComparisionOperatorType.EQUAL, 4L);
-
-        Assert.assertEquals(FilterNode.class, rightOrNode.getLeftOperation().getClass());
-        assertNodeValue((FilterNode) rightOrNode.getLeftOperation(), "left", ComparisionOperatorType.EQUAL, 3L);
-
-        //left = 1 or right = 2
-        Assert.assertEquals(OrNode.class, rootOrNode.getLeftOperation().getClass());
-        OrNode leftOrNode = (OrNode) rootOrNode.getLeftOperation();
-
-        Assert.assertEquals(FilterNode.class, leftOrNode.getRightOperation().getClass());
-        assertNodeValue((FilterNode) leftOrNode.getRightOperation(), "right", ComparisionOperatorType.EQUAL, 2L);
-
-        Assert.assertEquals(FilterNode.class, leftOrNode.getLeftOperation().getClass());
-        assertNodeValue((FilterNode) leftOrNode.getLeftOperation(), "left", ComparisionOperatorType.EQUAL, 1L);
+        //The chain and the parenthesized group of the same operator are flattened into a single node
+        List<Node> operations = ((OrNode) node).getOperations();
+        Assert.assertEquals(4, operations.size());
+        assertNodeValue((FilterNode) operations.get(0), "left", ComparisionOperatorType.EQUAL, 1L);
+        assertNodeValue((FilterNode) operations.get(1), "right", ComparisionOperatorType.EQUAL, 2L);
+        assertNodeValue((FilterNode) operations.get(2), "left", ComparisionOperatorType.EQUAL, 3L);
+        assertNodeValue((FilterNode) operations.get(3), "right", ComparisionOperatorType.EQUAL, 4L);
     }
 
     @Test
@@ -64,28 +51,50 @@ public class LogicalOperatorTest {
         Node node = parseNode("left = 1 and right = 2 and (left = 3 and right = 4)");
         Assert.assertEquals(AndNode.class, node.getClass());
 
-        //root node
-        AndNode rootOrNode = (AndNode) node;
-
-        // and (left = 3 and right = 4)
-        Assert.assertEquals(AndNode.class, rootOrNode.getRightOperation().getClass());
-        AndNode rightOrNode = (AndNode) rootOrNode.getRightOperation();
+        List<Node> operations = ((AndNode) node).getOperations();
+        Assert.assertEquals(4, operations.size());
+        assertNodeValue((FilterNode) operations.get(0), "left", ComparisionOperatorType.EQUAL, 1L);
+        assertNodeValue((FilterNode) operations.get(1), "right", ComparisionOperatorType.EQUAL, 2L);
+        assertNodeValue((FilterNode) operations.get(2), "left", ComparisionOperatorType.EQUAL, 3L);
+        assertNodeValue((FilterNode) operations.get(3), "right", ComparisionOperatorType.EQUAL, 4L);
+    }
 
-        Assert.assertEquals(FilterNode.class, rightOrNode.getRightOperation().getClass());
-        assertNodeValue((FilterNode) rightOrNode.getRightOperation(), "right", ComparisionOperatorType.EQUAL, 4L);
+    @Test
+    public void testMixedOperations() {
+        Node node = parseNode("a = 1 and b = 2 or c = 3 and (d = 4 or e = 5) and f = 6");
+        Assert.assertEquals(OrNode.class, node.getClass());
 
-        Assert.assertEquals(FilterNode.class, rightOrNode.getLeftOperation().getClass());
-        assertNodeValue((FilterNode) rightOrNode.getLeftOperation(), "left", ComparisionOperatorType.EQUAL, 3L);
+        List<Node> operations = ((OrNode) node).getOperations();
+        Assert.assertEquals(2, operations.size());
+        Assert.assertEquals(2, ((AndNode) operations.get(0)).getOperations().size());
 
-        //left = 1 and right = 2
-        Assert.assertEquals(AndNode.class, rootOrNode.getLeftOperation().getClass());
-        AndNode leftOrNode = (AndNode) rootOrNode.getLeftOperation();
+        AndNode right = (AndNode) operations.get(1);
+        Assert.assertEquals(3, right.getOperations().size());
+        Assert.assertEquals(2, ((OrNode) right.getOperations().get(1)).getOperations().size());
+    }
 
-        Assert.assertEquals(FilterNode.class, leftOrNode.getRightOperation().getClass());
-        assertNodeValue((FilterNode) leftOrNode.getRightOperation(), "right", ComparisionOperatorType.EQUAL, 2L);
+    @Test
+    public void testBinaryView() {
+        AndNode node = (AndNode) parseNode("a = 1 and b = 2 and c = 3");
+
+        //The last operation, and the node of the operations before it, as the binary tree used to be
+        assertNodeValue((FilterNode) node.getRightOperation(), "c", ComparisionOperatorType.EQUAL, 3L);
+        AndNode left = (AndNode) node.getLeftOperation();
+        assertNodeValue((FilterNode) left.getLeftOperation(), "a", ComparisionOperatorType.EQUAL, 1L);
+        assertNodeValue((FilterNode) left.getRightOperation(), "b", ComparisionOperatorType.EQUAL, 2L);
+        Assert.assertEquals(new AndNode(left.getRightOperation(), left.getLeftOperation()), left);
+    }
 
-        Assert.assertEquals(FilterNode.class, leftOrNode.getLeftOperation().getClass());
-        assertNodeValue((FilterNode) leftOrNode.getLeftOperation(), "left", ComparisionOperatorType.EQUAL, 1L);
+    @Test
+    public void testLongChain() {
+        StringBuilder query = new StringBuilder("a = 0");
+        for (int i = 1; i < 500; i++) {
+            query.append(" or a = ").append(i);
+        }
+
+        OrNode node = (OrNode) parseNode(query.toString());
+        Assert.assertEquals(500, node.getOperations().size());
+        assertNodeValue((FilterNode) node.getOperations().get(499), "a", ComparisionOperatorType.EQUAL, 499L);
     }
 
     private void assertNodeValue(FilterNode node, String selector, Operator operator, Long value) {
@@ -0,0 +1,220 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.SymbolTable;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
+import org.evcode.queryfy.inmemory.converter.DateTimeConverter;
+import org.evcode.queryfy.inmemory.converter.TypeConverter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The paths available to queries over objects of a type, each one bound to the function reading it.
+ * Paths bound to a property are checked against the query values when the query is compiled, the ones bound to
+ * a function when it's applied.
+ */
+public class InMemoryContext<T> {
+
+    private final Class<T> type;
+    private final Map<String, Function<? super T, ?>> queryPaths;
+    private final Map<String, Function<? super T, ?>> projectionPaths;
+    private final Map<String, Class<?>> queryPathTypes;
+    private final Set<TypeConverter> typeConverters;
+    private final ConcurrentHashMap<Class<?>, Optional<TypeConverter>> typeConverterCache = new ConcurrentHashMap<>();
+
+    //The accessors indexed by their selector's position in the symbol table
+    private final SymbolTable symbolTable;
+    private final Function<? super T, ?>[] indexedQueryPaths;
+    private final Function<? super T, ?>[] indexedProjectionPaths;
+    private final ParserConfig parserConfig;
+
+    protected InMemoryContext(Class<T> type, Map<String, Function<? super T, ?>> queryPaths,
+                              Map<String, Function<? super T, ?>> projectionPaths,
+                              Map<String, Class<?>> queryPathTypes, Set<TypeConverter> typeConverters) {
+        this.type = type;
+        this.queryPaths = queryPaths;
+        this.projectionPaths = projectionPaths;
+        this.queryPathTypes = queryPathTypes;
+        this.typeConverters = typeConverters != null ? typeConverters : Collections.emptySet();
+
+        Set<String> selectors = new LinkedHashSet<>(queryPaths.keySet());
+        selectors.addAll(projectionPaths.keySet());
+        this.symbolTable = SymbolTable.of(selectors);
+        this.indexedQueryPaths = index(symbolTable, queryPaths);
+        this.indexedProjectionPaths = index(symbolTable, projectionPaths);
+        this.parserConfig = ParserConfig.builder(ParserConfig.DEFAULT).withSymbolTable(symbolTable).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Function<? super T, ?>[] index(SymbolTable symbolTable,
+                                                      Map<String, Function<? super T, ?>> paths) {
+        Function<? super T, ?>[] indexed = new Function[symbolTable.size()];
+        for (Map.Entry<String, Function<? super T, ?>> entry : paths.entrySet()) {
+            indexed[symbolTable.indexOf(entry.getKey())] = entry.getValue();
+        }
+        return indexed;
+    }
+
+    public static <T> Builder<T> from(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    private static Set<TypeConverter> createDefaultTypeConverters() {
+        return new HashSet<>(Arrays.asList(new DateTimeConverter()));
+    }
+
+    public Function<? super T, ?> resolveProjectionPath(String path) {
+        int index = symbolTable.indexOf(path);
+        Function<? super T, ?> accessor = index >= 0 ? indexedProjectionPaths[index] : null;
+        if (accessor == null) {
+            throw new IllegalArgumentException("Projection path " + path + " not found");
+        }
+        return accessor;
+    }
+
+    public Function<? super T, ?> resolveQueryPath(String path) {
+        return resolveQueryPath(path, symbolTable.indexOf(path));
+    }
+
+    //Parsed nodes keep their selector's index, which is only looked up again for nodes of another symbol table
+    public Function<? super T, ?> resolveQueryPath(FilterNode node) {
+        return resolveQueryPath(node.getSelector(), node.getSelectorIndex(symbolTable));
+    }
+
+    private Function<? super T, ?> resolveQueryPath(String path, int index) {
+        Function<? super T, ?> accessor = index >= 0 ? indexedQueryPaths[index] : null;
+        if (accessor == null) {
+            throw new IllegalArgumentException("Query path " + path + " not found");
+        }
+        return accessor;
+    }
+
+    //The declared type of a path bound to a property, or Object when it's bound to a function
+    public Class<?> resolveQueryPathType(String path) {
+        resolveQueryPath(path);
+        return queryPathTypes.getOrDefault(path, Object.class);
+    }
+
+    //The converter of the values of a type, or null when they aren't converted
+    public TypeConverter getTypeConverter(Class<?> type) {
+        if (typeConverters.isEmpty()) {
+            return null;
+        }
+        return typeConverterCache.computeIfAbsent(type, t -> typeConverters.stream()
+                .filter(p -> p.isSupported(t))
+                .findFirst())
+                .orElse(null);
+    }
+
+    public Object convert(Object value) {
+        TypeConverter converter = value != null ? getTypeConverter(value.getClass()) : null;
+        return converter != null ? converter.convert(value) : value;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public Map<String, Function<? super T, ?>> getQueryPaths() {
+        return Collections.unmodifiableMap(queryPaths);
+    }
+
+    public Map<String, Function<? super T, ?>> getProjectionPaths() {
+        return Collections.unmodifiableMap(projectionPaths);
+    }
+
+    public Set<TypeConverter> getTypeConverters() {
+        return Collections.unmodifiableSet(typeConverters);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    //The default parser config, emitting this context's selectors from its symbol table
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+
+    public static class Builder<T> {
+
+        private Map<String, Function<? super T, ?>> queryPaths = new HashMap<>();
+        private Map<String, Function<? super T, ?>> projectionPaths = new HashMap<>();
+        private Map<String, Class<?>> queryPathTypes = new HashMap<>();
+        private final Set<TypeConverter> typeConverters = createDefaultTypeConverters();
+        private Class<T> type;
+
+        public Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        //A path read from the property of the same name (eg. address.city reads getAddress().getCity())
+        public Builder<T> withPath(String name) {
+            return withPath(name, name);
+        }
+
+        public Builder<T> withPath(String name, String propertyPath) {
+            withPath(name, PropertyAccessors.of(type, propertyPath));
+            queryPathTypes.put(name, PropertyAccessors.typeOf(type, propertyPath));
+            return this;
+        }
+
+        public Builder<T> withPath(String name, Function<? super T, ?> accessor) {
+            return withQueryPath(name, accessor).withProjectionPath(name, accessor);
+        }
+
+        public Builder<T> withQueryPath(String name, String propertyPath) {
+            withQueryPath(name, PropertyAccessors.of(type, propertyPath));
+            queryPathTypes.put(name, PropertyAccessors.typeOf(type, propertyPath));
+            return this;
+        }
+
+        public Builder<T> withQueryPath(String name, Function<? super T, ?> accessor) {
+            queryPaths.put(name, accessor);
+            queryPathTypes.remove(name);
+            return this;
+        }
+
+        public Builder<T> withProjectionPath(String name, String propertyPath) {
+            return withProjectionPath(name, PropertyAccessors.of(type, propertyPath));
+        }
+
+        public Builder<T> withProjectionPath(String name, Function<? super T, ?> accessor) {
+            projectionPaths.put(name, accessor);
+            return this;
+        }
+
+        public Builder<T> withTypeConverter(TypeConverter converter) {
+            typeConverters.add(converter);
+            return this;
+        }
+
+        public Builder<T> withNoTypeConverters() {
+            typeConverters.clear();
+            return this;
+        }
+
+        public InMemoryContext<T> build() {
+            return new InMemoryContext<>(type, new HashMap<>(queryPaths), new HashMap<>(projectionPaths),
+                    new HashMap<>(queryPathTypes), new HashSet<>(typeConverters));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class InMemoryEvaluationResult<T> {
+
+    private Predicate<T> predicate = value -> true;
+    private Comparator<T> comparator;
+    private Function<T, Map<String, Object>> projection;
+    private Long limit;
+    private Long offset;
+    private boolean alwaysFalse;
+
+    InMemoryEvaluationResult() {
+    }
+
+    public Predicate<T> getPredicate() {
+        return predicate;
+    }
+
+    void setPredicate(Predicate<T> predicate) {
+        this.predicate = predicate;
+    }
+
+    //The optimized filter is a contradiction, so the query matches nothing
+    public boolean isAlwaysFalse() {
+        return alwaysFalse;
+    }
+
+    void setAlwaysFalse(boolean alwaysFalse) {
+        this.alwaysFalse = alwaysFalse;
+    }
+
+    //Null when the query has no order
+    public Comparator<T> getComparator() {
+        return comparator;
+    }
+
+    void setComparator(Comparator<T> comparator) {
+        this.comparator = comparator;
+    }
+
+    //Null when the query has no projection
+    public Function<T, Map<String, Object>> getProjection() {
+        return projection;
+    }
+
+    void setProjection(Function<T, Map<String, Object>> projection) {
+        this.projection = projection;
+    }
+
+    public Long getLimit() {
+        return limit;
+    }
+
+    void setLimit(Long limit) {
+        this.limit = limit;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    //Filters, sorts and paginates the values
+    public Stream<T> apply(Stream<T> values) {
+        if (alwaysFalse) {
+            return Stream.empty();
+        }
+
+        Stream<T> result = values.filter(predicate);
+        if (comparator != null) {
+            result = result.sorted(comparator);
+        }
+        if (offset != null && offset > 0) {
+            result = result.skip(offset);
+        }
+        if (limit != null) {
+            result = result.limit(limit);
+        }
+        return result;
+    }
+
+    public List<T> list(Collection<T> values) {
+        return apply(values.stream()).collect(Collectors.toList());
+    }
+
+    //Same as list, mapping each value to its projected paths
+    public List<Map<String, Object>> listWithProjections(Collection<T> values) {
+        if (projection == null) {
+            throw new IllegalArgumentException("Query has no projection");
+        }
+        return apply(values.stream()).map(projection).collect(Collectors.toList());
+    }
+}
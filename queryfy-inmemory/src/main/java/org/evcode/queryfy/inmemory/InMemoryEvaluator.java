@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.PreparedQuery;
+import org.evcode.queryfy.core.QueryOptimizer;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.ast.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public final class InMemoryEvaluator {
+
+    public <T> InMemoryEvaluationResult<T> evaluate(String expression, InMemoryContext<T> context) {
+        return evaluate(expression, context, context.getParserConfig());
+    }
+
+    public <T> InMemoryEvaluationResult<T> evaluate(String expression, InMemoryContext<T> context,
+                                                    ParserConfig config) {
+        return evaluate(Evaluator.parse(expression, config), context);
+    }
+
+    public <T> InMemoryEvaluationResult<T> evaluate(PreparedQuery query, InMemoryContext<T> context,
+                                                    Object... parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    public <T> InMemoryEvaluationResult<T> evaluate(PreparedQuery query, InMemoryContext<T> context,
+                                                    Map<String, ?> parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    private <T> InMemoryEvaluationResult<T> evaluate(List<Node> nodeList, InMemoryContext<T> context) {
+        InMemoryVisitor<T> visitor = new InMemoryVisitor<>();
+        InMemoryEvaluationResult<T> eval = new InMemoryEvaluationResult<>();
+
+        for (Node node : nodeList) {
+            if (node instanceof LogicalNode) {
+                Predicate<T> filter = node.accept(visitor, context);
+                eval.setPredicate(filter);
+            } else if (node instanceof FilterNode) {
+                Predicate<T> filter = node.accept(visitor, context);
+                eval.setPredicate(filter);
+                eval.setAlwaysFalse(QueryOptimizer.isContradiction(node));
+            } else if (node instanceof OrderNode) {
+                Comparator<T> order = visitor.visit((OrderNode) node, context);
+                eval.setComparator(order);
+            } else if (node instanceof LimitNode) {
+                LimitNode modifiers = visitor.visit((LimitNode) node, context);
+                eval.setLimit(modifiers.getLimit());
+                eval.setOffset(modifiers.getOffset());
+            } else if (node instanceof ProjectionNode) {
+                Function<T, Map<String, Object>> projection = visitor.visit((ProjectionNode) node, context);
+                eval.setProjection(projection);
+            }
+        }
+
+        return eval;
+    }
+}
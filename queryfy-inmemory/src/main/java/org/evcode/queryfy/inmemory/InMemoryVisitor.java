@@ -0,0 +1,315 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.NodeFolder;
+import org.evcode.queryfy.core.NodeTraversal;
+import org.evcode.queryfy.core.Visitor;
+import org.evcode.queryfy.core.operator.*;
+import org.evcode.queryfy.core.parser.ast.*;
+import org.evcode.queryfy.inmemory.converter.TypeConverter;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles filters to predicates, orders to comparators and projections to functions. Query values are
+ * converted (see {@link InMemoryContext#getTypeConverters()}) and checked against the path types once when
+ * compiled, so testing an object only reads its properties and compares them.
+ * As in MongoDB, null (or missing) values only match the negated operators and IS_NULL.
+ */
+public class InMemoryVisitor<T> implements Visitor<Predicate<T>, InMemoryContext<T>>,
+        NodeFolder<Predicate<T>, InMemoryContext<T>> {
+
+    //Lists up to this size are searched by comparing each value, larger ones through a hash set
+    private static final int LINEAR_SEARCH_SIZE = 8;
+
+    //Returns a Function<T, Map<String, Object>>
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R visit(ProjectionNode node, InMemoryContext<T> context) {
+        String[] selectors = node.getSelectors().toArray(new String[0]);
+        List<Function<? super T, ?>> accessors = new ArrayList<>(selectors.length);
+        for (String selector : selectors) {
+            accessors.add(context.resolveProjectionPath(selector));
+        }
+
+        Function<T, Map<String, Object>> projection = value -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < selectors.length; i++) {
+                values.put(selectors[i], accessors.get(i).apply(value));
+            }
+            return values;
+        };
+        return (R) projection;
+    }
+
+    //Logical nodes are folded without recursion, so trees of any depth can be compiled
+    @Override
+    public Predicate<T> visit(AndNode node, InMemoryContext<T> context) {
+        return NodeTraversal.fold(node, this, context);
+    }
+
+    @Override
+    public Predicate<T> visit(OrNode node, InMemoryContext<T> context) {
+        return NodeTraversal.fold(node, this, context);
+    }
+
+    @Override
+    public Predicate<T> fold(FilterNode node, InMemoryContext<T> context) {
+        return visit(node, context);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Predicate<T> fold(AndNode node, List<Predicate<T>> operations, InMemoryContext<T> context) {
+        Predicate<T>[] predicates = operations.toArray(new Predicate[0]);
+        return value -> {
+            for (Predicate<T> predicate : predicates) {
+                if (!predicate.test(value)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Predicate<T> fold(OrNode node, List<Predicate<T>> operations, InMemoryContext<T> context) {
+        Predicate<T>[] predicates = operations.toArray(new Predicate[0]);
+        return value -> {
+            for (Predicate<T> predicate : predicates) {
+                if (predicate.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Predicate<T> visit(FilterNode node, InMemoryContext<T> context) {
+        //Deferred function values are evaluated on each compilation
+        node = Evaluator.resolve(node);
+        Function<? super T, ?> path = context.resolveQueryPath(node);
+        Operator operator = node.getOperator();
+
+        //String types
+        if (operator == StringOperatorType.LIKE || operator == StringOperatorType.NOT_LIKE) {
+            Pattern pattern = Values.likePattern(String.valueOf(node.getArgs().get(0)));
+            boolean like = operator == StringOperatorType.LIKE;
+            return value -> {
+                Object property = path.apply(value);
+                return property != null ? pattern.matcher(property.toString()).matches() == like : !like;
+            };
+        }
+
+        //Values are compared once converted to a common type, which is checked now when the path type is known
+        if (operator instanceof ComparisionOperatorType || operator instanceof ListOperatorType) {
+            Class<?> type = context.resolveQueryPathType(node.getSelector());
+            checkValues(node.getSelector(), type, node.getArgs(), operator instanceof ComparisionOperatorType &&
+                    operator != ComparisionOperatorType.EQUAL && operator != ComparisionOperatorType.NOT_EQUAL,
+                    context);
+            return compile(node, convertedPath(path, type, context), context);
+        }
+
+        //Selector operator types
+        if (operator == SelectorOperatorType.IS_TRUE) {
+            return value -> Boolean.TRUE.equals(path.apply(value));
+        }
+
+        if (operator == SelectorOperatorType.IS_FALSE) {
+            return value -> Boolean.FALSE.equals(path.apply(value));
+        }
+
+        if (operator == SelectorOperatorType.IS_EMPTY) {
+            return value -> "".equals(path.apply(value));
+        }
+
+        if (operator == SelectorOperatorType.IS_NOT_EMPTY) {
+            return value -> !"".equals(path.apply(value));
+        }
+
+        if (operator == SelectorOperatorType.IS_NULL) {
+            return value -> path.apply(value) == null;
+        }
+
+        if (operator == SelectorOperatorType.IS_NOT_NULL) {
+            return value -> path.apply(value) != null;
+        }
+
+        throw new UnsupportedOperationException("Operation not supported '" + operator.name() + "'");
+    }
+
+    private Predicate<T> compile(FilterNode node, Function<? super T, ?> path, InMemoryContext<T> context) {
+        Operator operator = node.getOperator();
+
+        //Comparision types
+        if (operator == ComparisionOperatorType.EQUAL) {
+            Object arg = context.convert(node.getArgs().get(0));
+            return value -> Values.equal(path.apply(value), arg);
+        }
+
+        if (operator == ComparisionOperatorType.NOT_EQUAL) {
+            Object arg = context.convert(node.getArgs().get(0));
+            return value -> !Values.equal(path.apply(value), arg);
+        }
+
+        if (operator == ComparisionOperatorType.GREATER) {
+            return comparison(path, context.convert(node.getArgs().get(0)), result -> result > 0);
+        }
+
+        if (operator == ComparisionOperatorType.GREATER_EQUAL) {
+            return comparison(path, context.convert(node.getArgs().get(0)), result -> result >= 0);
+        }
+
+        if (operator == ComparisionOperatorType.LOWER) {
+            return comparison(path, context.convert(node.getArgs().get(0)), result -> result < 0);
+        }
+
+        if (operator == ComparisionOperatorType.LOWER_EQUAL) {
+            return comparison(path, context.convert(node.getArgs().get(0)), result -> result <= 0);
+        }
+
+        //List types
+        if (operator == ListOperatorType.IN) {
+            Predicate<Object> contains = contains(convert(node.getArgs(), context));
+            return value -> contains.test(path.apply(value));
+        }
+
+        if (operator == ListOperatorType.NOT_IN) {
+            Predicate<Object> contains = contains(convert(node.getArgs(), context));
+            return value -> !contains.test(path.apply(value));
+        }
+
+        throw new UnsupportedOperationException("Operation not supported '" + operator.name() + "'");
+    }
+
+    //Values of a known type are compared with the query values now, so a type error (eg. name > 5) is reported
+    //when the query is compiled instead of when it's applied
+    private static void checkValues(String selector, Class<?> type, List<Object> args, boolean ordered,
+                                    InMemoryContext<?> context) {
+        TypeConverter converter = context.getTypeConverter(type);
+        boolean typed = converter != null || Values.hasExactType(type);
+        for (Object arg : args) {
+            //Null (eg. returned by a function) only equals null values, it can't be ordered
+            if (arg == null) {
+                if (ordered) {
+                    throw new IllegalArgumentException("Value null can't be compared with path " + selector +
+                            " of type " + type.getName());
+                }
+                continue;
+            }
+            if (!typed) {
+                continue;
+            }
+
+            TypeConverter argConverter = context.getTypeConverter(arg.getClass());
+            boolean comparable = converter != null || argConverter != null ? converter == argConverter :
+                    Values.isComparable(type, arg, ordered);
+            if (!comparable) {
+                throw new IllegalArgumentException("Value " + arg + " can't be compared with path " + selector +
+                        " of type " + type.getName());
+            }
+        }
+    }
+
+    //The converter of a known type is found once, the values of other paths are converted by their own type
+    private static <T> Function<? super T, ?> convertedPath(Function<? super T, ?> path, Class<?> type,
+                                                           InMemoryContext<T> context) {
+        if (context.getTypeConverters().isEmpty()) {
+            return path;
+        }
+
+        TypeConverter converter = context.getTypeConverter(type);
+        if (converter != null) {
+            return value -> {
+                Object property = path.apply(value);
+                return property != null ? converter.convert(property) : null;
+            };
+        }
+        return Values.hasExactType(type) ? path : value -> context.convert(path.apply(value));
+    }
+
+    private static List<Object> convert(List<Object> args, InMemoryContext<?> context) {
+        if (context.getTypeConverters().isEmpty()) {
+            return args;
+        }
+        List<Object> converted = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            converted.add(context.convert(arg));
+        }
+        return converted;
+    }
+
+    //Returns a Comparator<T>
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R visit(OrderNode node, InMemoryContext<T> context) {
+        Comparator<T> comparator = null;
+        for (OrderNode.OrderSpecifier specifier : node.getOrderSpecifiers()) {
+            Function<? super T, ?> path = context.resolveProjectionPath(specifier.getSelector());
+            //Null values come first in ascending order, as in MongoDB
+            Comparator<T> order = Comparator.comparing(path, Comparator.nullsFirst(Values::compare));
+            if (specifier.getOperator() == OrderOperatorType.DESC) {
+                order = order.reversed();
+            }
+            comparator = comparator == null ? order : comparator.thenComparing(order);
+        }
+        return (R) comparator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R visit(LimitNode node, InMemoryContext<T> context) {
+        return (R) node;
+    }
+
+    private static <T> Predicate<T> comparison(Function<? super T, ?> path, Object arg, IntPredicate result) {
+        return value -> {
+            Object property = path.apply(value);
+            return property != null && result.test(Values.compare(property, arg));
+        };
+    }
+
+    private static Predicate<Object> contains(List<Object> args) {
+        if (args.size() <= LINEAR_SEARCH_SIZE) {
+            Object[] values = args.toArray();
+            return property -> {
+                for (Object value : values) {
+                    if (Values.equal(property, value)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        Set<Object> values = new HashSet<>(args.size() * 2);
+        for (Object arg : args) {
+            values.add(Values.normalize(arg));
+        }
+        //Enums are matched by name or ordinal, so they can't be hashed as the query values
+        return property -> property instanceof Enum ? args.stream().anyMatch(arg -> Values.equal(property, arg)) :
+                values.contains(Values.normalize(property));
+    }
+}
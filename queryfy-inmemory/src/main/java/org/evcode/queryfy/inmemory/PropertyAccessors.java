@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+
+/**
+ * Binds property paths (eg. address.city) to accessor functions once, so objects are read without reflection.
+ * Getters of public classes visible to this module are bound through LambdaMetafactory, as if they were written
+ * as method references, the others (and fields) through their method handle.
+ */
+final class PropertyAccessors {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private PropertyAccessors() {
+    }
+
+    //A null value along the path is read as null
+    static Function<Object, Object> of(Class<?> type, String path) {
+        Function<Object, Object> accessor = null;
+        Class<?> owner = type;
+
+        for (String property : path.split("\\.")) {
+            MethodHandle getter = findGetter(owner, property, path);
+            Function<Object, Object> propertyAccessor = bind(getter);
+            owner = getter.type().returnType();
+
+            if (accessor == null) {
+                accessor = propertyAccessor;
+            } else {
+                Function<Object, Object> parent = accessor;
+                accessor = value -> {
+                    Object parentValue = parent.apply(value);
+                    return parentValue != null ? propertyAccessor.apply(parentValue) : null;
+                };
+            }
+        }
+        return accessor;
+    }
+
+    //The declared type of the property at the end of the path, primitives boxed
+    static Class<?> typeOf(Class<?> type, String path) {
+        Class<?> owner = type;
+        for (String property : path.split("\\.")) {
+            owner = findGetter(owner, property, path).type().returnType();
+        }
+        return MethodType.methodType(owner).wrap().returnType();
+    }
+
+    private static MethodHandle findGetter(Class<?> type, String property, String path) {
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        try {
+            for (String name : new String[]{"get" + suffix, "is" + suffix, property}) {
+                Method method = findMethod(type, name);
+                if (method != null) {
+                    method.setAccessible(true);
+                    return LOOKUP.unreflect(method);
+                }
+            }
+
+            Field field = type.getField(property);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                return LOOKUP.unreflectGetter(field);
+            }
+        } catch (NoSuchFieldException | IllegalAccessException | SecurityException e) {
+            //Reported below as a missing property
+        }
+        throw new IllegalArgumentException("Property " + property + " of path " + path + " not found in " +
+                type.getName());
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            Method method = type.getMethod(name);
+            boolean getter = !Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class;
+            return getter ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bind(MethodHandle getter) {
+        MethodHandleInfo info = LOOKUP.revealDirect(getter);
+        if (info.getReferenceKind() != MethodHandleInfo.REF_getField && isLinkable(info.getDeclaringClass())) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class), GETTER_TYPE, getter, getter.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                //Bound through its handle below
+            }
+        }
+
+        MethodHandle handle = getter.asType(GETTER_TYPE);
+        return value -> {
+            try {
+                return handle.invokeExact(value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalArgumentException("Property access failed: " + e.getMessage(), e);
+            }
+        };
+    }
+
+    //Generated accessors are linked from this module, so they can only call public classes it can load
+    private static boolean isLinkable(Class<?> type) {
+        for (Class<?> declaring = type; declaring != null; declaring = declaring.getDeclaringClass()) {
+            if (!Modifier.isPublic(declaring.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(type.getName(), false, PropertyAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Compares property values with query values. Numbers are compared by their value whatever their type (eg. an int
+ * property with a Long literal), and enums by their name (ignoring the case) or ordinal, as the QueryDSL backend does.
+ */
+final class Values {
+
+    private Values() {
+    }
+
+    //A value equal to every value equal to it, so it can be used as a hash key
+    static Object normalize(Object value) {
+        if (!(value instanceof Number)) {
+            return value;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                return number;
+            }
+            return normalize(BigDecimal.valueOf(number));
+        }
+
+        BigDecimal decimal = value instanceof BigInteger ? new BigDecimal((BigInteger) value) :
+                value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        decimal = decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+        if (decimal.scale() <= 0 && decimal.precision() - decimal.scale() <= 19) {
+            try {
+                return decimal.longValueExact();
+            } catch (ArithmeticException e) {
+                //Out of the long range
+            }
+        }
+        return decimal;
+    }
+
+    static boolean equal(Object value, Object other) {
+        if (value == null || other == null) {
+            return value == other;
+        }
+        if (value instanceof Enum && !(other instanceof Enum)) {
+            Enum constant = (Enum) value;
+            return other instanceof Number ? constant.ordinal() == ((Number) other).longValue() :
+                    constant.name().equalsIgnoreCase(String.valueOf(other));
+        }
+        return normalize(value).equals(normalize(other));
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(Object value, Object other) {
+        if (value instanceof Number && other instanceof Number) {
+            Object number = normalize(value);
+            Object otherNumber = normalize(other);
+            if (number instanceof Long && otherNumber instanceof Long) {
+                return Long.compare((Long) number, (Long) otherNumber);
+            }
+            if (number instanceof Double || otherNumber instanceof Double) {
+                return Double.compare(((Number) value).doubleValue(), ((Number) other).doubleValue());
+            }
+            return decimal(number).compareTo(decimal(otherNumber));
+        }
+        if (value instanceof Enum && !(other instanceof Enum)) {
+            return compareEnum((Enum) value, other);
+        }
+        if (value instanceof Comparable && value.getClass().isInstance(other)) {
+            return ((Comparable<Object>) value).compareTo(other);
+        }
+        throw new IllegalArgumentException("Values " + value + " and " + other + " can't be compared");
+    }
+
+    //Whether every value of the type is of the same kind, so it can be checked against query values in advance
+    static boolean hasExactType(Class<?> type) {
+        return Modifier.isFinal(type.getModifiers()) || type.isEnum() || Number.class.isAssignableFrom(type);
+    }
+
+    //Whether values of the type can be compared with a query value, as equal and compare do
+    static boolean isComparable(Class<?> type, Object value, boolean ordered) {
+        if (Number.class.isAssignableFrom(type)) {
+            return value instanceof Number;
+        }
+        if (type.isEnum()) {
+            if (value instanceof Number) {
+                return true;
+            }
+            for (Object constant : type.getEnumConstants()) {
+                if (value instanceof String && ((Enum) constant).name().equalsIgnoreCase((String) value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return type.isInstance(value) && (!ordered || Comparable.class.isAssignableFrom(type));
+    }
+
+    //A LIKE pattern, where % matches any sequence of characters and _ a single one
+    static Pattern likePattern(String like) {
+        StringBuilder regex = new StringBuilder(like.length() + 8);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char ch = like.charAt(i);
+            if (ch == '%' || ch == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(ch == '%' ? ".*" : ".");
+            } else {
+                literal.append(ch);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static int compareEnum(Enum value, Object other) {
+        if (other instanceof Number) {
+            return Long.compare(value.ordinal(), ((Number) other).longValue());
+        }
+        for (Object constant : value.getDeclaringClass().getEnumConstants()) {
+            if (((Enum) constant).name().equalsIgnoreCase(String.valueOf(other))) {
+                return Integer.compare(value.ordinal(), ((Enum) constant).ordinal());
+            }
+        }
+        throw new IllegalArgumentException("Value " + other + " is not a " + value.getDeclaringClass().getName());
+    }
+
+    private static BigDecimal decimal(Object number) {
+        return number instanceof BigDecimal ? (BigDecimal) number : BigDecimal.valueOf((Long) number);
+    }
+}
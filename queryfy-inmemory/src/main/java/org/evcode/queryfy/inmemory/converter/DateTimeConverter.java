@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory.converter;
+
+import java.time.*;
+import java.util.Date;
+
+/**
+ * Converts dates and date-times to instants. Local values are taken in the converter zone, which defaults to the
+ * system one the provided functions (eg. @today()) read the date in.
+ */
+public class DateTimeConverter implements TypeConverter {
+
+    private final ZoneId zone;
+
+    public DateTimeConverter() {
+        this(ZoneId.systemDefault());
+    }
+
+    public DateTimeConverter(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public boolean isSupported(Class<?> type) {
+        return Date.class.isAssignableFrom(type) ||
+                type == Instant.class ||
+                type == LocalDate.class ||
+                type == LocalDateTime.class ||
+                type == ZonedDateTime.class ||
+                type == OffsetDateTime.class;
+    }
+
+    @Override
+    public Object convert(Object value) {
+        if (value instanceof Date) {
+            //java.sql.Date doesn't support toInstant
+            return Instant.ofEpochMilli(((Date) value).getTime());
+        }
+
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay(zone).toInstant();
+        }
+
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(zone).toInstant();
+        }
+
+        if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        }
+
+        if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory.converter;
+
+/**
+ * Converts property and query values of different types to a common one, so they can be compared (eg. a
+ * {@link java.util.Date} property with a date literal). Values are only compared when they're supported by the
+ * same converter, or by none.
+ */
+public interface TypeConverter {
+
+    boolean isSupported(final Class<?> type);
+
+    Object convert(Object value);
+}
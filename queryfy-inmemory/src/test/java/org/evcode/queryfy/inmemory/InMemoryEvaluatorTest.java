@@ -0,0 +1,318 @@
+/*
+ *  Copyright 2018 EVCode
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.evcode.queryfy.inmemory;
+
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.PreparedQuery;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+import org.evcode.queryfy.core.parser.functions.FunctionInvoker;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public class InMemoryEvaluatorTest {
+
+    private static final InMemoryEvaluator EVALUATOR = new InMemoryEvaluator();
+
+    private static final InMemoryContext<Person> CONTEXT = InMemoryContext.from(Person.class)
+            .withPath("name")
+            .withPath("age")
+            .withPath("score")
+            .withPath("active")
+            .withPath("status")
+            .withPath("birth")
+            .withPath("created")
+            .withPath("updated")
+            .withPath("city", "address.city")
+            .withQueryPath("upperName", person -> person.getName().toUpperCase())
+            .build();
+
+    private static final List<Person> PEOPLE = Arrays.asList(
+            new Person("John", 30, 7.5, true, Status.ACTIVE, LocalDate.of(1988, 1, 10), new Address("Recife")),
+            new Person("Mary", 25, 9.0, true, Status.INACTIVE, LocalDate.of(1993, 5, 2), new Address("Lisbon")),
+            new Person("Paul", 41, 6.25, false, Status.ACTIVE, LocalDate.of(1977, 9, 21), null),
+            new Person("Anne", null, null, false, Status.BLOCKED, null, new Address(null)));
+
+    @Test
+    public void testComparisons() {
+        assertNames("age > 25", "John", "Paul");
+        assertNames("age >= 25i", "John", "Mary", "Paul");
+        assertNames("age < 30.0", "Mary");
+        assertNames("age = 30d", "John");
+        assertNames("score > 7.25", "John", "Mary");
+        assertNames("score = 6.250", "Paul");
+        assertNames("birth < 1990-01-01", "John", "Paul");
+        assertNames("name = 'Mary' or age > 40", "Mary", "Paul");
+        assertNames("(age > 20 and active is true) and name != 'John'", "Mary");
+    }
+
+    @Test
+    public void testNullValues() {
+        //Null values only match the negated operators
+        assertNames("age < 100", "John", "Mary", "Paul");
+        assertNames("age != 30", "Mary", "Paul", "Anne");
+        assertNames("age is null", "Anne");
+        assertNames("age is not null", "John", "Mary", "Paul");
+        assertNames("city is null", "Paul", "Anne");
+        assertNames("city like '%o%'", "Mary");
+        assertNames("city not like 'Rec%'", "Mary", "Paul", "Anne");
+        assertNames("age not in (30, 25)", "Paul", "Anne");
+    }
+
+    @Test
+    public void testStringAndListOperators() {
+        assertNames("name like 'J%'", "John");
+        assertNames("name like '_a%'", "Mary", "Paul");
+        assertNames("name like 'j.hn'");
+        assertNames("upperName = 'ANNE'", "Anne");
+        assertNames("age in (25, 41)", "Mary", "Paul");
+        assertNames("age in (1, 2, 3, 4, 5, 6, 7, 8, 9, 25, 41)", "Mary", "Paul");
+        assertNames("name !in ('John', 'Mary')", "Paul", "Anne");
+    }
+
+    @Test
+    public void testEnumValues() {
+        assertNames("status = 'active'", "John", "Paul");
+        assertNames("status = 1", "Mary");
+        assertNames("status > 'ACTIVE'", "Mary", "Anne");
+        assertNames("status in ('BLOCKED', 'INACTIVE')", "Mary", "Anne");
+        assertNames("status in (2, 5, 6, 7, 8, 9, 10, 11, 12)", "Anne");
+    }
+
+    @Test
+    public void testTemporalValues() {
+        //Dates and instants are compared with date literals and functions once converted to instants
+        assertNames("created < 1990-01-01", "John", "Paul");
+        assertNames("created > 1990-01-01T00:00:00", "Mary");
+        assertNames("updated = 1993-05-02", "Mary");
+        assertNames("updated < @today()", "John", "Mary", "Paul");
+        assertNames("created in (1988-01-10, 1977-09-21)", "John", "Paul");
+        assertNames("birth >= 1988-01-10T00:00", "John", "Mary");
+    }
+
+    @Test
+    public void testValuesAreCheckedWhenCompiled() {
+        for (String query : Arrays.asList("name > 5", "age = 'x'", "status = 'unknown'", "created > 'x'",
+                "birth in ('x', 'y')", "score > 'high'")) {
+            try {
+                EVALUATOR.evaluate(query, CONTEXT);
+                Assert.fail("Incompatible values were compiled: " + query);
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("can't be compared with path"));
+            }
+        }
+    }
+
+    @Test
+    public void testNullQueryValues() {
+        ParserConfig config = ParserConfig.builder(CONTEXT.getParserConfig())
+                .withFunctionInvoker(new NullFunctionInvoker())
+                .build();
+
+        Assert.assertEquals(Collections.singletonList("Anne"),
+                names(EVALUATOR.evaluate("age = @nil()", CONTEXT, config).list(PEOPLE)));
+        Assert.assertEquals(Arrays.asList("John", "Mary", "Paul"),
+                names(EVALUATOR.evaluate("birth != @nil()", CONTEXT, config).list(PEOPLE)));
+        Assert.assertEquals(Collections.emptyList(),
+                names(EVALUATOR.evaluate("upperName = @nil()", CONTEXT, config).list(PEOPLE)));
+
+        try {
+            EVALUATOR.evaluate("age > @nil()", CONTEXT, config);
+            Assert.fail("A null value was ordered");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Value null can't be compared with path age of type " + Integer.class.getName(),
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOrderAndLimit() {
+        Assert.assertEquals(Arrays.asList("Mary", "John", "Paul", "Anne"),
+                names(EVALUATOR.evaluate("order by score desc", CONTEXT).list(PEOPLE)));
+        Assert.assertEquals(Arrays.asList("Anne", "Mary", "John", "Paul"),
+                names(EVALUATOR.evaluate("order by age", CONTEXT).list(PEOPLE)));
+        Assert.assertEquals(Arrays.asList("Paul", "John", "Mary"),
+                names(EVALUATOR.evaluate("order by status, name desc limit 0, 3", CONTEXT).list(PEOPLE)));
+        Assert.assertEquals(Arrays.asList("Mary", "Paul"),
+                names(EVALUATOR.evaluate("age > 20 order by name limit 1, 2", CONTEXT).list(PEOPLE)));
+    }
+
+    @Test
+    public void testProjection() {
+        InMemoryEvaluationResult<Person> result = EVALUATOR.evaluate("select name, city where age > 25 order by name",
+                CONTEXT);
+
+        List<Map<String, Object>> projections = result.listWithProjections(PEOPLE);
+        Assert.assertEquals(2, projections.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("name", "city")), projections.get(0).keySet());
+        Assert.assertEquals("Recife", projections.get(0).get("city"));
+        Assert.assertNull(projections.get(1).get("city"));
+
+        try {
+            EVALUATOR.evaluate("select upperName", CONTEXT);
+            Assert.fail("A query only path was projected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Projection path upperName not found", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPreparedQueries() {
+        PreparedQuery query = Evaluator.prepare("age > ? and name in (?)", CONTEXT.getParserConfig());
+        Assert.assertEquals(Collections.singletonList(PEOPLE.get(0)),
+                EVALUATOR.evaluate(query, CONTEXT, 20, Arrays.asList("John", "Anne")).list(PEOPLE));
+
+        ParserConfig optimized = ParserConfig.builder(CONTEXT.getParserConfig()).withOptimizer(true).build();
+        Assert.assertTrue(EVALUATOR.evaluate("age > 1 and age < 1", CONTEXT, optimized).isAlwaysFalse());
+    }
+
+    @Test
+    public void testPropertyAccessors() {
+        //Public getters are bound as method references, private classes and fields through their handles
+        Hidden hidden = new Hidden();
+        Assert.assertEquals("hidden", PropertyAccessors.of(Hidden.class, "value").apply(hidden));
+        Assert.assertEquals(1, PropertyAccessors.of(Hidden.class, "field").apply(hidden));
+        Assert.assertEquals("Recife", PropertyAccessors.of(Person.class, "address.city").apply(PEOPLE.get(0)));
+
+        try {
+            PropertyAccessors.of(Person.class, "address.country");
+            Assert.fail("A missing property was bound");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Property country of path address.country not found in " +
+                    Address.class.getName(), e.getMessage());
+        }
+    }
+
+    private void assertNames(String query, String... names) {
+        Assert.assertEquals(query, Arrays.asList(names), names(EVALUATOR.evaluate(query, CONTEXT).list(PEOPLE)));
+    }
+
+    private static List<String> names(List<Person> people) {
+        return people.stream().map(Person::getName).collect(Collectors.toList());
+    }
+
+    private static class NullFunctionInvoker implements FunctionInvoker {
+
+        @Override
+        public Object invoke(String function, Object... args) {
+            return null;
+        }
+
+        @Override
+        public boolean canHandle(String function, Object... args) {
+            return "nil".equals(function) && args.length == 0;
+        }
+
+        @Override
+        public FunctionDeterminism getDeterminism(String function, Object... args) {
+            return FunctionDeterminism.DETERMINISTIC;
+        }
+    }
+
+    public enum Status {
+        ACTIVE, INACTIVE, BLOCKED
+    }
+
+    public static class Address {
+
+        private final String city;
+
+        public Address(String city) {
+            this.city = city;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static class Person {
+
+        private final String name;
+        private final Integer age;
+        private final Double score;
+        private final boolean active;
+        private final Status status;
+        private final LocalDate birth;
+        private final Address address;
+
+        public Person(String name, Integer age, Double score, boolean active, Status status, LocalDate birth,
+                      Address address) {
+            this.name = name;
+            this.age = age;
+            this.score = score;
+            this.active = active;
+            this.status = status;
+            this.birth = birth;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public Double getScore() {
+            return score;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public LocalDate getBirth() {
+            return birth;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public Date getCreated() {
+            return birth != null ? Date.from(getUpdated()) : null;
+        }
+
+        public Instant getUpdated() {
+            return birth != null ? birth.atStartOfDay(ZoneId.systemDefault()).toInstant() : null;
+        }
+    }
+
+    private static class Hidden {
+
+        public final int field = 1;
+
+        public String getValue() {
+            return "hidden";
+        }
+    }
+}
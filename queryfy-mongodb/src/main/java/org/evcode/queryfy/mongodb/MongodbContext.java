@@ -16,6 +16,9 @@
 
 package org.evcode.queryfy.mongodb;
 
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.SymbolTable;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
 import org.evcode.queryfy.mongodb.converter.DateTimeConverter;
 import org.evcode.queryfy.mongodb.converter.TypeConverter;
 
@@ -27,18 +30,38 @@ public class MongodbContext {
     private final Map<String, String> projectionPaths;
     private Set<TypeConverter> typeConverters = createDefaultTypeConverters();
 
+    //The paths indexed by their selector's position in the symbol table
+    private final SymbolTable symbolTable;
+    private final String[] indexedQueryPaths;
+    private final String[] indexedProjectionPaths;
+    private final ParserConfig parserConfig;
+
     protected MongodbContext(Map<String, String> queryPaths, Map<String, String> projectionPaths) {
         this.queryPaths = queryPaths;
         this.projectionPaths = projectionPaths;
+
+        Set<String> selectors = new LinkedHashSet<>(queryPaths.keySet());
+        selectors.addAll(projectionPaths.keySet());
+        this.symbolTable = SymbolTable.of(selectors);
+        this.indexedQueryPaths = index(symbolTable, queryPaths);
+        this.indexedProjectionPaths = index(symbolTable, projectionPaths);
+        this.parserConfig = ParserConfig.builder(ParserConfig.DEFAULT).withSymbolTable(symbolTable).build();
     }
 
     protected MongodbContext(Map<String, String> queryPaths, Map<String, String> projectionPaths,
                              Set<TypeConverter> typeConverters) {
-        this.queryPaths = queryPaths;
-        this.projectionPaths = projectionPaths;
+        this(queryPaths, projectionPaths);
         this.typeConverters = typeConverters != null ? typeConverters : Collections.emptySet();
     }
 
+    private static String[] index(SymbolTable symbolTable, Map<String, String> paths) {
+        String[] indexed = new String[symbolTable.size()];
+        for (Map.Entry<String, String> entry : paths.entrySet()) {
+            indexed[symbolTable.indexOf(entry.getKey())] = entry.getValue();
+        }
+        return indexed;
+    }
+
     private static Set<TypeConverter> createDefaultTypeConverters() {
         return new HashSet<>(Arrays.asList(new DateTimeConverter()));
     }
@@ -59,8 +82,18 @@ public class MongodbContext {
         return Collections.unmodifiableSet(typeConverters);
     }
 
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    //The default parser config, emitting this context's selectors from its symbol table
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+
     public String resolveProjectionPath(String path) {
-        String resolvedPath = projectionPaths.get(path);
+        int index = symbolTable.indexOf(path);
+        String resolvedPath = index >= 0 ? indexedProjectionPaths[index] : null;
         if (resolvedPath == null) {
             throw new IllegalArgumentException("Projection path " + path + " not found");
         }
@@ -68,7 +101,16 @@ public class MongodbContext {
     }
 
     public String resolveQueryPath(String path) {
-        String resolvedPath = queryPaths.get(path);
+        return resolveQueryPath(path, symbolTable.indexOf(path));
+    }
+
+    //Parsed nodes keep their selector's index, which is only looked up again for nodes of another symbol table
+    public String resolveQueryPath(FilterNode node) {
+        return resolveQueryPath(node.getSelector(), node.getSelectorIndex(symbolTable));
+    }
+
+    private String resolveQueryPath(String path, int index) {
+        String resolvedPath = index >= 0 ? indexedQueryPaths[index] : null;
         if (resolvedPath == null) {
             throw new IllegalArgumentException("Query path " + path + " not found");
         }
@@ -121,7 +163,8 @@ public class MongodbContext {
         }
 
         public MongodbContext build() {
-            return new MongodbContext(queryPaths, projectionPaths, typeConverters);
+            return new MongodbContext(new HashMap<>(queryPaths), new HashMap<>(projectionPaths),
+                    new HashSet<>(typeConverters));
         }
     }
 }
\ No newline at end of file
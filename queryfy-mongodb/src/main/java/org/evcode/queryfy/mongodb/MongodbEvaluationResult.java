@@ -27,6 +27,7 @@ public class MongodbEvaluationResult {
     private Bson projection;
     private Long offset;
     private Long limit;
+    private boolean alwaysFalse;
 
     public Bson getOrderSpecifiers() {
         return orderSpecifiers;
@@ -48,6 +49,15 @@ public class MongodbEvaluationResult {
         return filter;
     }
 
+    //The optimized filter is a contradiction, so the query matches nothing and doesn't need to run
+    public boolean isAlwaysFalse() {
+        return alwaysFalse;
+    }
+
+    void setAlwaysFalse(boolean alwaysFalse) {
+        this.alwaysFalse = alwaysFalse;
+    }
+
     public Long getLimit() {
         return limit;
     }
@@ -18,21 +18,35 @@ package org.evcode.queryfy.mongodb;
 
 import org.bson.conversions.Bson;
 import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.PreparedQuery;
+import org.evcode.queryfy.core.QueryOptimizer;
 import org.evcode.queryfy.core.parser.ParserConfig;
 import org.evcode.queryfy.core.parser.ast.*;
 
 import java.util.List;
+import java.util.Map;
 
 public class MongodbEvaluator {
 
     private final MongodbVisitor visitor = new MongodbVisitor();
 
     public MongodbEvaluationResult evaluate(String expression, MongodbContext context) {
-        return evaluate(expression, context, ParserConfig.DEFAULT);
+        return evaluate(expression, context, context.getParserConfig());
     }
 
     public MongodbEvaluationResult evaluate(String expression, MongodbContext context, ParserConfig config) {
-        List<Node> nodeList = Evaluator.parse(expression, config);
+        return evaluate(Evaluator.parse(expression, config), context);
+    }
+
+    public MongodbEvaluationResult evaluate(PreparedQuery query, MongodbContext context, Object... parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    public MongodbEvaluationResult evaluate(PreparedQuery query, MongodbContext context, Map<String, ?> parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    private MongodbEvaluationResult evaluate(List<Node> nodeList, MongodbContext context) {
         MongodbEvaluationResult eval = new MongodbEvaluationResult();
 
         for (Node node : nodeList) {
@@ -46,6 +60,7 @@ public class MongodbEvaluator {
             } else if (node instanceof FilterNode) {
                 Bson filterNode = node.accept(visitor, context);
                 eval.addAnd(filterNode);
+                eval.setAlwaysFalse(QueryOptimizer.isContradiction(node));
             } else if (node instanceof OrderNode) {
                 Bson order = node.accept(visitor, context);
                 eval.setOrderSpecifiers(order);
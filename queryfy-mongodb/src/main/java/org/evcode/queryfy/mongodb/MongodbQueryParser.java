@@ -26,7 +26,7 @@ import org.evcode.queryfy.core.parser.ParserConfig;
 public class MongodbQueryParser {
 
     public MongodbEvaluationResult parse(String expression, MongodbContext context) {
-        return parse(expression, context, ParserConfig.DEFAULT);
+        return parse(expression, context, context.getParserConfig());
     }
 
     public MongodbEvaluationResult parse(String expression, MongodbContext context, ParserConfig config) {
@@ -36,7 +36,7 @@ public class MongodbQueryParser {
     }
 
     public <T> FindIterable<T> parseAndFind(MongoCollection<T> collection, String expression, MongodbContext context) {
-        return parseAndFind(collection, expression, context, ParserConfig.DEFAULT);
+        return parseAndFind(collection, expression, context, context.getParserConfig());
     }
 
     public <T> FindIterable<T> parseAndFind(MongoCollection<T> collection, String expression, MongodbContext context, ParserConfig config) {
@@ -46,7 +46,7 @@ public class MongodbQueryParser {
 
 
     public <T extends FindIterable> T parseAndApply(T findIterable, String expression, MongodbContext context) {
-        return parseAndApply(findIterable, expression, context, ParserConfig.DEFAULT);
+        return parseAndApply(findIterable, expression, context, context.getParserConfig());
     }
 
     public <T extends FindIterable> T parseAndApply(T findIterable, String expression, MongodbContext context, ParserConfig config) {
@@ -56,12 +56,12 @@ public class MongodbQueryParser {
 
     public <T extends FindIterable> T parseAndApply(T findIterable, String expression, MongodbContext context,
                                                     Bson initialAndFilter, Bson initialOrFilter) {
-        return parseAndApply(findIterable, expression, context, ParserConfig.DEFAULT, initialAndFilter, initialOrFilter);
+        return parseAndApply(findIterable, expression, context, context.getParserConfig(), initialAndFilter, initialOrFilter);
     }
 
     public <T extends FindIterable> T parseAndApply(T findIterable, String expression, MongodbContext context, ParserConfig config,
                                                     Bson initialAndFilter, Bson initialOrFilter) {
-        MongodbEvaluationResult evaluationResult = parse(expression, context, (config != null ? config : ParserConfig.DEFAULT));
+        MongodbEvaluationResult evaluationResult = parse(expression, context, (config != null ? config : context.getParserConfig()));
         return apply(findIterable, context, evaluationResult, initialAndFilter, initialOrFilter);
     }
 
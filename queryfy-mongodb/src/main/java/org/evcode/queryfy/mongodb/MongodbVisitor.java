@@ -21,6 +21,9 @@ import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import org.bson.BsonNull;
 import org.bson.conversions.Bson;
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.NodeFolder;
+import org.evcode.queryfy.core.NodeTraversal;
 import org.evcode.queryfy.core.Visitor;
 import org.evcode.queryfy.core.operator.*;
 import org.evcode.queryfy.core.parser.ast.*;
@@ -32,7 +35,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public class MongodbVisitor implements Visitor<Bson, MongodbContext> {
+public class MongodbVisitor implements Visitor<Bson, MongodbContext>, NodeFolder<Bson, MongodbContext> {
 
     @Override
     public Bson visit(ProjectionNode node, MongodbContext param) {
@@ -43,23 +46,38 @@ public class MongodbVisitor implements Visitor<Bson, MongodbContext> {
         return Projections.fields(projection);
     }
 
+    //Logical nodes are folded without recursion, so trees of any depth can be translated
     @Override
     public Bson visit(AndNode node, MongodbContext param) {
-        Bson right = node.getRightOperation().accept(this, param);
-        Bson left = node.getLeftOperation().accept(this, param);
-        return Filters.and(left, right);
+        return NodeTraversal.fold(node, this, param);
     }
 
     @Override
     public Bson visit(OrNode node, MongodbContext param) {
-        Bson right = node.getRightOperation().accept(this, param);
-        Bson left = node.getLeftOperation().accept(this, param);
-        return Filters.or(left, right);
+        return NodeTraversal.fold(node, this, param);
+    }
+
+    @Override
+    public Bson fold(FilterNode node, MongodbContext param) {
+        return visit(node, param);
+    }
+
+    //A flattened chain becomes a single $and/$or of all its operations
+    @Override
+    public Bson fold(AndNode node, List<Bson> operations, MongodbContext param) {
+        return Filters.and(operations);
+    }
+
+    @Override
+    public Bson fold(OrNode node, List<Bson> operations, MongodbContext param) {
+        return Filters.or(operations);
     }
 
     @Override
     public Bson visit(FilterNode node, MongodbContext param) {
-        String path = param.resolveQueryPath(node.getSelector());
+        //Deferred function values are evaluated on each translation
+        node = Evaluator.resolve(node);
+        String path = param.resolveQueryPath(node);
 
         //String types
         if (node.getOperator() == StringOperatorType.LIKE) {
@@ -144,6 +162,11 @@ public class MongodbVisitor implements Visitor<Bson, MongodbContext> {
     }
 
     protected Iterable<Object> asValue(List<Object> nodeValues, MongodbContext context) {
+        //Primitive lists have a single value type, so a converter is looked up once instead of once per value
+        if (nodeValues instanceof PrimitiveArgs && !hasTypeConverter(((PrimitiveArgs) nodeValues).getType(), context)) {
+            return nodeValues;
+        }
+
         return nodeValues.stream()
                 .map(p -> asValue(p, context))
                 .collect(Collectors.toList());
@@ -166,6 +189,11 @@ public class MongodbVisitor implements Visitor<Bson, MongodbContext> {
         return typeConverter.get().convert(nodeValue);
     }
 
+    protected boolean hasTypeConverter(Class<?> type, MongodbContext context) {
+        Set<TypeConverter> converters = context.getTypeConverters();
+        return converters != null && converters.stream().anyMatch(p -> p.isSupported(type));
+    }
+
     protected Pattern asLikeRegex(String value) {
         final StringBuilder rv = new StringBuilder(value.length() + 4);
 
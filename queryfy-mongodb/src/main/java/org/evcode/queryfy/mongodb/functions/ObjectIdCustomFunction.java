@@ -20,6 +20,9 @@ import org.bson.types.ObjectId;
 import org.evcode.queryfy.core.parser.functions.AbstractFunctionInvoker;
 import org.evcode.queryfy.core.parser.functions.CustomFunction;
 import org.evcode.queryfy.core.parser.functions.DefaultFunctionInvoker;
+import org.evcode.queryfy.core.parser.functions.FunctionDeterminism;
+
+import java.util.Collections;
 
 public class ObjectIdCustomFunction extends CustomFunction {
 
@@ -31,6 +34,10 @@ public class ObjectIdCustomFunction extends CustomFunction {
 
         public static String OID = "oid";
 
+        ObjectIdFunctionInvoker() {
+            addFunction(OID, Collections.singletonList(new Class[]{Object.class}), FunctionDeterminism.DETERMINISTIC);
+        }
+
         @Override
         public Object invoke(String function, Object... args) {
             if (OID.equals(function)) {
@@ -39,10 +46,5 @@ public class ObjectIdCustomFunction extends CustomFunction {
 
             throw new IllegalArgumentException("Function " + function + " is not supported.");
         }
-
-        @Override
-        public boolean canHandle(String function, Object... args) {
-            return OID.equals(function) && args.length == 1;
-        }
     }
 }
\ No newline at end of file
@@ -17,10 +17,11 @@ package org.evcode.queryfy.querydsl.core;
 
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Expression;
+import org.evcode.queryfy.core.parser.ParserConfig;
+import org.evcode.queryfy.core.parser.SymbolTable;
+import org.evcode.queryfy.core.parser.ast.FilterNode;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public class QueryDslContext {
 
@@ -28,11 +29,32 @@ public class QueryDslContext {
     private final Map<String, Expression> projectionPaths;
     private EntityPath entityPath;
 
+    //The paths indexed by their selector's position in the symbol table
+    private final SymbolTable symbolTable;
+    private final Expression[] indexedQueryPaths;
+    private final Expression[] indexedProjectionPaths;
+    private final ParserConfig parserConfig;
+
     protected QueryDslContext(EntityPath entityPath, Map<String, Expression> queryPaths, Map<String,
             Expression> projectionPaths) {
         this.entityPath = entityPath;
         this.queryPaths = queryPaths;
         this.projectionPaths = projectionPaths;
+
+        Set<String> selectors = new LinkedHashSet<>(queryPaths.keySet());
+        selectors.addAll(projectionPaths.keySet());
+        this.symbolTable = SymbolTable.of(selectors);
+        this.indexedQueryPaths = index(symbolTable, queryPaths);
+        this.indexedProjectionPaths = index(symbolTable, projectionPaths);
+        this.parserConfig = ParserConfig.builder(ParserConfig.DEFAULT).withSymbolTable(symbolTable).build();
+    }
+
+    private static Expression[] index(SymbolTable symbolTable, Map<String, Expression> paths) {
+        Expression[] indexed = new Expression[symbolTable.size()];
+        for (Map.Entry<String, Expression> entry : paths.entrySet()) {
+            indexed[symbolTable.indexOf(entry.getKey())] = entry.getValue();
+        }
+        return indexed;
     }
 
     public static Builder from(EntityPath type) {
@@ -40,7 +62,8 @@ public class QueryDslContext {
     }
 
     public Expression resolveProjectionPath(String path) {
-        Expression expression = projectionPaths.get(path);
+        int index = symbolTable.indexOf(path);
+        Expression expression = index >= 0 ? indexedProjectionPaths[index] : null;
         if (expression == null) {
             throw new IllegalArgumentException("Projection path " + path + " not found");
         }
@@ -48,7 +71,16 @@ public class QueryDslContext {
     }
 
     public Expression resolveQueryPath(String path) {
-        Expression expression = queryPaths.get(path);
+        return resolveQueryPath(path, symbolTable.indexOf(path));
+    }
+
+    //Parsed nodes keep their selector's index, which is only looked up again for nodes of another symbol table
+    public Expression resolveQueryPath(FilterNode node) {
+        return resolveQueryPath(node.getSelector(), node.getSelectorIndex(symbolTable));
+    }
+
+    private Expression resolveQueryPath(String path, int index) {
+        Expression expression = index >= 0 ? indexedQueryPaths[index] : null;
         if (expression == null) {
             throw new IllegalArgumentException("Query path " + path + " not found");
         }
@@ -67,6 +99,15 @@ public class QueryDslContext {
         return Collections.unmodifiableMap(projectionPaths);
     }
 
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    //The default parser config, emitting this context's selectors from its symbol table
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+
     public static class Builder {
 
         private Map<String, Expression> queryPaths = new HashMap<>();
@@ -92,7 +133,7 @@ public class QueryDslContext {
         }
 
         public QueryDslContext build() {
-            return new QueryDslContext(entityPath, queryPaths, projectionPaths);
+            return new QueryDslContext(entityPath, new HashMap<>(queryPaths), new HashMap<>(projectionPaths));
         }
     }
 }
\ No newline at end of file
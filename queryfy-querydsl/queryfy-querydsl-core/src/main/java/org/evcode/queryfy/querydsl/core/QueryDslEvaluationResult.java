@@ -30,6 +30,7 @@ public class QueryDslEvaluationResult {
     private Expression projection;
     private QueryModifiers queryModifiers;
     private LinkedList<OrderSpecifier> orderSpecifiers = new LinkedList<>();
+    private boolean alwaysFalse;
 
     QueryDslEvaluationResult() {
     }
@@ -46,6 +47,15 @@ public class QueryDslEvaluationResult {
         return predicateBuilder.getValue();
     }
 
+    //The optimized filter is a contradiction, so the query matches nothing and doesn't need to run
+    public boolean isAlwaysFalse() {
+        return alwaysFalse;
+    }
+
+    void setAlwaysFalse(boolean alwaysFalse) {
+        this.alwaysFalse = alwaysFalse;
+    }
+
     public Expression getProjection() {
         return projection;
     }
@@ -20,22 +20,36 @@ import com.mysema.query.types.Expression;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.Predicate;
 import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.PreparedQuery;
+import org.evcode.queryfy.core.QueryOptimizer;
 import org.evcode.queryfy.core.parser.ParserConfig;
 import org.evcode.queryfy.core.parser.ast.*;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public final class QueryDslEvaluator {
 
     private final QueryDslVisitor visitor = new QueryDslVisitor();
 
     public QueryDslEvaluationResult evaluate(String expression, QueryDslContext context) {
-        return evaluate(expression, context, ParserConfig.DEFAULT);
+        return evaluate(expression, context, context.getParserConfig());
     }
 
     public QueryDslEvaluationResult evaluate(String expression, QueryDslContext context, ParserConfig config) {
-        List<Node> nodeList = Evaluator.parse(expression, config);
+        return evaluate(Evaluator.parse(expression, config), context);
+    }
+
+    public QueryDslEvaluationResult evaluate(PreparedQuery query, QueryDslContext context, Object... parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    public QueryDslEvaluationResult evaluate(PreparedQuery query, QueryDslContext context, Map<String, ?> parameters) {
+        return evaluate(query.bind(parameters), context);
+    }
+
+    private QueryDslEvaluationResult evaluate(List<Node> nodeList, QueryDslContext context) {
         QueryDslEvaluationResult eval = new QueryDslEvaluationResult();
 
         for (Node node : nodeList) {
@@ -49,6 +63,7 @@ public final class QueryDslEvaluator {
             } else if (node instanceof FilterNode) {
                 Predicate filterNode = node.accept(visitor, context);
                 eval.addAnd(filterNode);
+                eval.setAlwaysFalse(QueryOptimizer.isContradiction(node));
             } else if (node instanceof OrderNode) {
                 LinkedList order = (LinkedList<OrderSpecifier>) node.accept(visitor, context);
                 eval.setOrderSpecifiers(order);
@@ -18,13 +18,16 @@ package org.evcode.queryfy.querydsl.core;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.types.*;
 import com.mysema.query.types.expr.*;
+import org.evcode.queryfy.core.Evaluator;
+import org.evcode.queryfy.core.NodeFolder;
+import org.evcode.queryfy.core.NodeTraversal;
 import org.evcode.queryfy.core.Visitor;
 import org.evcode.queryfy.core.operator.*;
 import org.evcode.queryfy.core.parser.ast.*;
 
 import java.util.*;
 
-public class QueryDslVisitor implements Visitor<Predicate, QueryDslContext> {
+public class QueryDslVisitor implements Visitor<Predicate, QueryDslContext>, NodeFolder<Predicate, QueryDslContext> {
 
     @Override
     public Expression visit(ProjectionNode node, QueryDslContext context) {
@@ -61,23 +64,37 @@ public class QueryDslVisitor implements Visitor<Predicate, QueryDslContext> {
                 projections.toArray(new Expression[0]));
     }
 
+    //Logical nodes are folded without recursion, so trees of any depth can be translated
     @Override
     public Predicate visit(AndNode node, QueryDslContext context) {
-        Predicate right = node.getRightOperation().accept(this, context);
-        Predicate left = node.getLeftOperation().accept(this, context);
-        return ExpressionUtils.and(left, right);
+        return NodeTraversal.fold(node, this, context);
     }
 
     @Override
     public Predicate visit(OrNode node, QueryDslContext context) {
-        Predicate right = node.getRightOperation().accept(this, context);
-        Predicate left = node.getLeftOperation().accept(this, context);
-        return ExpressionUtils.or(left, right);
+        return NodeTraversal.fold(node, this, context);
+    }
+
+    @Override
+    public Predicate fold(FilterNode node, QueryDslContext context) {
+        return visit(node, context);
+    }
+
+    @Override
+    public Predicate fold(AndNode node, List<Predicate> operations, QueryDslContext context) {
+        return ExpressionUtils.allOf(operations);
+    }
+
+    @Override
+    public Predicate fold(OrNode node, List<Predicate> operations, QueryDslContext context) {
+        return ExpressionUtils.anyOf(operations);
     }
 
     @Override
     public Predicate visit(FilterNode node, QueryDslContext context) {
-        Expression path = context.resolveQueryPath(node.getSelector());
+        //Deferred function values are evaluated on each translation
+        node = Evaluator.resolve(node);
+        Expression path = context.resolveQueryPath(node);
 
         if (path instanceof BooleanExpression && node.getOperator() instanceof SelectorOperatorType) {
             BooleanExpression expression = (BooleanExpression) path;
@@ -170,7 +187,7 @@ public class QueryDslVisitor implements Visitor<Predicate, QueryDslContext> {
     }
 
     protected List getNodeValues(Expression path, FilterNode node) {
-        List args = new LinkedList();
+        List args = new ArrayList(node.getArgs().size());
         for (int i = 0; i < node.getArgs().size(); i++) {
             args.add(getNodeValue(path, node, i));
         }
@@ -35,7 +35,7 @@ public class JPAQueryDslParser {
     }
 
     public QueryDslEvaluationResult parse(String expression, QueryDslContext context) {
-        return parse(expression, context, ParserConfig.DEFAULT);
+        return parse(expression, context, context.getParserConfig());
     }
 
     public QueryDslEvaluationResult parse(String expression, QueryDslContext context, ParserConfig config) {
@@ -45,7 +45,7 @@ public class JPAQueryDslParser {
     }
 
     public JPAEvaluatedQuery parseAndFind(String expression, QueryDslContext context) {
-        return parseAndFind(expression, context, ParserConfig.DEFAULT);
+        return parseAndFind(expression, context, context.getParserConfig());
     }
 
     public JPAEvaluatedQuery parseAndFind(String expression, QueryDslContext context, ParserConfig config) {
@@ -55,7 +55,7 @@ public class JPAQueryDslParser {
     }
 
     public <T extends JPAQuery> T parseAndApply(T query, String expression, QueryDslContext context) {
-        return parseAndApply(query, expression, context, ParserConfig.DEFAULT);
+        return parseAndApply(query, expression, context, context.getParserConfig());
     }
 
     public <T extends JPAQuery> T parseAndApply(T query, String expression, QueryDslContext context, ParserConfig config) {